@@ -1,20 +1,23 @@
 package es.uclm.i3a.simd.consensusBN;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
 
 import edu.cmu.tetrad.graph.Dag;
-import edu.cmu.tetrad.graph.Edge;
-import edu.cmu.tetrad.graph.Endpoint;
 import edu.cmu.tetrad.graph.Node;
 
 /**
  * This class implements a heuristic to compute an ancestral order of nodes for a set of DAGs.
  *  The heuristic is based on finding the best sink node in each iteration for the set of DAGs,
  *  removing it from the DAGs, and repeating the process until all nodes are ordered.
+ *
+ * This is the Greedy Heuristic Order (GHO), the default {@link OrderHeuristic} of {@link ConsensusUnion}.
  */
-public class AlphaOrder {
+public class AlphaOrder implements OrderHeuristic {
 	/**
 	 * The set of DAGs to compute the ancestral order from.
 	 */
@@ -24,15 +27,33 @@ public class AlphaOrder {
 	 */
 	private ArrayList<Node> alpha;
 	/**
-	 * A set of auxiliary DAGs used during the computation.
+	 * A set of auxiliary DAGs used during the computation, stored as int-indexed bitset DAGs over the nodes of the first DAG.
+	 * They are left untouched: each computation works on its own copies, so the order can be computed again.
+	 * 
+	 * @see BitsetDag
 	 */
-	private final ArrayList<Dag> setOfauxG;
+	private final ArrayList<BitsetDag> setOfauxG;
+
+	/**
+	 * Number of threads used to score the nodes and remove them from the auxiliary DAGs. Set to 1 by default.
+	 */
+	private int parallelism = 1;
+
+	/**
+	 * Pool of threads used when the parallelism is greater than 1. It only exists while computeAlpha is running.
+	 */
+	private ForkJoinPool pool;
+
+	/**
+	 * Number of edges inserted in the auxiliary DAGs while removing the nodes in the computed order, or -1 if the order has not been computed.
+	 */
+	private long expectedInsertedEdges = -1;
 	
 	/**
 	 * Constructor for the AlphaOrder class.
 	 * Initializes the set of DAGs and creates a copy of each DAG to work with.
 	 * @param dags the list of DAGs from which to compute the ancestral order.
-	 * This constructor creates a deep copy of each DAG to avoid modifying the original DAGs during
+	 * This constructor creates a bitset copy of each DAG to avoid modifying the original DAGs during
 	 * the computation of the ancestral order.
 	 */
 	public AlphaOrder(ArrayList<Dag> dags){
@@ -42,11 +63,7 @@ public class AlphaOrder {
 		// Initialize the class variables
 		this.setOfDags = dags;
 		this.alpha = new ArrayList<>();
-		this.setOfauxG = new ArrayList<>();
-		for (Dag i : setOfDags)	{
-			Dag aux_G = new Dag(i);
-			setOfauxG.add(aux_G);
-		}
+		this.setOfauxG = BitsetDag.fromDags(setOfDags, setOfDags.get(0).getNodes());
 	}
 
 	/**
@@ -56,6 +73,19 @@ public class AlphaOrder {
 	 * @param setOfDags the set of DAGs to check for exceptions.
 	 */
 	private void checkExceptions(ArrayList<Dag> setOfDags) {
+		checkDags(setOfDags);
+		// Check that the size is greater than 1
+		if(setOfDags.size() <= 1) {
+			throw new IllegalArgumentException("The set of DAGs has only one DAG.");
+		}
+	}
+
+	/**
+	 * Checks that a set of DAGs is not null nor empty and that all its DAGs have the same nodes, as required by the order heuristics.
+	 * @param setOfDags the set of DAGs to check.
+	 * @throws IllegalArgumentException if the set is null, empty, or contains DAGs with different nodes.
+	 */
+	static void checkDags(List<Dag> setOfDags) {
 		// Check if setOfDags is null
 		if(setOfDags == null) {
 			throw new IllegalArgumentException("The set of DAGs is null.");
@@ -65,10 +95,6 @@ public class AlphaOrder {
 		if (setOfDags.isEmpty()) {
 			throw new IllegalArgumentException("The set of DAGs is empty.");
 		}
-		// Check that the size is greater than 1
-		if(setOfDags.size() <= 1) {
-			throw new IllegalArgumentException("The set of DAGs has only one DAG.");
-		}
 		
 		// Check that all DAGs have the same nodes
 		List<Node> firstDagNodes = setOfDags.get(0).getNodes();
@@ -92,179 +118,250 @@ public class AlphaOrder {
 	/**
 	 * This method computes the heuristic to find an ancestral order of nodes of consensus. It is based on the number of edges that would be added on a sequence created from the sink nodes upwards.
 	 * It iteratively finds the node with the minimum number of changes (inversions and additions of edges) and adds it to the beginning of the order.
+	 * 
+	 * The number of changes of every node in every DAG is computed once at the beginning and kept in an indexed min-heap. After a node is removed,
+	 * only the nodes whose neighbourhood has been modified in a DAG are recomputed for that DAG, so each step does not rescan every remaining node.
+	 * Ties are broken in favour of the node with the lowest index.
+	 * The edges inserted in the auxiliary DAGs while removing the nodes are counted, and can be retrieved with getExpectedInsertedEdges.
+	 * The nodes are removed from copies of the auxiliary DAGs, so calling this method again computes the same order.
+	 * The work on each auxiliary DAG is independent, so with a parallelism greater than 1 the DAGs are processed concurrently; the order does not change.
 	 * */ 
+	@Override
 	public void computeAlpha(){
 		
 		// Get nodes and initialize the alpha list
-		List<Node> nodes = setOfDags.get(0).getNodes();
+		List<Node> nodes = this.setOfauxG.get(0).getNodes();
+		int numNodes = nodes.size();
+		int numDags = this.setOfauxG.size();
+		BitsetDag[] auxG = new BitsetDag[numDags];
 		LinkedList<Node> alpha_aux = new LinkedList<>();
-		
-		while(!nodes.isEmpty()){
-			int index_alpha = computeNextSink(nodes);
-			Node nodeAlpha = nodes.get(index_alpha);
-			alpha_aux.addFirst(nodeAlpha);
-			for(Dag g: this.setOfauxG){
-				removeNode(g,nodeAlpha);
-			}
-			nodes.remove(nodeAlpha);
+
+		if (this.parallelism > 1) {
+			this.pool = new ForkJoinPool(this.parallelism);
 		}
-		this.alpha = new ArrayList<>(alpha_aux);
-	}
-	
-	
-	/**
-	 * Gets the following node in the order based on the minimum number of changes (inversions and additions of edges) that would be required to create a sequence from the sink nodes upwards.
-	 * @param nodes Remaining nodes to be ordered.
-	 * @return index of the node that should be added next to the order.
-	 */
-	private int computeNextSink(List<Node> nodes){
-		
-		// Setting up variables to count changes
-		int changes;
-		int inversion = 0;
-		int addition = 0;
-		int indexNode = 0;
-		int min = Integer.MAX_VALUE;
+		try {
+			// Number of changes of each node in each DAG, and in total, and a topological order of each DAG
+			int[][] changes = new int[numDags][numNodes];
+			TopologicalOrder[] orders = new TopologicalOrder[numDags];
+			forEachDag(d -> {
+				BitsetDag g = new BitsetDag(this.setOfauxG.get(d));
+				auxG[d] = g;
+				orders[d] = new TopologicalOrder(g);
+				for(int i = 0; i < numNodes; i++){
+					changes[d][i] = computeChanges(g, i);
+				}
+			});
+			int[] totalChanges = new int[numNodes];
+			for(int d = 0; d < numDags; d++){
+				for(int i = 0; i < numNodes; i++){
+					totalChanges[i] += changes[d][i];
+				}
+			}
+			IndexedMinHeap candidates = new IndexedMinHeap(totalChanges);
 
-		// Iterate through each node to find the one with the minimum changes for the list of DAGs.	
-		for(int i=0; i<nodes.size(); i++){
-			Node nodei = nodes.get(i);
-			for(Dag g: this.setOfauxG){
-				// Checking total amount of inversions. We add -1 to give relevance to nodes that are already sinks.
-				List<Node> children = g.getChildren(nodei);
-				inversion += (children.size()-1);
+			// Nodes affected by the last removal in each DAG, and the variation of their number of changes
+			long[][] affected = new long[numDags][Bitsets.words(numNodes)];
+			int[][] variations = new int[numDags][numNodes];
+			long[] updated = new long[Bitsets.words(numNodes)];
+			long[] insertedEdges = new long[numDags];
 
-				// Checking edge additions from parents of each child to nodei and from parents of nodei to children.
-				ArrayList<Edge> inserted = new ArrayList<>();
-				List<Node> paX = g.getParents(nodei);
-				for(Node child: children){
-					List<Node> paY = g.getParents(child);
-					// For each parent of nodei, check if it has an edge to the child
-					for(Node nodep: paX){
-						if(g.getEdge(nodep, child)==null){
-							addition++;
-						}
+			while(!candidates.isEmpty()){
+				int index_alpha = candidates.poll();
+				alpha_aux.addFirst(nodes.get(index_alpha));
+				forEachDag(d -> {
+					BitsetDag g = auxG[d];
+					Arrays.fill(affected[d], 0L);
+					collectAffectedNodes(g, index_alpha, affected[d]);
+					insertedEdges[d] += removeNode(orders[d],index_alpha);
+					// Updating the changes of the nodes whose neighbourhood has been modified in this DAG
+					for(int i = Bitsets.nextSetBit(affected[d], 0); i >= 0; i = Bitsets.nextSetBit(affected[d], i + 1)){
+						int current = computeChanges(g, i);
+						variations[d][i] = current - changes[d][i];
+						changes[d][i] = current;
 					}
-					// For each parent of the child, check if it has an edge to nodei
-					for(Node nodec: paY){
-						if(!nodec.equals(nodei)){
-							// If there is no edge between nodec and nodei, we consider adding it
-							if((g.getEdge(nodec,nodei)==null) && (g.getEdge(nodei,nodec)==null)){
-								Edge toBeInserted = new Edge(nodec,nodei,Endpoint.CIRCLE,Endpoint.CIRCLE);
-								boolean contains = false;
-								// Checking if we have already added this edge to the list of inserted edges
-								// to avoid counting it multiple times.
-								for(Edge e: inserted){
-									if((e.getNode1().equals(nodec) && (e.getNode2().equals(nodei))) || 
-									  ((e.getNode1().equals(nodei) && (e.getNode2().equals(nodec))))){
-										contains = true;
-										break;
-									}
-								}
-								// Checkin if there is a new edge addition, we update the counter and the list of inserted edges if so.
-								if(!contains){
-									addition++;
-									inserted.add(toBeInserted);
-								}
-							}
-						}
+				});
+				Arrays.fill(updated, 0L);
+				for(int d = 0; d < numDags; d++){
+					for(int i = Bitsets.nextSetBit(affected[d], 0); i >= 0; i = Bitsets.nextSetBit(affected[d], i + 1)){
+						totalChanges[i] += variations[d][i];
 					}
+					Bitsets.or(updated, affected[d]);
 				}
+				for(int i = Bitsets.nextSetBit(updated, 0); i >= 0; i = Bitsets.nextSetBit(updated, i + 1)){
+					candidates.update(i, totalChanges[i]);
+				}
+			}
+			this.expectedInsertedEdges = 0;
+			for(long inserted : insertedEdges){
+				this.expectedInsertedEdges += inserted;
+			}
+		} finally {
+			if (this.pool != null) {
+				this.pool.shutdown();
+				this.pool = null;
 			}
-			// Calculate total changes for the current node
-			changes = inversion + addition;
-			// If the current node has less changes than the minimum found so far, we update the minimum and the index of the node
-			// to be added to the order.
-			if(changes < min){
-				min = changes;
-				indexNode = i;
+		}
+		this.alpha = new ArrayList<>(alpha_aux);
+	}
+
+	/**
+	 * Runs a task for the index of every auxiliary DAG, sequentially on the calling thread or concurrently in the pool if there is one.
+	 * The tasks of different DAGs must only modify data of their own DAG.
+	 * @param task the task to run, receiving the index of a DAG.
+	 * @throws IllegalStateException if the calling thread is interrupted while waiting for the tasks.
+	 */
+	private void forEachDag(IntConsumer task) {
+		if (this.pool == null) {
+			for (int d = 0; d < this.setOfauxG.size(); d++) {
+				task.accept(d);
 			}
-			// Resetting changes for the next iteration
-			inversion = 0;
-			addition = 0;
+			return;
 		}
-		return indexNode;
+		Utils.runInPool(this.pool, this.setOfauxG.size(), task, "computing the alpha order");
+	}
+
+	/**
+	 * Collects the nodes whose number of changes may be modified when a node is removed from a DAG with removeNode.
+	 * The number of changes of a node depends on its parents, its children and the parents of its children. Every edge added or deleted by
+	 * removeNode points to the removed node or to one of its children, and joins nodes among the removed node, its parents, its children and the
+	 * parents of its children, so these are the only nodes affected. The removed node itself is not included.
+	 * @param g the DAG from which the node is going to be removed.
+	 * @param nodeAlpha the index of the node that is going to be removed.
+	 * @param affected the bitset where the affected nodes are added.
+	 */
+	private void collectAffectedNodes(BitsetDag g, int nodeAlpha, long[] affected){
+		long[] children = g.getChildren(nodeAlpha);
+		Bitsets.or(affected, g.getParents(nodeAlpha));
+		Bitsets.or(affected, children);
+		for(int child = Bitsets.nextSetBit(children, 0); child >= 0; child = Bitsets.nextSetBit(children, child + 1)){
+			Bitsets.or(affected, g.getParents(child));
+		}
+		Bitsets.clear(affected, nodeAlpha);
+	}
+
+	/**
+	 * Computes the number of changes (inversions and additions of edges) needed in a DAG to turn a node into a sink.
+	 * @param g the DAG where the changes are computed.
+	 * @param node the index of the candidate node.
+	 * @return the number of inversions (minus one, to give relevance to nodes that are already sinks) plus the number of edge additions.
+	 */
+	private int computeChanges(BitsetDag g, int node){
+		// Checking total amount of inversions. We add -1 to give relevance to nodes that are already sinks.
+		long[] children = g.getChildren(node);
+		int inversion = Bitsets.cardinality(children) - 1;
+
+		// Checking edge additions from parents of each child to the node and from parents of the node to children.
+		int addition = 0;
+		long[] paX = g.getParents(node);
+		long[] parentsOfChildren = new long[paX.length];
+		for(int child = Bitsets.nextSetBit(children, 0); child >= 0; child = Bitsets.nextSetBit(children, child + 1)){
+			long[] paY = g.getParents(child);
+			// For each parent of the node, check if it has an edge to the child
+			addition += Bitsets.andNotCardinality(paX, paY);
+			Bitsets.or(parentsOfChildren, paY);
+		}
+		// Each parent of a child that is not adjacent to the node is counted once, as the edge is only added once.
+		Bitsets.clear(parentsOfChildren, node);
+		Bitsets.andNot(parentsOfChildren, paX);
+		Bitsets.andNot(parentsOfChildren, children);
+		addition += Bitsets.cardinality(parentsOfChildren);
+		return inversion + addition;
 	}
 	
 	/**
 	 * Removes a node from the DAG and updates the edges according to a new node added to the alpha order.
 	 * It removes a sink node and updates the edges to maintain the directed paths in the DAG.
 	 * This is done each iteration of the heuristic to compute the alpha order.
-	 * @param g the DAG from which the node is to be removed.
-	 * @param nodeAlpha the node to be removed from the DAG.
+	 * @param order the topological order of the DAG from which the node is to be removed, which is kept up to date.
+	 * @param nodeAlpha the index of the node to be removed from the DAG.
+	 * @return the number of edges inserted in the DAG to cover the edges to the children of the node, without counting the reversed edges.
 	 */
-	private void removeNode(Dag g, Node nodeAlpha){
+	private static int removeNode(TopologicalOrder order, int nodeAlpha){
 		
-		List<Node> children = g.getChildren(nodeAlpha);
+		int inserted = 0;
+		BitsetDag g = order.getDag();
+		List<Integer> children = new ArrayList<>();
+		long[] ch = g.getChildren(nodeAlpha);
+		for(int child = Bitsets.nextSetBit(ch, 0); child >= 0; child = Bitsets.nextSetBit(ch, child + 1)){
+			children.add(child);
+		}
 		
 		while(!children.isEmpty()){
 			// 1. Select a child that prevents  a cycle when nodeAlpha <- child is added.
-			Node child = selectChild(g, nodeAlpha, children);
+			int position = selectChild(order, nodeAlpha, children);
+			int child = children.get(position);
 
 			// 2. Cover the edge nodeAlpha -> child by adding edges from parents of nodeAlpha to child and from parents of child to nodeAlpha. Last of all we revert the edge nodeAlpha -> child.
 			// This is done to maintain the directed paths in the DAG.
-			coverEdge(g, nodeAlpha, child);
+			inserted += coverEdge(order, nodeAlpha, child);
 
 			// 3. Delete the child from the list of children of nodeAlpha, as it has been processed.
-			children.remove(child);
+			children.remove(position);
 		}
 		// Finally, remove the nodeAlpha from the DAG.
-		g.removeNode(nodeAlpha);
+		g.removeIncidentEdges(nodeAlpha);
+		return inserted;
 	}
 
 	/**
 	 * Selects a child node from the list of children of nodeAlpha that does not create a cycle when an edge from nodeAlpha to the child is added (nodeAlpha <- child).
-	 * @param g the DAG from which the child is to be selected.
-	 * @param nodeAlpha the node from the alpha order heuristic.
-	 * @param children the remaining children of nodeAlpha in the DAG.
-	 * @return the selected child node that does not create a cycle when an edge from nodeAlpha to the child is added.
+	 * The edge nodeAlpha -> child of the selected child is removed from the DAG.
+	 * The cycle check is a directed path search bounded by the topological order, which ends immediately when no other child of nodeAlpha
+	 * is placed before the candidate child, since any other path from nodeAlpha must start with one of its children.
+	 * @param order the topological order of the DAG from which the child is to be selected.
+	 * @param nodeAlpha the index of the node from the alpha order heuristic.
+	 * @param children the indexes of the remaining children of nodeAlpha in the DAG.
+	 * @return the position in the list of children of the selected child node.
 	 */
-	private Node selectChild(Dag g, Node nodeAlpha, List<Node> children) {
+	private static int selectChild(TopologicalOrder order, int nodeAlpha, List<Integer> children) {
+		BitsetDag g = order.getDag();
 		int i=0;
-		Node child;
+		int child;
 		boolean endCondition;
 		do{
 			child = children.get(i++);
 			g.removeEdge(nodeAlpha, child);
 			endCondition=false;
-			if(g.paths().existsDirectedPath(nodeAlpha,child)){
+			if(order.existsDirectedPath(nodeAlpha,child)){
 				endCondition=true;
-				g.addEdge(new Edge(nodeAlpha,child,Endpoint.TAIL, Endpoint.ARROW));
+				order.addEdge(nodeAlpha,child);
 			}
 		}while(endCondition);
-		return child;
+		return i-1;
 	}
 
 	/**
 	 * Covers the edge from nodeAlpha to child by adding edges from parents of nodeAlpha to child and from parents of child to nodeAlpha.
 	 * This is done to maintain the directed paths in the DAG after removing nodeAlpha.
-	 * @param g the DAG where the edge is to be covered.
-	 * @param nodeAlpha the node from the alpha order heuristic.
-	 * @param child the child node selected from the list of children of nodeAlpha.
+	 * The edges are added through the topological order of the DAG, which is repaired when an edge goes against it.
+	 * @param order the topological order of the DAG where the edge is to be covered.
+	 * @param nodeAlpha the index of the node from the alpha order heuristic.
+	 * @param child the index of the child node selected from the list of children of nodeAlpha.
+	 * @return the number of edges added to cover the edge, without counting its reversal.
 	 */
-	private void coverEdge(Dag g, Node nodeAlpha, Node child) {
+	private static int coverEdge(TopologicalOrder order, int nodeAlpha, int child) {
+		BitsetDag g = order.getDag();
+		int inserted = 0;
 		// Getting the parents of nodeAlpha and child.
-		List<Node> paX = g.getParents(nodeAlpha);
-		List<Node> paY = g.getParents(child);
-		paY.remove(nodeAlpha);
+		long[] paX = g.getParents(nodeAlpha).clone();
+		long[] paY = g.getParents(child).clone();
+		Bitsets.clear(paY, nodeAlpha);
 		
 		// Adding edges from parents of nodeAlpha to child and from parents of child to nodeAlpha.
-		for(Node nodep: paX){
-			Edge pay = g.getEdge(nodep, child);
-			if(pay == null)
-				g.addEdge(new Edge(nodep,child,Endpoint.TAIL,Endpoint.ARROW));
+		for(int nodep = Bitsets.nextSetBit(paX, 0); nodep >= 0; nodep = Bitsets.nextSetBit(paX, nodep + 1)){
+			if(!g.isAdjacentTo(nodep, child) && order.addEdge(nodep, child))
+				inserted++;
 		}
 		
 		// Adding edges from parents of child to nodeAlpha.
-		for(Node nodep : paY){
-			Edge paz = g.getEdge(nodep,nodeAlpha);
-			if(paz == null) 
-				g.addEdge(new Edge(nodep,nodeAlpha,Endpoint.TAIL,Endpoint.ARROW));
+		for(int nodep = Bitsets.nextSetBit(paY, 0); nodep >= 0; nodep = Bitsets.nextSetBit(paY, nodep + 1)){
+			if(!g.isAdjacentTo(nodep, nodeAlpha) && order.addEdge(nodep, nodeAlpha))
+				inserted++;
 		}
 
 		// Reverting the edge nodeAlpha -> child.
-		g.addEdge(new Edge(child,nodeAlpha,Endpoint.TAIL, Endpoint.ARROW));
-		
+		order.addEdge(child, nodeAlpha);
+		return inserted;
 	}
 
 
@@ -273,7 +370,80 @@ public class AlphaOrder {
 	 * Returns the computed ancestral order of nodes.
 	 * @return an ArrayList of nodes representing the ancestral order of the DAGs after applying the alpha order heuristic.
 	 */
+	@Override
 	public ArrayList<Node> getOrder(){	
 		return this.alpha;
 	}
+
+	/**
+	 * Returns the number of edges inserted in the auxiliary DAGs while removing their nodes in the computed order, as an estimate of the
+	 * edges that the transformation of the DAGs to the order will insert.
+	 * @return the expected number of inserted edges.
+	 * @throws IllegalStateException if the order has not been computed yet.
+	 * @see #estimateInsertedEdges(List, List)
+	 */
+	@Override
+	public long getExpectedInsertedEdges() {
+		if (this.expectedInsertedEdges < 0) {
+			throw new IllegalStateException("The order has not been computed. Please call computeAlpha() first.");
+		}
+		return this.expectedInsertedEdges;
+	}
+
+	/**
+	 * Estimates the number of edges that the transformation of a set of DAGs to an order will insert, with the same model as the greedy heuristic:
+	 * the nodes are removed from copies of the DAGs from the last one of the order to the first one, covering the edges to their children,
+	 * and the covering edges are counted. This allows comparing orders computed by any heuristic.
+	 * It costs about as much as removing every node with the greedy heuristic, but without scoring the candidates.
+	 * @param dags the DAGs to transform, all of them with the same nodes.
+	 * @param order the order of the nodes, from the first ancestor to the last descendant.
+	 * @return the expected number of inserted edges.
+	 * @throws IllegalArgumentException if the DAGs do not have the same nodes, or the order is not a permutation of them.
+	 */
+	public static long estimateInsertedEdges(List<Dag> dags, List<Node> order) {
+		checkDags(dags);
+		List<Node> nodes = dags.get(0).getNodes();
+		List<BitsetDag> auxG = BitsetDag.fromDags(dags, nodes);
+		int[] indexes = new int[order.size()];
+		boolean[] seen = new boolean[nodes.size()];
+		for (int i = 0; i < order.size(); i++) {
+			indexes[i] = auxG.get(0).getIndex(order.get(i));
+			if (indexes[i] < 0 || seen[indexes[i]]) {
+				throw new IllegalArgumentException("The order must contain every node of the DAGs exactly once.");
+			}
+			seen[indexes[i]] = true;
+		}
+		if (order.size() != nodes.size()) {
+			throw new IllegalArgumentException("The order must contain every node of the DAGs exactly once.");
+		}
+		long inserted = 0;
+		for (BitsetDag g : auxG) {
+			TopologicalOrder topologicalOrder = new TopologicalOrder(g);
+			for (int i = indexes.length - 1; i >= 0; i--) {
+				inserted += removeNode(topologicalOrder, indexes[i]);
+			}
+		}
+		return inserted;
+	}
+
+	/**
+	 * Sets the number of threads used to score the nodes and remove them from the auxiliary DAGs. The computed order does not depend on it.
+	 * @param parallelism the number of threads, must be at least 1.
+	 * @throws IllegalArgumentException if the parallelism is lower than 1.
+	 */
+	@Override
+	public void setParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be at least 1");
+		}
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Returns the number of threads used to compute the order.
+	 * @return the parallelism of the heuristic.
+	 */
+	public int getParallelism() {
+		return this.parallelism;
+	}
 }
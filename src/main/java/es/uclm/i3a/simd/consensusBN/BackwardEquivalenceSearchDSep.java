@@ -1,12 +1,13 @@
 package es.uclm.i3a.simd.consensusBN;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import edu.cmu.tetrad.graph.Dag;
 import edu.cmu.tetrad.graph.Edge;
@@ -14,7 +15,6 @@ import edu.cmu.tetrad.graph.EdgeListGraph;
 import edu.cmu.tetrad.graph.Edges;
 import edu.cmu.tetrad.graph.Endpoint;
 import edu.cmu.tetrad.graph.Graph;
-import edu.cmu.tetrad.graph.GraphUtils;
 import edu.cmu.tetrad.graph.Node;
 import edu.cmu.tetrad.search.utils.GraphSearchUtils;
 import edu.cmu.tetrad.search.utils.MeekRules;
@@ -44,18 +44,27 @@ public class BackwardEquivalenceSearchDSep {
     private final Graph graph;
 
 	/**
-	 * List of initial DAGs used to check how many edges are deleted.
+	 * Number of transformed DAGs containing each pair of nodes, used to check how many edges are deleted.
+	 * It is indexed by the nodes of the union, so the count of a deleted edge is read in constant time.
+	 * 
+	 * @see EdgeCountMatrix
 	 */
-    private final ArrayList<Dag> transformedDags;
+    private final EdgeCountMatrix edgeCounts;
 
 	/**
-	 * List of initial DAGs used to check the d-separation condition.
-	 * This list is used to verify whether the deletion of an edge maintains the
+	 * Batched d-separation queries over the initial DAGs, used to check the d-separation condition.
+	 * It is used to verify whether the deletion of an edge maintains the
 	 * d-separation condition across all input DAGs.
 	 * 
-	 * @see Utils#dSeparated(Dag, Node, Node, List)
+	 * @see MultiDagDSeparation
 	*/
-    private final ArrayList<Dag> initialDags;
+    private final MultiDagDSeparation dSeparation;
+
+	/**
+	 * Empty bitset DAG over the nodes of the union. Its node index is shared by the bitset copies of the initial and transformed DAGs,
+	 * and it is used to translate nodes and conditioning sets into indexes and bitsets.
+	 */
+    private final BitsetDag nodeIndex;
 
 	/**
 	 * The output DAG after applying the Backward Equivalence Search with D-separation.
@@ -67,11 +76,18 @@ public class BackwardEquivalenceSearchDSep {
     private Dag outputDag;
 
 	/**
-	 * A map to store the local scores for edge deletions.
-	 * This map is used to cache the scores of edge deletions to avoid redundant calculations.
-	 * The key is a string representation of the edge and its conditioning set, and the value is the score.
+	 * A cache to store the local scores for edge deletions.
+	 * This cache is used to store the scores of edge deletions to avoid redundant calculations.
+	 * The key is the edge and its conditioning set, and the value is the score.
+	 * It is shared by the workers that evaluate the candidate edges in parallel. By default it is an unbounded {@link CompactDSeparationCache}.
+	 * @see #setDSeparationCache(DSeparationCache)
+	 */
+    private DSeparationCache localScore = new CompactDSeparationCache();
+
+	/**
+	 * Per-thread instances of the batched d-separation queries, forked from {@link #dSeparation} so that workers do not share scratch buffers.
 	 */
-    private final Map<DSeparationKey, Double> localScore = new HashMap<>();
+    private final ThreadLocal<MultiDagDSeparation> workerDSeparation;
 
 	/**
 	 * Number of edges removed during the backward equivalence search process.
@@ -93,6 +109,32 @@ public class BackwardEquivalenceSearchDSep {
 	 */
 	private int maxSize = Integer.MAX_VALUE;
 
+	/**
+	 * Number of threads used to evaluate the candidate edges of each iteration. Set to 1 by default, which evaluates them sequentially on the calling thread.
+	 */
+	private int parallelism = 1;
+
+	/**
+	 * Pool of threads used to evaluate the candidate edges when the parallelism is greater than 1. It only exists while the search is running.
+	 */
+	private ForkJoinPool pool;
+
+	/**
+	 * Whether the evaluations of the candidate edges are reused between iterations when their inputs do not change. Set to true by default.
+	 */
+	private boolean incremental = true;
+
+	/**
+	 * Evaluations of the candidate edges of the previous iteration, indexed by the key of the directed pair of nodes.
+	 * @see EdgeContext#getKey(int)
+	 */
+	private final Map<Long, EdgeEvaluation> edgeEvaluations = new HashMap<>();
+
+	/**
+	 * Adjacency bitsets of the graph in the previous iteration, used to find the nodes whose adjacencies changed after a deletion.
+	 */
+	private long[][] previousAdjacency;
+
 	/**
 	 * Constructor for BackwardEquivalenceSearchDSep that initializes the properties for the search with a union DAG and lists of initial and transformed DAGs.
 	 * 
@@ -101,14 +143,93 @@ public class BackwardEquivalenceSearchDSep {
 	 * @param transformedDags List of transformed DAGs after applying the alpha order.
 	 */
     public BackwardEquivalenceSearchDSep(Dag union, ArrayList<Dag>initialDags, ArrayList<Dag> transformedDags) {
+        this(union, initialDags, countEdges(union, transformedDags));
+    }
+
+	/**
+	 * Constructor for BackwardEquivalenceSearchDSep with the transformed DAGs given as bitset DAGs, so that they do not have to be rebuilt as Tetrad DAGs.
+	 * The transformed DAGs are only used to count how many of them contain each deleted edge.
+	 * 
+	 * @param union The resulting union DAG from the ConsensusUnion process.
+	 * @param initialDags List of initial DAGs used to check the d-separation condition.
+	 * @param transformedDags List of transformed DAGs after applying the alpha order, indexed by the nodes of the union in the same order.
+	 * @throws IllegalArgumentException if a transformed DAG does not have the nodes of the union in the same order.
+	 */
+    public BackwardEquivalenceSearchDSep(Dag union, ArrayList<Dag> initialDags, List<BitsetDag> transformedDags) {
+        this(union, initialDags, countBitsetEdges(union, transformedDags));
+    }
+
+	/**
+	 * Constructor for BackwardEquivalenceSearchDSep with the number of transformed DAGs containing each pair of nodes, as computed by {@link ConsensusUnion}
+	 * while it builds the union, so that the transformed DAGs themselves are not needed.
+	 * 
+	 * @param union The resulting union DAG from the ConsensusUnion process.
+	 * @param initialDags List of initial DAGs used to check the d-separation condition.
+	 * @param edgeCounts Number of transformed DAGs containing each pair of nodes, indexed by the nodes of the union in the same order.
+	 * @throws IllegalArgumentException if the counts are not indexed by the nodes of the union in the same order.
+	 * @see ConsensusUnion#getEdgeCounts()
+	 */
+    public BackwardEquivalenceSearchDSep(Dag union, ArrayList<Dag> initialDags, EdgeCountMatrix edgeCounts) {
         this.graph = new EdgeListGraph(new LinkedList<>(union.getNodes()));
         for (Edge edge : union.getEdges()) {
             graph.addEdge(edge);
         }
-        this.initialDags = initialDags;
-        this.transformedDags = transformedDags;
+        this.nodeIndex = new BitsetDag(union.getNodes());
+        ArrayList<BitsetDag> initialBitsetDags = new ArrayList<>(initialDags.size());
+        for (Dag dag : initialDags) {
+            initialBitsetDags.add(toBitsetDag(dag));
+        }
+        this.dSeparation = new MultiDagDSeparation(initialBitsetDags);
+        this.workerDSeparation = ThreadLocal.withInitial(this.dSeparation::fork);
+        if (!edgeCounts.getNodes().equals(this.nodeIndex.getNodes())) {
+            throw new IllegalArgumentException("The edge counts must be indexed by the nodes of the union.");
+        }
+        this.edgeCounts = edgeCounts;
     }
 
+	/**
+	 * Counts the edges of a list of DAGs, indexing the nodes by the nodes of the union.
+	 * @param union The union DAG whose nodes define the index.
+	 * @param dags The DAGs to count.
+	 * @return The number of DAGs containing each pair of nodes.
+	 */
+	private static EdgeCountMatrix countEdges(Dag union, List<Dag> dags) {
+		EdgeCountMatrix counts = new EdgeCountMatrix(union.getNodes());
+		for (Dag dag : dags) {
+			counts.add(dag);
+		}
+		return counts;
+	}
+
+	/**
+	 * Counts the edges of a list of bitset DAGs, which must be indexed by the nodes of the union.
+	 * @param union The union DAG whose nodes define the index.
+	 * @param dags The bitset DAGs to count.
+	 * @return The number of DAGs containing each pair of nodes.
+	 * @throws IllegalArgumentException if a DAG does not have the nodes of the union in the same order.
+	 */
+	private static EdgeCountMatrix countBitsetEdges(Dag union, List<BitsetDag> dags) {
+		EdgeCountMatrix counts = new EdgeCountMatrix(union.getNodes());
+		for (BitsetDag dag : dags) {
+			if (!dag.getNodes().equals(counts.getNodes())) {
+				throw new IllegalArgumentException("The transformed DAGs must be indexed by the nodes of the union.");
+			}
+			counts.add(dag);
+		}
+		return counts;
+	}
+
+	/**
+	 * Converts a DAG into a bitset DAG indexed by the nodes of the union.
+	 * @param dag The DAG to convert.
+	 * @return The bitset DAG with the same edges as the given DAG.
+	 */
+	private BitsetDag toBitsetDag(Dag dag) {
+		BitsetDag bitsetDag = this.nodeIndex.emptyCopy();
+		bitsetDag.addEdgesFrom(dag);
+		return bitsetDag;
+	}
+
 	/**
 	 * Applies the Backward Equivalence Search with D-separation to the consensus DAG.
 	 * This method iteratively removes edges from the consensus DAG while ensuring that the d-separation condition is maintained across all input DAGs.
@@ -122,6 +243,12 @@ public class BackwardEquivalenceSearchDSep {
 		// Creating a pdag from the graph
 		rebuildPattern(graph);
 
+		this.edgeEvaluations.clear();
+		this.previousAdjacency = null;
+		if (this.parallelism > 1) {
+			this.pool = new ForkJoinPool(this.parallelism);
+		}
+		try {
 		// While there are edges to delete, search for the best edge to delete
 		do {
 			// Make sure that any undirected edge is transformed into two directed edges
@@ -172,6 +299,12 @@ public class BackwardEquivalenceSearchDSep {
 				score = executeEdgeDeletion(bestCandidate);
 			}
 		} while (bestCandidate != null);
+		} finally {
+			if (this.pool != null) {
+				this.pool.shutdown();
+				this.pool = null;
+			}
+		}
 
 		// Rebuild the pattern to ensure the final graph is a DAG		
 		createOutputDag();
@@ -219,58 +352,168 @@ public class BackwardEquivalenceSearchDSep {
 	 * Calculates the best candidate edge for deletion based on the current score and the edges available.
 	 * This method evaluates each edge and its possible conditioning sets to find the edge that, when deleted,
 	 * results in the highest score improvement while maintaining the d-separation condition.
+	 * The information each evaluation needs from the graph is gathered first on the calling thread, so that the edges can be evaluated
+	 * in parallel without reading the graph. Ties are broken in favour of the first edge and the first subset, as in a sequential scan.
+	 * In incremental mode, the evaluation of an edge from the previous iteration is reused when none of its inputs has changed.
 	 * @param edges List of edges to consider for deletion.
 	 * @param score The current score before any edge deletion.
 	 * @return An EdgeCandidate object representing the best edge to delete, or null if no suitable edge is found.
 	 */
 	private EdgeCandidate calculateBestCandidateEdge(List<Edge> edges, double score){
+		int numNodes = this.nodeIndex.getNumNodes();
+
+		// Snapshot of the graph used by the evaluations, and nodes whose adjacencies changed since the previous iteration
+		long[][] adjacency = new long[numNodes][];
+		for (Node node : graph.getNodes()) {
+			adjacency[this.nodeIndex.getIndex(node)] = toBitset(graph.getAdjacentNodes(node));
+		}
+		long[] changedNodes = new long[Bitsets.words(numNodes)];
+		for (int node = 0; node < numNodes; node++) {
+			if (this.previousAdjacency == null || !Arrays.equals(adjacency[node], this.previousAdjacency[node])) {
+				Bitsets.set(changedNodes, node);
+			}
+		}
+		this.previousAdjacency = adjacency;
+
+		// Reusing the previous evaluations whose inputs did not change
+		List<EdgeContext> contexts = new ArrayList<>(edges.size());
+		EdgeEvaluation[] evaluations = new EdgeEvaluation[edges.size()];
+		List<Integer> pending = new ArrayList<>();
+		for (Edge edge : edges) {
+			EdgeContext context = new EdgeContext(edge);
+			EdgeEvaluation previous = this.incremental ? this.edgeEvaluations.get(context.getKey(numNodes)) : null;
+			if (previous != null && previous.isValidFor(context, changedNodes)) {
+				evaluations[contexts.size()] = previous;
+			} else {
+				pending.add(contexts.size());
+			}
+			contexts.add(context);
+		}
+
+		// Evaluating the remaining edges, sequentially or in parallel
+		if (this.pool == null) {
+			for (int i : pending) {
+				evaluations[i] = evaluateEdge(contexts.get(i), adjacency, this.dSeparation);
+			}
+		} else {
+			Utils.runInPool(this.pool, pending.size(), p -> {
+				int i = pending.get(p);
+				evaluations[i] = evaluateEdge(contexts.get(i), adjacency, this.workerDSeparation.get());
+			}, "evaluating candidate edges");
+		}
+
+		// Keeping the evaluations of the current edges for the next iteration
+		this.edgeEvaluations.clear();
+		if (this.incremental) {
+			for (int i = 0; i < evaluations.length; i++) {
+				this.edgeEvaluations.put(contexts.get(i).getKey(numNodes), evaluations[i]);
+			}
+		}
+
+		// Reducing to the best candidate in edge order
 		double bestScore = score;
 		EdgeCandidate bestCandidate = null;
-		for(Edge edge : edges){
-			// Getting candidate edge to delete			
-			Node candidateTail = Edges.getDirectedEdgeTail(edge);
-			Node candidateHead = Edges.getDirectedEdgeHead(edge);
-
-			List<Node> hNeighbors = getHNeighbors(candidateTail, candidateHead, graph);
-			PowerSet hSubsets= new PowerSet(hNeighbors);//PowerSetFabric.getPowerSet(candidateTail,candidateHead,hNeighbors);
-
-			while(hSubsets.hasMoreElements()) {
-				// Getting a HashSet<Node> of hNeighbors
-				Set<Node> hSubset=hSubsets.nextElement();
-				
-				// Checking size of hSubset
-				if (hSubset.size() > maxSize) {
-					break; // Skip to next edge if the size exceeds the maximum allowed size
-				}
+		for (int i = 0; i < evaluations.length; i++) {
+			EdgeEvaluation evaluation = evaluations[i];
+			if (evaluation.bestSubset == null) {
+				continue;
+			}
+			double evalScore = score + evaluation.deleteEval;
+			if (!(evalScore > bestScore)) {
+				continue;
+			}
+			bestCandidate = new EdgeCandidate(contexts.get(i).tail, contexts.get(i).head, evaluation.bestSubset);
+			bestCandidate.score = evalScore;
+			bestScore = evalScore;
+		}
+		return bestCandidate;
+	}
 
-				// Checking if {naYXH} \ {hSubset} is a clique
-				List<Node> naYXH = Utils.findNaYX(candidateTail, candidateHead, graph);
-				naYXH.removeAll(hSubset);
-				if (!GraphUtils.isClique(naYXH, graph)) {
-					continue;
-				}
+	/**
+	 * Evaluates every subset of H-neighbours of a candidate edge and returns the best deletion of that edge.
+	 * The subsets are ranked by their deletion score, which ranks them as the score of the search after the deletion does.
+	 * This method does not read the graph, so it can be called concurrently for different edges.
+	 * @param context The information of the candidate edge gathered from the graph.
+	 * @param adjacency The adjacency bitsets of the graph, indexed by node.
+	 * @param dSeparation The batched d-separation queries to use, owned by the calling thread.
+	 * @return The evaluation of the edge, with the first subset with the highest positive deletion score, if any.
+	 */
+	private EdgeEvaluation evaluateEdge(EdgeContext context, long[][] adjacency, MultiDagDSeparation dSeparation) {
+		EdgeEvaluation evaluation = new EdgeEvaluation(context);
+		// Scratch bitsets reused by every subset of the edge
+		long[] naYXH = new long[context.naYX.length];
+		long[] conditioningSet = new long[context.naYX.length];
+		int[] hIndexes = new int[context.hNeighbors.size()];
+		for (int i = 0; i < hIndexes.length; i++) {
+			hIndexes[i] = this.nodeIndex.getIndex(context.hNeighbors.get(i));
+		}
+		// Subsets are generated lazily, in increasing size, up to maxSize
+		PowerSet hSubsets = new PowerSet(context.hNeighbors, maxSize);
+		while(hSubsets.hasMoreElements()) {
+			// Getting the positions in hNeighbors of the nodes of the subset
+			long[] hSubset = hSubsets.nextMask();
+
+			// Checking if {naYXH} \ {hSubset} is a clique
+			System.arraycopy(context.naYX, 0, naYXH, 0, naYXH.length);
+			for (int i = Bitsets.nextSetBit(hSubset, 0); i >= 0; i = Bitsets.nextSetBit(hSubset, i + 1)) {
+				Bitsets.clear(naYXH, hIndexes[i]);
+			}
+			if (!isClique(naYXH, adjacency)) {
+				continue;
+			}
 
-				// Calculating the score of the candidate edge deletion
-				double deleteEval = deleteEval(candidateTail, candidateHead, hSubset, graph);
-				
-				// Setting limit for deleteEval
-				if (deleteEval < percentage) deleteEval = 0.0;
+			// Calculating the score of the candidate edge deletion
+			double deleteEval = deleteEval(context, naYXH, conditioningSet, dSeparation);
 
-				// If the score is not better than the best score, continue
-				double evalScore = score + deleteEval;
-				if (!(evalScore > bestScore)) {
-					continue;
-				}
+			// Setting limit for deleteEval
+			if (deleteEval < percentage) deleteEval = 0.0;
 
-				// Updating best candidate edge
-				bestCandidate = new EdgeCandidate(candidateTail, candidateHead, hSubset);
-				bestCandidate.score = evalScore;
+			// If the score is not better than the best score, continue
+			if (!(deleteEval > evaluation.deleteEval)) {
+				continue;
+			}
 
-				// Updating score for the best edge deletion
-				bestScore = evalScore;
+			// Updating best subset of the edge
+			evaluation.bestSubset = hSubsets.currentSubset();
+			evaluation.deleteEval = deleteEval;
+		}
+		return evaluation;
+	}
+
+	/**
+	 * Checks whether a set of nodes is a clique in the graph, that is, whether every pair of nodes of the set is adjacent.
+	 * @param nodes The bitset of nodes to check.
+	 * @param adjacency The adjacency bitsets of the graph, indexed by node.
+	 * @return True if the nodes form a clique, false otherwise.
+	 * @see edu.cmu.tetrad.graph.GraphUtils#isClique(java.util.Collection, Graph)
+	 */
+	private static boolean isClique(long[] nodes, long[][] adjacency) {
+		for (int node = Bitsets.nextSetBit(nodes, 0); node >= 0; node = Bitsets.nextSetBit(nodes, node + 1)) {
+			long[] adjacent = adjacency[node];
+			for (int w = 0; w < nodes.length; w++) {
+				long missing = nodes[w] & ~adjacent[w];
+				if (w == node >>> 6) {
+					missing &= ~(1L << node);
+				}
+				if (missing != 0) {
+					return false;
+				}
 			}
 		}
-		return bestCandidate;
+		return true;
+	}
+
+	/**
+	 * Translates a collection of nodes of the graph into a bitset of their indexes.
+	 * @param nodes The nodes to translate.
+	 * @return The bitset of indexes of the nodes.
+	 */
+	private long[] toBitset(Iterable<Node> nodes) {
+		long[] bits = new long[Bitsets.words(this.nodeIndex.getNumNodes())];
+		for (Node node : nodes) {
+			Bitsets.set(bits, this.nodeIndex.getIndex(node));
+		}
+		return bits;
 	}
 
 	/**
@@ -302,11 +545,7 @@ public class BackwardEquivalenceSearchDSep {
 		rebuildPattern(graph);
 		
 		// Updating the number of inserted edges
-		int deletedEdges = 0;
-		for(int g = 0; g <this.transformedDags.size(); g++){
-			if(this.transformedDags.get(g).getEdge(bestTail, bestHead) != null || this.transformedDags.get(g).getEdge(bestHead, bestTail) != null) deletedEdges++;
-		}
-		this.numberOfRemovedEdges+= deletedEdges;
+		this.numberOfRemovedEdges += this.edgeCounts.getCount(this.nodeIndex.getIndex(bestTail), this.nodeIndex.getIndex(bestHead));
 
 		// Updating the initial score of the iteration
 		score = bestScore;
@@ -411,26 +650,25 @@ public class BackwardEquivalenceSearchDSep {
 	/**
 	 * Evaluates the impact of deleting an edge from the graph based on d-separation.
 	 *
-	 * This method computes a score for deleting the edge from {@code x} to {@code y},
-	 * taking into account a conditioning set of nodes {@code conditioningSet}. It uses
-	 * structural information from the graph to assess whether {@code y} is d-separated
-	 * from {@code x} given the constructed conditioning set.
+	 * This method computes a score for deleting the edge from the tail to the head of the candidate edge,
+	 * taking into account the nodes of naYX that are not in the chosen subset of H-neighbours. It uses
+	 * structural information from the graph to assess whether the head is d-separated
+	 * from the tail given the constructed conditioning set.
 	 *
-	 * @param x The source node of the edge to be deleted.
-	 * @param y The target node of the edge to be deleted.
-	 * @param conditioningSet The set of nodes used as conditioning variables (Z) for d-separation.
-	 * @param graph The graph in which the change is being evaluated.
+	 * @param context The information of the candidate edge gathered from the graph.
+	 * @param naYXH The bitset of nodes of naYX that are not in the chosen subset of H-neighbours.
+	 * @param finalConditioningSet Scratch bitset where the conditioning set is built.
+	 * @param dSeparation The batched d-separation queries to use, owned by the calling thread.
 	 * @return The score resulting from deleting the edge, based on the given context.
 	 */
-    private double deleteEval(Node x, Node y, Set<Node> conditioningSet, Graph graph){
-		// Setup the conditioning set for d-separation by removing the conditioning nodes from the naYX set, adding the parents of y and removing x.
-		Set<Node> finalConditioningSet = new HashSet<>(Utils.findNaYX(x, y, graph));
-		finalConditioningSet.removeAll(conditioningSet);
-		finalConditioningSet.addAll(graph.getParents(y));
-		finalConditioningSet.remove(x);
+    private double deleteEval(EdgeContext context, long[] naYXH, long[] finalConditioningSet, MultiDagDSeparation dSeparation){
+		// Setup the conditioning set for d-separation with the naYX nodes not in the subset, adding the parents of y and removing x.
+		System.arraycopy(naYXH, 0, finalConditioningSet, 0, naYXH.length);
+		Bitsets.or(finalConditioningSet, context.headParents);
+		Bitsets.clear(finalConditioningSet, context.tailIndex);
 		
 		// Check if y is d-separated from x given the final conditioning set in each graph. 
-		return scoreGraphChangeDelete(y, x, finalConditioningSet);		
+		return scoreGraphChangeDelete(context.headIndex, context.tailIndex, finalConditioningSet, dSeparation);
 	}
 
 	/**
@@ -440,35 +678,30 @@ public class BackwardEquivalenceSearchDSep {
 	 * 
 	 * This method uses a local score map to cache results for efficiency, avoiding redundant calculations
 	 * for the same edge and conditioning set.
-	 * @param x The tail node of the edge to be deleted.
-	 * @param y The head node of the edge to be deleted.
-	 * @param conditioningSet The set of nodes used as conditioning variables (Z) for d-separation.
-	 * @return A score of 1.0 if the edge deletion maintains d-separation, otherwise 0.0.
+	 * @param x The index of the head node of the edge to be deleted.
+	 * @param y The index of the tail node of the edge to be deleted.
+	 * @param conditioningSet The bitset of nodes used as conditioning variables (Z) for d-separation.
+	 * @param dSeparation The batched d-separation queries to use, owned by the calling thread.
+	 * @return The fraction of initial DAGs in which the nodes are d-separated. Values below the percentage threshold are a lower bound of that fraction.
 	 * 
-	 * @see Utils#dSeparated(Dag, Node, Node, List)
-	 * @see DSeparationKey
+	 * @see MultiDagDSeparation#separatedFraction(int, int, long[], double)
+	 * @see DSeparationCache
 	 * 
 	 * This method is crucial for ensuring that the edge deletion does not violate the d-separation condition,
 	 * which is essential for maintaining the integrity of the Bayesian network structure.
 	 */
-	private double scoreGraphChangeDelete(Node x, Node y, Set<Node> conditioningSet) {
+	private double scoreGraphChangeDelete(int x, int y, long[] conditioningSet, MultiDagDSeparation dSeparation) {
 		// Check if the edge deletion has already been evaluated and cached
-		DSeparationKey key = new DSeparationKey(y, x, conditioningSet);
-		Double cached = localScore.get(key);
-		if (cached != null) {
+		double cached = localScore.get(x, y, conditioningSet);
+		if (!Double.isNaN(cached)) {
 			return cached;
 		}
 
 		// Evaluating the d-separation condition across all initial DAGs
-		double eval = 0.0;
-		for (Dag g : this.initialDags) {
-			if (Utils.dSeparated(g, x, y, new ArrayList<>(conditioningSet))) {
-				eval++;
-			}
-		}
-		eval = eval / (double) this.initialDags.size();
+		// Values below the percentage threshold are discarded by the search, so the evaluation stops as soon as the threshold cannot be reached.
+		double eval = dSeparation.separatedFraction(x, y, conditioningSet, this.percentage);
 
-		localScore.put(key, eval);
+		localScore.put(x, y, conditioningSet, eval);
 		return eval;
 	}
 	/**
@@ -491,6 +724,8 @@ public class BackwardEquivalenceSearchDSep {
 			throw new IllegalArgumentException("Percentage must be between 0.0 and 1.0");
 		}
 		this.percentage = percentage;
+		// Cached scores below the previous threshold may not be exact
+		this.localScore.clear();
 	}
 
 	/**
@@ -524,6 +759,167 @@ public class BackwardEquivalenceSearchDSep {
 		return this.maxSize;
 	}	
 
+	/**
+	 * Sets the number of threads used to evaluate the candidate edges of each iteration of the search.
+	 * With a parallelism of 1, the candidate edges are evaluated sequentially on the calling thread. With a greater value, a pool with that number
+	 * of threads is used while the search is running. The result of the search does not depend on the parallelism.
+	 * @param parallelism The number of threads, must be at least 1.
+	 * @throws IllegalArgumentException if the parallelism is lower than 1.
+	 */
+	public void setParallelism(int parallelism) {
+		if(parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be at least 1");
+		}
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Returns the number of threads used to evaluate the candidate edges of each iteration of the search.
+	 * @return The parallelism of the search.
+	 */
+	public int getParallelism() {
+		return this.parallelism;
+	}
+
+	/**
+	 * Sets the cache used to store the scores of the d-separation queries, for instance a {@link LruDSeparationCache} to bound its memory.
+	 * The result of the search does not depend on the cache, only its running time. The counters of the cache can be read after the search.
+	 * Since the scores depend on the input DAGs and the percentage threshold, a cache must not be shared by searches with different inputs or thresholds.
+	 * @param cache The cache of d-separation scores.
+	 * @throws IllegalArgumentException if the cache is null.
+	 */
+	public void setDSeparationCache(DSeparationCache cache) {
+		if (cache == null) {
+			throw new IllegalArgumentException("The d-separation cache cannot be null");
+		}
+		this.localScore = cache;
+	}
+
+	/**
+	 * Returns the cache used to store the scores of the d-separation queries.
+	 * @return The cache of d-separation scores.
+	 */
+	public DSeparationCache getDSeparationCache() {
+		return this.localScore;
+	}
+
+	/**
+	 * Sets whether the evaluations of the candidate edges are reused between iterations of the search.
+	 * After a deletion, only the edges whose H-neighbours, parents of the head or adjacencies between the nodes of naYX changed,
+	 * either by the deletion itself or by the re-orientation of the pattern, are evaluated again. The result of the search does not depend on this setting.
+	 * @param incremental True to reuse the evaluations, false to evaluate every edge in every iteration.
+	 */
+	public void setIncremental(boolean incremental) {
+		this.incremental = incremental;
+	}
+
+	/**
+	 * Returns whether the evaluations of the candidate edges are reused between iterations of the search.
+	 * @return True if the search is incremental, false otherwise.
+	 */
+	public boolean isIncremental() {
+		return this.incremental;
+	}
+
+	/**
+	 * Information of a candidate edge gathered from the graph before evaluating it.
+	 * Evaluations only read this information and a snapshot of the adjacencies, never the graph itself, so they can run concurrently.
+	 */
+	private class EdgeContext {
+		/**
+		 * The tail node of the candidate edge.
+		 */
+		public final Node tail;
+
+		/**
+		 * The head node of the candidate edge.
+		 */
+		public final Node head;
+
+		/**
+		 * The index of the tail node.
+		 */
+		public final int tailIndex;
+
+		/**
+		 * The index of the head node.
+		 */
+		public final int headIndex;
+
+		/**
+		 * The H-neighbours of the edge, whose subsets are evaluated.
+		 */
+		public final List<Node> hNeighbors;
+
+		/**
+		 * The bitset of nodes of naYX.
+		 * @see Utils#findNaYX(Node, Node, Graph)
+		 */
+		public final long[] naYX;
+
+		/**
+		 * The bitset of parents of the head node.
+		 */
+		public final long[] headParents;
+
+		public EdgeContext(Edge edge) {
+			this.tail = Edges.getDirectedEdgeTail(edge);
+			this.head = Edges.getDirectedEdgeHead(edge);
+			this.tailIndex = nodeIndex.getIndex(this.tail);
+			this.headIndex = nodeIndex.getIndex(this.head);
+			this.hNeighbors = getHNeighbors(this.tail, this.head, graph);
+			this.naYX = toBitset(Utils.findNaYX(this.tail, this.head, graph));
+			this.headParents = toBitset(graph.getParents(this.head));
+		}
+
+		/**
+		 * Returns a key identifying the directed pair of nodes of the candidate edge.
+		 * @param numNodes The number of nodes of the graph.
+		 * @return The key of the candidate edge.
+		 */
+		public long getKey(int numNodes) {
+			return (long) this.tailIndex * numNodes + this.headIndex;
+		}
+	}
+
+	/**
+	 * Result of evaluating every subset of H-neighbours of a candidate edge, together with the information it was computed from.
+	 * The evaluation only depends on the H-neighbours (and their order), the parents of the head, and the adjacencies between the nodes of naYX,
+	 * so it stays valid while none of them changes.
+	 */
+	private class EdgeEvaluation {
+		/**
+		 * The information of the candidate edge the evaluation was computed from.
+		 */
+		public final EdgeContext context;
+
+		/**
+		 * The first subset of H-neighbours with the highest deletion score, or null if no subset has a positive score.
+		 */
+		public Set<Node> bestSubset;
+
+		/**
+		 * The deletion score of the best subset.
+		 */
+		public double deleteEval;
+
+		public EdgeEvaluation(EdgeContext context) {
+			this.context = context;
+		}
+
+		/**
+		 * Checks whether this evaluation is still valid for the same edge in a later iteration.
+		 * @param current The information of the edge gathered in the current iteration.
+		 * @param changedNodes The bitset of nodes whose adjacencies changed since the previous iteration.
+		 * @return True if the evaluation can be reused, false otherwise.
+		 */
+		public boolean isValidFor(EdgeContext current, long[] changedNodes) {
+			return this.context.hNeighbors.equals(current.hNeighbors)
+					&& Arrays.equals(this.context.headParents, current.headParents)
+					&& !Bitsets.intersects(current.naYX, changedNodes);
+		}
+	}
+
 	/**
 	 * Class representing a candidate edge for deletion in the Backward Equivalence Search.
 	 * This class encapsulates the tail and head nodes of the edge, the conditioning set used for d-separation,
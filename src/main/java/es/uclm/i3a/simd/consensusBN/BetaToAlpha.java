@@ -38,11 +38,6 @@ public class BetaToAlpha {
 	 */
 	private final HashMap<Node,Integer> alphaHash= new HashMap<>();
 	
-	/**
-	 * The auxiliary graph used during the transformation process.
-	 */
-	private Dag G_aux = null;
-
 	/**
 	 * The number of edges inserted during the transformation process.
 	 */
@@ -147,42 +142,65 @@ public class BetaToAlpha {
 	 * It uses a greedy approach to select the next node based on its position in the alpha order.
 	 * The beta order is constructed such that it is as close as possible to the alpha order while ensuring that the resulting graph is still a DAG.
 	 * 
-	 * This method modifies the G_aux graph to reflect the current state of the transformation.
-	 * It also initializes the beta list with the first sink node and iteratively adds nodes to the beta order based on their relationships in the graph.
+	 * The sink nodes are removed in first-in first-out order, starting with the sinks of G in the order of its nodes, and each parent becomes a sink
+	 * when its last child is removed, following the order of the parents of the removed node in G. Each sink is inserted in beta before the first node
+	 * that follows it in the alpha order or is one of its children. The nodes are indexed by their position in G and beta is kept in an
+	 * {@link IndexedTreap} keyed by the alpha position, so each insertion point is found in logarithmic time and beta is built in O((n+e) log n) time.
 	 */
 	private void buildBetaOrder() {
-		this.G_aux = new Dag(this.dag);
-		this.beta = new ArrayList<>();
-		List<Node> parents;
-
-		// Compute the sink nodes and add the first one to beta.
-		ArrayList<Node> sinkNodes = getSinkNodes(this.G_aux);
-		this.beta.add(sinkNodes.get(0)); 
-		parents = G_aux.getParents(sinkNodes.get(0));
-		this.G_aux.removeNode(sinkNodes.get(0));
-		sinkNodes.remove(0); 
+		List<Node> nodes = this.dag.getNodes();
+		int numNodes = nodes.size();
+		HashMap<Node, Integer> indexes = new HashMap<>();
+		for (int i = 0; i < numNodes; i++) {
+			indexes.put(nodes.get(i), i);
+		}
+		int[] ranks = new int[numNodes];
+		int[] pendingChildren = new int[numNodes];
+		int[][] children = new int[numNodes][];
+		for (int i = 0; i < numNodes; i++) {
+			Node node = nodes.get(i);
+			ranks[i] = this.alphaHash.get(node);
+			List<Node> chld = this.dag.getChildren(node);
+			pendingChildren[i] = chld.size();
+			children[i] = new int[chld.size()];
+			for (int c = 0; c < chld.size(); c++) {
+				children[i][c] = indexes.get(chld.get(c));
+			}
+		}
 
-		// Compute the new sink nodes
-		updateSinkNodes(sinkNodes, parents);
+		// Queue of sink nodes, initialized with the sinks of G
+		int[] sinkNodes = new int[numNodes];
+		int head = 0;
+		int tail = 0;
+		for (int i = 0; i < numNodes; i++) {
+			if (pendingChildren[i] == 0) {
+				sinkNodes[tail++] = i;
+			}
+		}
 
 		// Construct beta order as close as possible to alpha.
-		while (this.G_aux.getNumNodes()>0){
-			// Select fist sink node
-			Node sink = sinkNodes.get(0);
-			parents = G_aux.getParents(sink);
-			this.G_aux.removeNode(sink);
-			sinkNodes.remove(0);
-			// Compute the new sink nodes
-			updateSinkNodes(sinkNodes, parents);
+		IndexedTreap betaSequence = new IndexedTreap(ranks);
+		while (head < tail) {
+			int sink = sinkNodes[head++];
+			// Compute the new sink nodes, in the order of the parents in G
+			for (Node parent : this.dag.getParents(nodes.get(sink))) {
+				int p = indexes.get(parent);
+				if (--pendingChildren[p] == 0) {
+					sinkNodes[tail++] = p;
+				}
+			}
 
-			// Compute the index to insert the sink node in beta.
-			int insertIndex = 0;
-			for (; insertIndex < beta.size(); insertIndex++) {
-				Node current = beta.get(insertIndex);
-				if (alphaHash.get(current) > alphaHash.get(sink)) break;
-				if (dag.getParents(current).contains(sink)) break;
+			// Compute the index to insert the sink node in beta: its children are already in beta
+			int insertIndex = betaSequence.firstGreater(ranks[sink]);
+			for (int child : children[sink]) {
+				insertIndex = Math.min(insertIndex, betaSequence.positionOf(child));
 			}
-			beta.add(insertIndex, sink);
+			betaSequence.insert(insertIndex, sink);
+		}
+
+		this.beta = new ArrayList<>(numNodes);
+		for (int index : betaSequence.toArray()) {
+			this.beta.add(nodes.get(index));
 		}
 	}
 /* FUTURE IDEA: SELECT BEST SINK NODE FROM ALPHA ORDER.
@@ -192,81 +210,89 @@ public class BetaToAlpha {
 			.orElse(sinkNodes.get(0));
 	}
 */
-	/**
-	 * Updates the sink nodes list based on the current list of candidates.
-	 * This method checks each candidate node to see if it has any children in the auxiliary graph G_aux.
-	 * If a candidate node has no children, it is added to the sink nodes list.
-	 * This is used to maintain the integrity of the beta order during the transformation process.
-	 * 
-	 * @param sinkNodes the list of current sink nodes to be updated.
-	 * @param candidates the list of candidate nodes to check for children.
-	 */
-	private void updateSinkNodes(ArrayList<Node> sinkNodes, List<Node> candidates) {
-		// Compute the new sink nodes
-		for(Node node: candidates){
-			List<Node> chld = G_aux.getChildren(node);
-			if (chld.isEmpty())
-				sinkNodes.add(node);
-		}
-	}
-	
 	/**
 	 * Transforms the graph G into an I-map minimal with respect to the alpha order.
 	 * This method rearranges the edges in the graph based on the beta order derived from the alpha order.
 	 * It ensures that the resulting graph respects the alpha order by checking the relationships between nodes and adjusting edges accordingly.
 	 * The transformation modifies the graph in place and updates the beta list to reflect the new order of nodes.
+	 *
+	 * The nodes of beta are appended one by one to a sequence of node indexes, and each one is moved backwards while the previous node follows it
+	 * in the alpha order, covering and reversing the edge between both nodes when there is one. The edges are kept in a {@link BitsetDag} and
+	 * the covered edge reversals are applied to its parent bitsets, so the Tetrad DAG is only rewritten once at the end.
 	 */
 	private void transformWithBeta() {
-		ArrayList<Node> orderedNodes = new ArrayList<>();
-		// Setting the first node in the orderedNodes list.
-		orderedNodes.add(this.beta.remove(0));
-		
-		while(!this.beta.isEmpty()){ 
-			// Setting the next node in the orderedNodes list.
-			orderedNodes.add(this.beta.get(0));
-			this.beta.remove(0);
-			int i = orderedNodes.size();
-			boolean changed = true;
-			
-			while (changed){
-				if(i==1) break;
-				changed = false;
-				// Getting the last two nodes in the ordered list
-				Node nodeY = orderedNodes.get(i-1);
-				Node nodeZ = orderedNodes.get(i-2);
+		List<Node> nodes = this.dag.getNodes();
+		int numNodes = nodes.size();
+		BitsetDag g = BitsetDag.fromDag(this.dag);
+		int[] ranks = new int[numNodes];
+		for (int i = 0; i < numNodes; i++) {
+			ranks[i] = this.alphaHash.get(nodes.get(i));
+		}
+		long[] paZ = new long[Bitsets.words(numNodes)];
+		long[] paY = new long[paZ.length];
 
+		int[] orderedNodes = new int[numNodes];
+		int size = 0;
+		for (Node node : this.beta) {
+			// Setting the next node at the end of the ordered nodes, and moving it backwards
+			int nodeY = g.getIndex(node);
+			int i = size++;
+			while (i > 0 && ranks[orderedNodes[i - 1]] > ranks[nodeY]) {
+				int nodeZ = orderedNodes[i - 1];
 				// Check if there is an edge from nodeZ to nodeY, if so, cover it.
-				if ((nodeZ != null) && (this.alphaHash.get(nodeZ) > this.alphaHash.get(nodeY))){
-					if(this.dag.getEdge(nodeZ, nodeY) != null){
-						List<Node> paZ = this.dag.getParents(nodeZ);
-						List<Node> paY = this.dag.getParents(nodeY);
-						paY.remove(nodeZ);
-						this.dag.removeEdge(nodeZ, nodeY);
-						this.dag.addEdge(new Edge(nodeY,nodeZ,Endpoint.TAIL, Endpoint.ARROW));
-						for(Node nodep: paZ){
-							Edge pay = this.dag.getEdge(nodep, nodeY);
-							if(pay == null){
-								this.dag.addEdge(new Edge(nodep,nodeY,Endpoint.TAIL,Endpoint.ARROW));
-								this.numberOfInsertedEdges++;
-							}
-						}
-						for(Node nodep : paY){
-							Edge paz = this.dag.getEdge(nodep,nodeZ);
-							if(paz == null){
-								this.dag.addEdge(new Edge(nodep,nodeZ,Endpoint.TAIL,Endpoint.ARROW));
-								this.numberOfInsertedEdges++;
-							}
-						}
-					}
-					changed = true;
-					orderedNodes.remove(nodeY);
-					orderedNodes.add(i-2,nodeY);
-					i--;	
+				if (g.isParentOf(nodeZ, nodeY)) {
+					coverEdge(g, nodeZ, nodeY, paZ, paY);
 				}
+				orderedNodes[i] = nodeZ;
+				i--;
+			}
+			orderedNodes[i] = nodeY;
+		}
+		this.beta = new ArrayList<>(numNodes);
+		for (int index : orderedNodes) {
+			this.beta.add(nodes.get(index));
+		}
+
+		// Writing the edges back to the Tetrad DAG. Each added edge is checked for cycles with a search from its head, so the edges are added
+		// by increasing alpha position of their head, when the head has no children yet and the check ends immediately.
+		this.dag.removeEdges(new ArrayList<>(this.dag.getEdges()));
+		for (int child : orderedNodes) {
+			long[] pa = g.getParents(child);
+			for (int parent = Bitsets.nextSetBit(pa, 0); parent >= 0; parent = Bitsets.nextSetBit(pa, parent + 1)) {
+				this.dag.addEdge(new Edge(nodes.get(parent), nodes.get(child), Endpoint.TAIL, Endpoint.ARROW));
+			}
+		}
+	}
+
+	/**
+	 * Covers and reverses the edge nodeZ -&gt; nodeY: the parents of nodeZ are added as parents of nodeY and the other parents of nodeY are added
+	 * as parents of nodeZ, when they are not already adjacent, and the edge is reversed. Every added edge is counted as an inserted edge.
+	 * @param g the DAG where the edge is covered.
+	 * @param nodeZ the index of the parent node.
+	 * @param nodeY the index of the child node.
+	 * @param paZ scratch bitset where the parents of nodeZ are copied.
+	 * @param paY scratch bitset where the parents of nodeY are copied.
+	 */
+	private void coverEdge(BitsetDag g, int nodeZ, int nodeY, long[] paZ, long[] paY) {
+		System.arraycopy(g.getParents(nodeZ), 0, paZ, 0, paZ.length);
+		System.arraycopy(g.getParents(nodeY), 0, paY, 0, paY.length);
+		Bitsets.clear(paY, nodeZ);
+		g.removeEdge(nodeZ, nodeY);
+		g.addEdge(nodeY, nodeZ);
+		for (int p = Bitsets.nextSetBit(paZ, 0); p >= 0; p = Bitsets.nextSetBit(paZ, p + 1)) {
+			if (!g.isAdjacentTo(p, nodeY)) {
+				g.addEdge(p, nodeY);
+				this.numberOfInsertedEdges++;
+			}
+		}
+		for (int p = Bitsets.nextSetBit(paY, 0); p >= 0; p = Bitsets.nextSetBit(paY, p + 1)) {
+			if (!g.isAdjacentTo(p, nodeZ)) {
+				g.addEdge(p, nodeZ);
+				this.numberOfInsertedEdges++;
 			}
 		}
-		this.beta = orderedNodes;
 	}
+
 	/**
 	 * Returns the number of edges that were inserted during the transformation process.
 	 * This method is useful for understanding how many modifications were made to the original graph to achieve the desired alpha order.
@@ -277,27 +303,6 @@ public class BetaToAlpha {
 		return this.numberOfInsertedEdges;
 	}
 	
-	/**
-	 * Retrieves the sink nodes from the given directed acyclic graph (DAG).
-	 * A sink node is defined as a node that does not have any children in the graph.
-	 * This method iterates through all nodes in the graph and checks their children to determine if they are sink nodes.
-	 * 
-	 * @param dagGraph the directed acyclic graph (DAG) from which to retrieve sink nodes.
-	 * @return an ArrayList of sink nodes that do not have any children in the graph.
-	 */
-	private ArrayList<Node> getSinkNodes(Dag dagGraph){
-		// Get nodes from DAG
-		ArrayList<Node> sinkNodes = new ArrayList<>();
-		List<Node> nodes = dagGraph.getNodes();
-		// Check which nodes don't have children and add them to sinkNodes
-		for (Node node : nodes){
-			if(dagGraph.getChildren(node).isEmpty()){
-				sinkNodes.add(node);
-			}
-		}
-		return sinkNodes;		
-	}
-
 	/**
 	 * Returns the alpha hash map that contains the index of each node in the alpha order.
 	 * This map is used to quickly access the position of nodes in the alpha order during the transformation process.
@@ -0,0 +1,405 @@
+package es.uclm.i3a.simd.consensusBN;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.cmu.tetrad.graph.Dag;
+import edu.cmu.tetrad.graph.Edge;
+import edu.cmu.tetrad.graph.Endpoint;
+import edu.cmu.tetrad.graph.Node;
+
+/**
+ * Compact, int-indexed representation of a Directed Acyclic Graph (DAG).
+ * Each node is identified by its index in a fixed list of nodes, and the parents and children of every node are stored
+ * as {@code long[]} bitsets. Parent, child and adjacency queries are therefore constant-time bit operations that do not
+ * allocate, unlike the list-based queries of Tetrad's {@link Dag}.
+ *
+ * Several BitsetDags can share the same list of nodes (and node index), so that the same index identifies the same node
+ * in all of them. This is the case for the DAGs created with {@link #fromDags(List, List)} and for copies.
+ * Conversion from and to Tetrad graphs is only intended at the boundaries of the fusion pipeline.
+ *
+ * This class does not check for cycles when edges are added; callers are responsible for keeping the graph acyclic.
+ *
+ * @see Bitsets
+ */
+public class BitsetDag {
+
+	/**
+	 * The list of nodes of the DAG. The position of each node in this list is its index.
+	 */
+	private final List<Node> nodes;
+
+	/**
+	 * Map from each node to its index in the list of nodes. Shared between DAGs built over the same list of nodes.
+	 */
+	private final Map<Node, Integer> indexes;
+
+	/**
+	 * Bitset of parents of each node, indexed by node.
+	 */
+	private final long[][] parents;
+
+	/**
+	 * Bitset of children of each node, indexed by node.
+	 */
+	private final long[][] children;
+
+	/**
+	 * Number of edges currently present in the DAG.
+	 */
+	private int numEdges = 0;
+
+	/**
+	 * Constructor for an empty BitsetDag (without edges) over the given list of nodes.
+	 * @param nodes the list of nodes of the DAG. The position of each node in the list is its index.
+	 * @throws IllegalArgumentException if the list of nodes contains duplicates.
+	 */
+	public BitsetDag(List<Node> nodes) {
+		this(Collections.unmodifiableList(new ArrayList<>(nodes)), buildIndexes(nodes));
+	}
+
+	/**
+	 * Copy constructor. The bitsets are copied, while the list of nodes and the node index are shared with the original DAG.
+	 * @param other the BitsetDag to copy.
+	 */
+	public BitsetDag(BitsetDag other) {
+		this.nodes = other.nodes;
+		this.indexes = other.indexes;
+		this.parents = new long[other.parents.length][];
+		this.children = new long[other.children.length][];
+		for (int i = 0; i < other.parents.length; i++) {
+			this.parents[i] = other.parents[i].clone();
+			this.children[i] = other.children[i].clone();
+		}
+		this.numEdges = other.numEdges;
+	}
+
+	/**
+	 * Private constructor for an empty BitsetDag sharing an already built node index.
+	 * @param nodes the unmodifiable list of nodes.
+	 * @param indexes the map from each node to its index.
+	 */
+	private BitsetDag(List<Node> nodes, Map<Node, Integer> indexes) {
+		this.nodes = nodes;
+		this.indexes = indexes;
+		int words = Bitsets.words(nodes.size());
+		this.parents = new long[nodes.size()][words];
+		this.children = new long[nodes.size()][words];
+	}
+
+	/**
+	 * Builds the map from each node to its position in the given list.
+	 * @param nodes the list of nodes.
+	 * @return the map from each node to its index.
+	 * @throws IllegalArgumentException if the list of nodes contains duplicates.
+	 */
+	private static Map<Node, Integer> buildIndexes(List<Node> nodes) {
+		Map<Node, Integer> indexes = new HashMap<>();
+		for (int i = 0; i < nodes.size(); i++) {
+			if (indexes.put(nodes.get(i), i) != null) {
+				throw new IllegalArgumentException("Duplicated node " + nodes.get(i) + " in the list of nodes.");
+			}
+		}
+		return Collections.unmodifiableMap(indexes);
+	}
+
+	/**
+	 * Creates a BitsetDag from a Tetrad DAG, using the order of the nodes of the DAG as index.
+	 * @param dag the Tetrad DAG to convert.
+	 * @return the BitsetDag with the same nodes and edges as the input DAG.
+	 */
+	public static BitsetDag fromDag(Dag dag) {
+		return fromDag(dag, dag.getNodes());
+	}
+
+	/**
+	 * Creates a BitsetDag from a Tetrad DAG, indexing the nodes by their position in the given list.
+	 * @param dag the Tetrad DAG to convert.
+	 * @param nodes the list of nodes defining the index. It must contain every node of the DAG.
+	 * @return the BitsetDag with the same edges as the input DAG.
+	 * @throws IllegalArgumentException if the DAG contains a node that is not in the list of nodes.
+	 */
+	public static BitsetDag fromDag(Dag dag, List<Node> nodes) {
+		BitsetDag result = new BitsetDag(nodes);
+		result.addEdgesFrom(dag);
+		return result;
+	}
+
+	/**
+	 * Creates a BitsetDag for each Tetrad DAG in the list. All the resulting DAGs share the same node index, built from the given list of nodes.
+	 * @param dags the Tetrad DAGs to convert.
+	 * @param nodes the list of nodes defining the index. It must contain every node of every DAG.
+	 * @return the list of BitsetDags, in the same order as the input DAGs.
+	 * @throws IllegalArgumentException if a DAG contains a node that is not in the list of nodes.
+	 */
+	public static ArrayList<BitsetDag> fromDags(List<Dag> dags, List<Node> nodes) {
+		BitsetDag template = new BitsetDag(nodes);
+		ArrayList<BitsetDag> result = new ArrayList<>(dags.size());
+		for (Dag dag : dags) {
+			BitsetDag converted = template.emptyCopy();
+			converted.addEdgesFrom(dag);
+			result.add(converted);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns a new BitsetDag without edges that shares the list of nodes and the node index of this DAG.
+	 * @return an empty BitsetDag over the same nodes.
+	 */
+	public BitsetDag emptyCopy() {
+		return new BitsetDag(this.nodes, this.indexes);
+	}
+
+	/**
+	 * Adds the directed edges of a Tetrad DAG to this DAG, using the node index of this DAG. No cycle check is performed.
+	 * @param dag the Tetrad DAG whose edges are added.
+	 * @throws IllegalArgumentException if the DAG contains a node that is not in the list of nodes.
+	 */
+	public void addEdgesFrom(Dag dag) {
+		for (Edge edge : dag.getEdges()) {
+			if (!edge.isDirected()) {
+				continue;
+			}
+			Node tail = edge.getEndpoint1() == Endpoint.ARROW ? edge.getNode2() : edge.getNode1();
+			Node head = edge.getEndpoint1() == Endpoint.ARROW ? edge.getNode1() : edge.getNode2();
+			addEdge(indexOfExisting(tail), indexOfExisting(head));
+		}
+	}
+
+	/**
+	 * Returns the index of a node that must belong to this DAG.
+	 * @param node the node to look up.
+	 * @return the index of the node.
+	 * @throws IllegalArgumentException if the node is not in the list of nodes.
+	 */
+	private int indexOfExisting(Node node) {
+		Integer index = this.indexes.get(node);
+		if (index == null) {
+			throw new IllegalArgumentException("Node " + node + " is not in the list of nodes.");
+		}
+		return index;
+	}
+
+	/**
+	 * Converts this DAG into a Tetrad DAG with the same list of nodes (in index order) and the same edges.
+	 * @return a new Tetrad DAG equivalent to this DAG.
+	 */
+	public Dag toDag() {
+		Dag dag = new Dag(this.nodes);
+		for (int child = 0; child < this.nodes.size(); child++) {
+			Node head = this.nodes.get(child);
+			long[] pa = this.parents[child];
+			for (int parent = Bitsets.nextSetBit(pa, 0); parent >= 0; parent = Bitsets.nextSetBit(pa, parent + 1)) {
+				dag.addEdge(new Edge(this.nodes.get(parent), head, Endpoint.TAIL, Endpoint.ARROW));
+			}
+		}
+		return dag;
+	}
+
+	/**
+	 * Returns the number of nodes of the DAG.
+	 * @return the number of nodes.
+	 */
+	public int getNumNodes() {
+		return this.nodes.size();
+	}
+
+	/**
+	 * Returns the number of edges of the DAG.
+	 * @return the number of edges.
+	 */
+	public int getNumEdges() {
+		return this.numEdges;
+	}
+
+	/**
+	 * Returns the unmodifiable list of nodes of the DAG, in index order.
+	 * @return the list of nodes.
+	 */
+	public List<Node> getNodes() {
+		return this.nodes;
+	}
+
+	/**
+	 * Returns the node with the given index.
+	 * @param index the index of the node.
+	 * @return the node with that index.
+	 */
+	public Node getNode(int index) {
+		return this.nodes.get(index);
+	}
+
+	/**
+	 * Returns the index of a node, or -1 if the node does not belong to this DAG.
+	 * @param node the node to look up.
+	 * @return the index of the node, or -1 if it is not in the DAG.
+	 */
+	public int getIndex(Node node) {
+		Integer index = this.indexes.get(node);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * Returns the bitset of parents of a node. The returned array is the internal storage of the DAG and must not be modified.
+	 * @param node the index of the node.
+	 * @return the bitset of parents of the node.
+	 */
+	public long[] getParents(int node) {
+		return this.parents[node];
+	}
+
+	/**
+	 * Returns the bitset of children of a node. The returned array is the internal storage of the DAG and must not be modified.
+	 * @param node the index of the node.
+	 * @return the bitset of children of the node.
+	 */
+	public long[] getChildren(int node) {
+		return this.children[node];
+	}
+
+	/**
+	 * Returns the number of parents of a node.
+	 * @param node the index of the node.
+	 * @return the number of parents of the node.
+	 */
+	public int getNumParents(int node) {
+		return Bitsets.cardinality(this.parents[node]);
+	}
+
+	/**
+	 * Returns the number of children of a node.
+	 * @param node the index of the node.
+	 * @return the number of children of the node.
+	 */
+	public int getNumChildren(int node) {
+		return Bitsets.cardinality(this.children[node]);
+	}
+
+	/**
+	 * Checks whether there is an edge parent -&gt; child.
+	 * @param parent the index of the parent node.
+	 * @param child the index of the child node.
+	 * @return true if the edge parent -&gt; child exists, false otherwise.
+	 */
+	public boolean isParentOf(int parent, int child) {
+		return Bitsets.get(this.parents[child], parent);
+	}
+
+	/**
+	 * Checks whether there is an edge between two nodes, in any direction.
+	 * @param node1 the index of the first node.
+	 * @param node2 the index of the second node.
+	 * @return true if the nodes are adjacent, false otherwise.
+	 */
+	public boolean isAdjacentTo(int node1, int node2) {
+		return Bitsets.get(this.parents[node1], node2) || Bitsets.get(this.children[node1], node2);
+	}
+
+	/**
+	 * Adds the edge parent -&gt; child if it does not exist yet. No cycle check is performed.
+	 * @param parent the index of the parent node.
+	 * @param child the index of the child node.
+	 * @return true if the edge has been added, false if it already existed.
+	 */
+	public boolean addEdge(int parent, int child) {
+		if (isParentOf(parent, child)) {
+			return false;
+		}
+		Bitsets.set(this.parents[child], parent);
+		Bitsets.set(this.children[parent], child);
+		this.numEdges++;
+		return true;
+	}
+
+	/**
+	 * Removes the edge parent -&gt; child if it exists.
+	 * @param parent the index of the parent node.
+	 * @param child the index of the child node.
+	 * @return true if the edge has been removed, false if it did not exist.
+	 */
+	public boolean removeEdge(int parent, int child) {
+		if (!isParentOf(parent, child)) {
+			return false;
+		}
+		Bitsets.clear(this.parents[child], parent);
+		Bitsets.clear(this.children[parent], child);
+		this.numEdges--;
+		return true;
+	}
+
+	/**
+	 * Removes every edge incident to a node. The node keeps its index, so it becomes an isolated node.
+	 * @param node the index of the node.
+	 */
+	public void removeIncidentEdges(int node) {
+		long[] pa = this.parents[node];
+		for (int p = Bitsets.nextSetBit(pa, 0); p >= 0; p = Bitsets.nextSetBit(pa, p + 1)) {
+			Bitsets.clear(this.children[p], node);
+			this.numEdges--;
+		}
+		long[] ch = this.children[node];
+		for (int c = Bitsets.nextSetBit(ch, 0); c >= 0; c = Bitsets.nextSetBit(ch, c + 1)) {
+			Bitsets.clear(this.parents[c], node);
+			this.numEdges--;
+		}
+		Arrays.fill(pa, 0L);
+		Arrays.fill(ch, 0L);
+	}
+
+	/**
+	 * Adds every edge of another DAG over the same nodes to this DAG (union of both sets of edges). No cycle check is performed.
+	 * @param other the DAG whose edges are added. It must have the same number of nodes as this DAG.
+	 */
+	public void or(BitsetDag other) {
+		if (other.getNumNodes() != getNumNodes()) {
+			throw new IllegalArgumentException("Both DAGs must have the same nodes.");
+		}
+		for (int child = 0; child < this.parents.length; child++) {
+			long[] pa = other.parents[child];
+			for (int parent = Bitsets.nextSetBit(pa, 0); parent >= 0; parent = Bitsets.nextSetBit(pa, parent + 1)) {
+				addEdge(parent, child);
+			}
+		}
+	}
+
+	/**
+	 * Checks whether there is a directed path from one node to another.
+	 * A node is considered to have a directed path to itself.
+	 * @param from the index of the origin node.
+	 * @param to the index of the destination node.
+	 * @return true if there is a directed path from {@code from} to {@code to}, false otherwise.
+	 */
+	public boolean existsDirectedPath(int from, int to) {
+		if (from == to) {
+			return true;
+		}
+		long[] visited = new long[Bitsets.words(getNumNodes())];
+		int[] stack = new int[getNumNodes()];
+		int top = 0;
+		stack[top++] = from;
+		Bitsets.set(visited, from);
+		while (top > 0) {
+			long[] ch = this.children[stack[--top]];
+			for (int w = 0; w < ch.length; w++) {
+				long pending = ch[w] & ~visited[w];
+				if (pending == 0) {
+					continue;
+				}
+				if (w == (to >>> 6) && (pending & (1L << to)) != 0) {
+					return true;
+				}
+				visited[w] |= pending;
+				while (pending != 0) {
+					stack[top++] = (w << 6) + Long.numberOfTrailingZeros(pending);
+					pending &= pending - 1;
+				}
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,185 @@
+package es.uclm.i3a.simd.consensusBN;
+
+/**
+ * Utility class with static helpers to work with bitsets stored as {@code long[]} words.
+ * Bit {@code i} is stored in word {@code i >>> 6} at position {@code i & 63}. These helpers are used by the
+ * int-indexed graph representations of the fusion pipeline, where each node is identified by its index.
+ *
+ * @see BitsetDag
+ */
+public final class Bitsets {
+
+	/**
+	 * Private constructor to prevent instantiation.
+	 */
+	private Bitsets() {
+	}
+
+	/**
+	 * Returns the number of 64-bit words needed to store a bitset with the given number of bits.
+	 * @param numBits the number of bits of the bitset.
+	 * @return the number of words needed to store the bitset.
+	 */
+	public static int words(int numBits) {
+		return (numBits + 63) >>> 6;
+	}
+
+	/**
+	 * Checks whether the bit at the given index is set.
+	 * @param bits the bitset.
+	 * @param index the index of the bit.
+	 * @return true if the bit is set, false otherwise.
+	 */
+	public static boolean get(long[] bits, int index) {
+		return (bits[index >>> 6] & (1L << index)) != 0;
+	}
+
+	/**
+	 * Sets the bit at the given index.
+	 * @param bits the bitset.
+	 * @param index the index of the bit.
+	 */
+	public static void set(long[] bits, int index) {
+		bits[index >>> 6] |= 1L << index;
+	}
+
+	/**
+	 * Clears the bit at the given index.
+	 * @param bits the bitset.
+	 * @param index the index of the bit.
+	 */
+	public static void clear(long[] bits, int index) {
+		bits[index >>> 6] &= ~(1L << index);
+	}
+
+	/**
+	 * Returns the number of bits set in the bitset.
+	 * @param bits the bitset.
+	 * @return the number of bits set.
+	 */
+	public static int cardinality(long[] bits) {
+		int count = 0;
+		for (long word : bits) {
+			count += Long.bitCount(word);
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the number of bits set in {@code a} that are not set in {@code b}, that is, the size of {@code a \ b}.
+	 * @param a the first bitset.
+	 * @param b the second bitset.
+	 * @return the cardinality of the difference between a and b.
+	 */
+	public static int andNotCardinality(long[] a, long[] b) {
+		int count = 0;
+		for (int w = 0; w < a.length; w++) {
+			count += Long.bitCount(a[w] & ~b[w]);
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the number of bits set in exactly one of {@code a} and {@code b}, that is, the size of their symmetric difference.
+	 * @param a the first bitset.
+	 * @param b the second bitset, with the same number of words.
+	 * @return the cardinality of a xor b.
+	 */
+	public static int xorCardinality(long[] a, long[] b) {
+		int count = 0;
+		for (int w = 0; w < a.length; w++) {
+			count += Long.bitCount(a[w] ^ b[w]);
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the index of the first bit set at or after the given index, or -1 if there is none.
+	 * Typical usage is {@code for (int i = nextSetBit(bits, 0); i >= 0; i = nextSetBit(bits, i + 1))}.
+	 * @param bits the bitset.
+	 * @param from the index to start searching from.
+	 * @return the index of the next bit set, or -1 if there is no such bit.
+	 */
+	public static int nextSetBit(long[] bits, int from) {
+		int w = from >>> 6;
+		if (w >= bits.length) {
+			return -1;
+		}
+		long word = bits[w] & (-1L << from);
+		while (true) {
+			if (word != 0) {
+				return (w << 6) + Long.numberOfTrailingZeros(word);
+			}
+			if (++w == bits.length) {
+				return -1;
+			}
+			word = bits[w];
+		}
+	}
+
+	/**
+	 * Checks whether the bitset has no bits set.
+	 * @param bits the bitset.
+	 * @return true if no bit is set, false otherwise.
+	 */
+	public static boolean isEmpty(long[] bits) {
+		for (long word : bits) {
+			if (word != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Checks whether the two bitsets have at least one bit set in common.
+	 * @param a the first bitset.
+	 * @param b the second bitset.
+	 * @return true if the bitsets intersect, false otherwise.
+	 */
+	public static boolean intersects(long[] a, long[] b) {
+		for (int w = 0; w < a.length; w++) {
+			if ((a[w] & b[w]) != 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks whether every bit set in {@code a} is also set in {@code b}.
+	 * @param a the candidate subset.
+	 * @param b the candidate superset.
+	 * @return true if a is a subset of b, false otherwise.
+	 */
+	public static boolean isSubset(long[] a, long[] b) {
+		for (int w = 0; w < a.length; w++) {
+			if ((a[w] & ~b[w]) != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Adds every bit of {@code source} to {@code target}.
+	 * @param target the bitset to be updated.
+	 * @param source the bitset whose bits are added.
+	 */
+	public static void or(long[] target, long[] source) {
+		for (int w = 0; w < target.length; w++) {
+			target[w] |= source[w];
+		}
+	}
+
+	/**
+	 * Removes every bit of {@code source} from {@code target}.
+	 * @param target the bitset to be updated.
+	 * @param source the bitset whose bits are removed.
+	 */
+	public static void andNot(long[] target, long[] source) {
+		for (int w = 0; w < target.length; w++) {
+			target[w] &= ~source[w];
+		}
+	}
+}
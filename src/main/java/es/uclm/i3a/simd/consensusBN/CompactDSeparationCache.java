@@ -0,0 +1,263 @@
+package es.uclm.i3a.simd.consensusBN;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Unbounded d-separation cache based on open addressing over primitive arrays. This is the default cache of the Backward Equivalence Search.
+ * Each entry stores the packed pair of nodes, the conditioning bitset, the 64-bit hash and the score of a query in parallel arrays,
+ * so no object is created per entry apart from the copy of the conditioning bitset, and lookups do not allocate any memory.
+ * The table is split into segments, selected by the upper bits of the hash, each one guarded by its own lock, so that the workers of a
+ * parallel search rarely wait for each other. Entries are never evicted; use {@link LruDSeparationCache} to bound the memory.
+ *
+ * @see CompactDSeparationKey
+ * @see DSeparationCache
+ */
+public class CompactDSeparationCache implements DSeparationCache {
+
+	/**
+	 * Number of bits of the hash used to select a segment.
+	 */
+	private static final int SEGMENT_BITS = 4;
+
+	/**
+	 * The segments of the table.
+	 */
+	private final Segment[] segments;
+
+	/**
+	 * Number of lookups that found a cached score.
+	 */
+	private final LongAdder hits = new LongAdder();
+
+	/**
+	 * Number of lookups that did not find a cached score.
+	 */
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * Constructor for an empty CompactDSeparationCache.
+	 */
+	public CompactDSeparationCache() {
+		this.segments = new Segment[1 << SEGMENT_BITS];
+		for (int i = 0; i < this.segments.length; i++) {
+			this.segments[i] = new Segment();
+		}
+	}
+
+	/**
+	 * Returns the segment where a hash is stored.
+	 * @param hash the 64-bit hash of a query.
+	 * @return the segment of the hash.
+	 */
+	private Segment segmentFor(long hash) {
+		return this.segments[(int) (hash >>> (64 - SEGMENT_BITS))];
+	}
+
+	@Override
+	public double get(int x, int y, long[] conditioningSet) {
+		long hash = CompactDSeparationKey.hash(x, y, conditioningSet);
+		Segment segment = segmentFor(hash);
+		double score;
+		synchronized (segment) {
+			score = segment.get(hash, CompactDSeparationKey.packNodes(x, y), conditioningSet);
+		}
+		if (Double.isNaN(score)) {
+			this.misses.increment();
+		} else {
+			this.hits.increment();
+		}
+		return score;
+	}
+
+	@Override
+	public void put(int x, int y, long[] conditioningSet, double score) {
+		long hash = CompactDSeparationKey.hash(x, y, conditioningSet);
+		Segment segment = segmentFor(hash);
+		synchronized (segment) {
+			segment.put(hash, CompactDSeparationKey.packNodes(x, y), conditioningSet, score);
+		}
+	}
+
+	@Override
+	public void clear() {
+		for (Segment segment : this.segments) {
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+	}
+
+	@Override
+	public int size() {
+		int size = 0;
+		for (Segment segment : this.segments) {
+			synchronized (segment) {
+				size += segment.size;
+			}
+		}
+		return size;
+	}
+
+	@Override
+	public long getHits() {
+		return this.hits.sum();
+	}
+
+	@Override
+	public long getMisses() {
+		return this.misses.sum();
+	}
+
+	/**
+	 * Returns the number of evicted entries, which is always 0 since this cache is unbounded.
+	 * @return 0.
+	 */
+	@Override
+	public long getEvictions() {
+		return 0;
+	}
+
+	/**
+	 * Open-addressing table with linear probing. The slot of an entry is given by the lower bits of its hash,
+	 * and an empty slot is marked by a null conditioning bitset. Callers must hold the lock of the segment.
+	 */
+	private static final class Segment {
+
+		/**
+		 * Initial number of slots of a segment. It must be a power of two.
+		 */
+		private static final int INITIAL_CAPACITY = 64;
+
+		/**
+		 * The hashes of the entries.
+		 */
+		private long[] hashes;
+
+		/**
+		 * The packed pairs of nodes of the entries.
+		 */
+		private long[] nodes;
+
+		/**
+		 * The conditioning bitsets of the entries, null for empty slots.
+		 */
+		private long[][] conditioningSets;
+
+		/**
+		 * The scores of the entries.
+		 */
+		private double[] scores;
+
+		/**
+		 * Number of entries stored in the segment.
+		 */
+		private int size;
+
+		/**
+		 * Constructor for an empty segment.
+		 */
+		private Segment() {
+			allocate(INITIAL_CAPACITY);
+		}
+
+		/**
+		 * Allocates empty arrays with the given number of slots.
+		 * @param capacity the number of slots, a power of two.
+		 */
+		private void allocate(int capacity) {
+			this.hashes = new long[capacity];
+			this.nodes = new long[capacity];
+			this.conditioningSets = new long[capacity][];
+			this.scores = new double[capacity];
+			this.size = 0;
+		}
+
+		/**
+		 * Returns the slot of a query, or the empty slot where it should be inserted.
+		 * @param hash the hash of the query.
+		 * @param packedNodes the packed pair of nodes of the query.
+		 * @param conditioningSet the conditioning bitset of the query.
+		 * @return the index of the slot.
+		 */
+		private int find(long hash, long packedNodes, long[] conditioningSet) {
+			int mask = this.hashes.length - 1;
+			int slot = (int) hash & mask;
+			while (this.conditioningSets[slot] != null) {
+				if (this.hashes[slot] == hash && this.nodes[slot] == packedNodes
+						&& Arrays.equals(this.conditioningSets[slot], conditioningSet)) {
+					return slot;
+				}
+				slot = (slot + 1) & mask;
+			}
+			return slot;
+		}
+
+		/**
+		 * Returns the score of a query.
+		 * @param hash the hash of the query.
+		 * @param packedNodes the packed pair of nodes of the query.
+		 * @param conditioningSet the conditioning bitset of the query.
+		 * @return the score, or NaN if the query is not stored.
+		 */
+		private double get(long hash, long packedNodes, long[] conditioningSet) {
+			int slot = find(hash, packedNodes, conditioningSet);
+			return this.conditioningSets[slot] == null ? Double.NaN : this.scores[slot];
+		}
+
+		/**
+		 * Stores the score of a query, growing the table when it is half full.
+		 * @param hash the hash of the query.
+		 * @param packedNodes the packed pair of nodes of the query.
+		 * @param conditioningSet the conditioning bitset of the query, which is copied.
+		 * @param score the score of the query.
+		 */
+		private void put(long hash, long packedNodes, long[] conditioningSet, double score) {
+			int slot = find(hash, packedNodes, conditioningSet);
+			if (this.conditioningSets[slot] == null) {
+				if (2 * (this.size + 1) > this.hashes.length) {
+					grow();
+					slot = find(hash, packedNodes, conditioningSet);
+				}
+				this.hashes[slot] = hash;
+				this.nodes[slot] = packedNodes;
+				this.conditioningSets[slot] = conditioningSet.clone();
+				this.size++;
+			}
+			this.scores[slot] = score;
+		}
+
+		/**
+		 * Doubles the number of slots, reinserting every entry.
+		 */
+		private void grow() {
+			long[] oldHashes = this.hashes;
+			long[] oldNodes = this.nodes;
+			long[][] oldConditioningSets = this.conditioningSets;
+			double[] oldScores = this.scores;
+			allocate(2 * oldHashes.length);
+			int mask = this.hashes.length - 1;
+			for (int i = 0; i < oldHashes.length; i++) {
+				if (oldConditioningSets[i] == null) {
+					continue;
+				}
+				int slot = (int) oldHashes[i] & mask;
+				while (this.conditioningSets[slot] != null) {
+					slot = (slot + 1) & mask;
+				}
+				this.hashes[slot] = oldHashes[i];
+				this.nodes[slot] = oldNodes[i];
+				this.conditioningSets[slot] = oldConditioningSets[i];
+				this.scores[slot] = oldScores[i];
+				this.size++;
+			}
+		}
+
+		/**
+		 * Removes every entry, going back to the initial capacity.
+		 */
+		private void clear() {
+			allocate(INITIAL_CAPACITY);
+		}
+	}
+}
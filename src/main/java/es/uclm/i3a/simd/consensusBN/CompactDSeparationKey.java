@@ -0,0 +1,170 @@
+package es.uclm.i3a.simd.consensusBN;
+
+import java.util.Arrays;
+
+/**
+ * Compact form of a {@link DSeparationKey}, where the nodes are given by their indexes.
+ * The pair of nodes is packed into a single {@code long}, the conditioning set is stored as a bitset of node indexes,
+ * and a 64-bit hash is computed once when the key is created. As in DSeparationKey, the pair of nodes is unordered.
+ *
+ * The static methods {@link #packNodes(int, int)} and {@link #hash(int, int, long[])} compute the same values as a key without creating it,
+ * so that caches based on open addressing can be probed without allocating memory. All the conditioning bitsets used with the same cache
+ * must have the same length, that is, they must refer to the same list of nodes.
+ *
+ * @see DSeparationKey
+ * @see CompactDSeparationCache
+ */
+public final class CompactDSeparationKey {
+
+	/**
+	 * The indexes of the two nodes, the smallest one in the upper 32 bits.
+	 */
+	private final long nodes;
+
+	/**
+	 * The bitset of indexes of the conditioning nodes.
+	 */
+	private final long[] conditioningSet;
+
+	/**
+	 * The 64-bit hash of the key.
+	 */
+	private final long hash;
+
+	/**
+	 * Constructor for CompactDSeparationKey. The conditioning bitset is copied, so the caller can reuse it.
+	 * @param x the index of the first node.
+	 * @param y the index of the second node.
+	 * @param conditioningSet the bitset of indexes of the conditioning nodes.
+	 */
+	public CompactDSeparationKey(int x, int y, long[] conditioningSet) {
+		this(packNodes(x, y), conditioningSet.clone(), hash(x, y, conditioningSet));
+	}
+
+	/**
+	 * Constructor for CompactDSeparationKey from its already computed fields.
+	 * @param nodes the packed indexes of the two nodes.
+	 * @param conditioningSet the bitset of indexes of the conditioning nodes, which is not copied.
+	 * @param hash the 64-bit hash of the key.
+	 */
+	private CompactDSeparationKey(long nodes, long[] conditioningSet, long hash) {
+		this.nodes = nodes;
+		this.conditioningSet = conditioningSet;
+		this.hash = hash;
+	}
+
+	/**
+	 * Creates a key that shares the given conditioning bitset instead of copying it. It is meant for lookups in maps,
+	 * and must not be stored nor used after the bitset is modified.
+	 * @param x the index of the first node.
+	 * @param y the index of the second node.
+	 * @param conditioningSet the bitset of indexes of the conditioning nodes.
+	 * @return a key sharing the conditioning bitset.
+	 */
+	static CompactDSeparationKey lookup(int x, int y, long[] conditioningSet) {
+		return new CompactDSeparationKey(packNodes(x, y), conditioningSet, hash(x, y, conditioningSet));
+	}
+
+	/**
+	 * Packs the indexes of an unordered pair of nodes into a long, the smallest index in the upper 32 bits.
+	 * @param x the index of the first node.
+	 * @param y the index of the second node.
+	 * @return the packed pair of indexes.
+	 */
+	public static long packNodes(int x, int y) {
+		int min = Math.min(x, y);
+		int max = Math.max(x, y);
+		return ((long) min << 32) | (max & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Computes the 64-bit hash of a key without creating it.
+	 * @param x the index of the first node.
+	 * @param y the index of the second node.
+	 * @param conditioningSet the bitset of indexes of the conditioning nodes.
+	 * @return the hash of the key.
+	 */
+	public static long hash(int x, int y, long[] conditioningSet) {
+		long h = mix(packNodes(x, y));
+		for (long word : conditioningSet) {
+			h = mix(h ^ word);
+		}
+		return h;
+	}
+
+	/**
+	 * Mixes the bits of a long value (finalizer of the SplitMix64 generator).
+	 * @param z the value to mix.
+	 * @return the mixed value.
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Checks whether this key represents the given query.
+	 * @param packedNodes the packed indexes of the two nodes, as returned by {@link #packNodes(int, int)}.
+	 * @param conditioningSet the bitset of indexes of the conditioning nodes.
+	 * @return true if the key has the same nodes and conditioning set, false otherwise.
+	 */
+	public boolean matches(long packedNodes, long[] conditioningSet) {
+		return this.nodes == packedNodes && Arrays.equals(this.conditioningSet, conditioningSet);
+	}
+
+	/**
+	 * Checks if this key is equal to another object. Two keys are equal if they have the same pair of nodes and conditioning set.
+	 * @param obj the object to compare with this key.
+	 * @return true if the other object is a CompactDSeparationKey for the same query, false otherwise.
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) return true;
+		if (!(obj instanceof CompactDSeparationKey)) return false;
+
+		CompactDSeparationKey other = (CompactDSeparationKey) obj;
+		return this.hash == other.hash && matches(other.nodes, other.conditioningSet);
+	}
+
+	/**
+	 * Returns the hash code of this key, taken from its precomputed 64-bit hash.
+	 * @return the hash code of this key.
+	 */
+	@Override
+	public int hashCode() {
+		return (int) (this.hash ^ (this.hash >>> 32));
+	}
+
+	/**
+	 * Returns the 64-bit hash of this key.
+	 * @return the 64-bit hash.
+	 */
+	public long getHash() {
+		return this.hash;
+	}
+
+	/**
+	 * Returns the smallest index of the pair of nodes.
+	 * @return the index of the first node of the key.
+	 */
+	public int getX() {
+		return (int) (this.nodes >>> 32);
+	}
+
+	/**
+	 * Returns the largest index of the pair of nodes.
+	 * @return the index of the second node of the key.
+	 */
+	public int getY() {
+		return (int) this.nodes;
+	}
+
+	/**
+	 * Returns a copy of the bitset of indexes of the conditioning nodes.
+	 * @return the conditioning bitset.
+	 */
+	public long[] getConditioningSet() {
+		return this.conditioningSet.clone();
+	}
+}
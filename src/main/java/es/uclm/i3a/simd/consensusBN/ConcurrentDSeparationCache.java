@@ -0,0 +1,74 @@
+package es.uclm.i3a.simd.consensusBN;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Unbounded d-separation cache backed by a {@link ConcurrentHashMap} keyed by {@link CompactDSeparationKey}. Entries are never evicted.
+ * Unlike {@link CompactDSeparationCache}, lookups create a small key object, but they never block.
+ *
+ * @see DSeparationCache
+ */
+public class ConcurrentDSeparationCache implements DSeparationCache {
+
+	/**
+	 * The cached scores of the d-separation queries.
+	 */
+	private final Map<CompactDSeparationKey, Double> scores = new ConcurrentHashMap<>();
+
+	/**
+	 * Number of lookups that found a cached score.
+	 */
+	private final LongAdder hits = new LongAdder();
+
+	/**
+	 * Number of lookups that did not find a cached score.
+	 */
+	private final LongAdder misses = new LongAdder();
+
+	@Override
+	public double get(int x, int y, long[] conditioningSet) {
+		Double score = this.scores.get(CompactDSeparationKey.lookup(x, y, conditioningSet));
+		if (score != null) {
+			this.hits.increment();
+			return score;
+		}
+		this.misses.increment();
+		return Double.NaN;
+	}
+
+	@Override
+	public void put(int x, int y, long[] conditioningSet, double score) {
+		this.scores.put(new CompactDSeparationKey(x, y, conditioningSet), score);
+	}
+
+	@Override
+	public void clear() {
+		this.scores.clear();
+	}
+
+	@Override
+	public int size() {
+		return this.scores.size();
+	}
+
+	@Override
+	public long getHits() {
+		return this.hits.sum();
+	}
+
+	@Override
+	public long getMisses() {
+		return this.misses.sum();
+	}
+
+	/**
+	 * Returns the number of evicted entries, which is always 0 since this cache is unbounded.
+	 * @return 0.
+	 */
+	@Override
+	public long getEvictions() {
+		return 0;
+	}
+}
@@ -55,6 +55,19 @@ public class ConsensusBES implements Runnable {
 	 * Number of edges inserted during the consensus union process and the Backward Equivalence Search process.
 	 */
 	int numberOfInsertedEdges = 0;
+
+	/**
+	 * Number of threads used by the Consensus Union to compute the alpha order and transform the input DAGs, and by the Backward Equivalence Search to evaluate the candidate edges. Set to 1 by default.
+	 * @see ConsensusUnion#setParallelism(int)
+	 * @see BackwardEquivalenceSearchDSep#setParallelism(int)
+	 */
+	private int parallelism = 1;
+
+	/**
+	 * Cache of d-separation scores used by the Backward Equivalence Search. If null, the search uses its default unbounded cache.
+	 * @see BackwardEquivalenceSearchDSep#setDSeparationCache(DSeparationCache)
+	 */
+	private DSeparationCache dSeparationCache = null;
 	
 
 	/**
@@ -66,15 +79,27 @@ public class ConsensusBES implements Runnable {
 		this.inputDags = dags;
 		this.consensusUnion = new ConsensusUnion(this.inputDags);
 	}
+
+	/**
+	 * Constructor for ConsensusBES that initializes the input DAGs and the heuristic used by the ConsensusUnion to compute the order of the nodes.
+	 * @param dags the list of input DAGs to be fused.
+	 * @param heuristic the heuristic that computes the order used to transform the input DAGs before their union.
+	 * @see OrderHeuristic
+	 */
+	public ConsensusBES(ArrayList<Dag> dags, OrderHeuristic heuristic){
+		this.inputDags = dags;
+		this.consensusUnion = new ConsensusUnion(this.inputDags, heuristic);
+	}
 	
 	/**
 	 * Performs the consensus union operation by calling the union method of the ConsensusUnion instance.
 	 * This method initializes the union process, transforming the input DAGs based on the alpha order and merging them into a single consensus DAG.
 	 * After the union, it retrieves the transformed DAGs and updates the number of inserted edges.
+	 * In streaming mode the transformed DAGs are not retrieved, since the Backward Equivalence Search only needs the edge counts of the union.
 	 */
 	public void consensusUnion(){
 		this.union = this.consensusUnion.union();
-		this.transformedDags = this.consensusUnion.getTransformedDags();
+		this.transformedDags = this.consensusUnion.isStreaming() ? null : this.consensusUnion.getTransformedDags();
 		this.numberOfInsertedEdges += consensusUnion.getNumberOfInsertedEdges();
 	}
 	
@@ -86,12 +111,36 @@ public class ConsensusBES implements Runnable {
 		// 1. Apply ConsensusUnion to the set of dags
 		consensusUnion();
 		// 2. Apply Backward Equivalence Search with D-separation
-		BackwardEquivalenceSearchDSep bes = new BackwardEquivalenceSearchDSep(this.union, this.inputDags, this.transformedDags);
+		BackwardEquivalenceSearchDSep bes = createBackwardSearch();
+		configure(bes);
 		this.outputDag = bes.applyBackwardEliminationWithDSeparation();
 		// 3. Updating numberOfInsertedEdges
 		this.numberOfInsertedEdges -= bes.getNumberOfRemovedEdges();
 	}
 	
+	/**
+	 * Creates the Backward Equivalence Search over the union, reading how many transformed DAGs contain each edge from the counts of the Consensus Union.
+	 * It must be called after consensusUnion().
+	 * @return a new Backward Equivalence Search.
+	 */
+	protected BackwardEquivalenceSearchDSep createBackwardSearch() {
+		return new BackwardEquivalenceSearchDSep(this.union, this.inputDags, this.consensusUnion.getEdgeCounts());
+	}
+
+	/**
+	 * Applies the settings of this ConsensusBES (parallelism and d-separation cache) to a Backward Equivalence Search.
+	 * After the search, the cache used by it can be retrieved with getDSeparationCache.
+	 * @param bes the Backward Equivalence Search to configure.
+	 */
+	protected void configure(BackwardEquivalenceSearchDSep bes) {
+		bes.setParallelism(this.parallelism);
+		if (this.dSeparationCache != null) {
+			bes.setDSeparationCache(this.dSeparationCache);
+		} else {
+			this.dSeparationCache = bes.getDSeparationCache();
+		}
+	}
+
 	/**
 	 * Returns the output DAG after applying the Consensus Union and Backward Equivalence Search with D-separation.
 	 * This method retrieves the final fused DAG, which represents the optimal fusion of the input DAGs.
@@ -137,11 +186,15 @@ public class ConsensusBES implements Runnable {
 	/**
 	 * Returns the list of transformed DAGs after applying the alpha order to the input DAGs.
 	 * This method retrieves the transformed DAGs that were used in the consensus union process.
+	 * The transformed DAGs are not kept when the Consensus Union is built in streaming mode.
 	 * @return the list of transformed DAGs.
+	 * @throws IllegalStateException if the fusion has not been performed yet, or the union was built in streaming mode.
 	 */
 	public ArrayList<Dag> getTransformedDags() {
 		if (this.transformedDags != null) {
 			return this.transformedDags;
+		} else if (this.union != null) {
+			throw new IllegalStateException("The transformed DAGs are not kept in streaming mode.");
 		} else {
 			throw new IllegalStateException("Transformed DAGs have not been initialized. Please call fusion() first.");
 		}
@@ -156,6 +209,69 @@ public class ConsensusBES implements Runnable {
 		return this.inputDags;
 	}
 	
+	/**
+	 * Sets the number of threads used by the Consensus Union to compute the alpha order and transform the input DAGs, and by the Backward Equivalence Search to evaluate the candidate edges.
+	 * The resulting DAG does not depend on the parallelism.
+	 * @param parallelism the number of threads, must be at least 1.
+	 * @throws IllegalArgumentException if the parallelism is lower than 1.
+	 * @see ConsensusUnion#setParallelism(int)
+	 * @see BackwardEquivalenceSearchDSep#setParallelism(int)
+	 */
+	public void setParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be at least 1");
+		}
+		this.parallelism = parallelism;
+		this.consensusUnion.setParallelism(parallelism);
+	}
+
+	/**
+	 * Sets whether the Consensus Union is built in streaming mode, adding each transformed DAG to the union and the edge counts without keeping it.
+	 * The resulting DAG does not depend on it.
+	 * @param streaming true to build the union in streaming mode.
+	 * @see ConsensusUnion#setStreaming(boolean)
+	 */
+	public void setStreaming(boolean streaming) {
+		this.consensusUnion.setStreaming(streaming);
+	}
+
+	/**
+	 * Returns whether the Consensus Union is built in streaming mode.
+	 * @return true if the union does not keep the transformed DAGs.
+	 */
+	public boolean isStreaming() {
+		return this.consensusUnion.isStreaming();
+	}
+
+	/**
+	 * Returns the number of threads used by the Consensus Union and the Backward Equivalence Search.
+	 * @return the parallelism of the Backward Equivalence Search.
+	 */
+	public int getParallelism() {
+		return this.parallelism;
+	}
+
+	/**
+	 * Sets the cache of d-separation scores used by the Backward Equivalence Search, for instance a {@link LruDSeparationCache} to bound its memory.
+	 * @param cache the cache of d-separation scores.
+	 * @throws IllegalArgumentException if the cache is null.
+	 * @see BackwardEquivalenceSearchDSep#setDSeparationCache(DSeparationCache)
+	 */
+	public void setDSeparationCache(DSeparationCache cache) {
+		if (cache == null) {
+			throw new IllegalArgumentException("The d-separation cache cannot be null");
+		}
+		this.dSeparationCache = cache;
+	}
+
+	/**
+	 * Returns the cache of d-separation scores used by the Backward Equivalence Search, whose hit, miss and eviction counters can be read after fusion().
+	 * @return the cache of d-separation scores, or null if no cache has been set and fusion() has not been called.
+	 */
+	public DSeparationCache getDSeparationCache() {
+		return this.dSeparationCache;
+	}
+
 	/**
 	 * Runs the ConsensusBES algorithm in a thread, performing the consensus union and the Backward Equivalence Search with D-separation.
 	 */
@@ -1,11 +1,10 @@
 package es.uclm.i3a.simd.consensusBN;
 
 import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
 
 import edu.cmu.tetrad.graph.Dag;
-import edu.cmu.tetrad.graph.Edge;
-import edu.cmu.tetrad.graph.Endpoint;
 import edu.cmu.tetrad.graph.Node;
 
 
@@ -13,8 +12,11 @@ import edu.cmu.tetrad.graph.Node;
  * This class implements the Consensus Union algorithm which applies a fusion between multiple Directed Acyclic Graphs (DAGs).
  * It constructs a consensus DAG by merging the input DAGs based on a specified order of nodes (alpha).
  * The alpha order is computed with the AlphaOrder class which implements a Greedy Heuristic Order (GHO) search, achieving a good order to transform the input DAGs.
+ * Any other {@link OrderHeuristic} can be used instead, such as the faster {@link WeightedTopologicalOrder} or {@link MedianRankOrder} for large inputs,
+ * or {@link LocalSearchOrder} to refine the order of another heuristic and insert fewer edges.
  * Once each DAG is transformed, the union method creates a new DAG that contains all the edges from the input DAGs, ensuring that the resulting graph is acyclic.
  * The number of edges inserted during the union process can be retrieved using getNumberOfInsertedEdges. 
+ * In streaming mode, each DAG is transformed and added to the union right away, and the transformed DAGs are not kept.
  * 
  * This class is also runnable, allowing it to be executed in a separate thread.
  */
@@ -29,9 +31,10 @@ public class ConsensusUnion implements Runnable{
 	 */
 	private ArrayList<Node> alpha;
 	/**
-	 * The AlphaOrder heuristic used to compute the alpha order.
+	 * The heuristic used to compute the alpha order, an AlphaOrder by default.
+	 * @see OrderHeuristic
 	 */
-	private AlphaOrder heuristic = null;
+	private OrderHeuristic heuristic = null;
 
 	/**
 	 * The TransformDags instance that transforms the input DAGs based on the alpha order.
@@ -52,6 +55,24 @@ public class ConsensusUnion implements Runnable{
 	 * Number of edges inserted during the consensus union process.
 	 */
 	int numberOfInsertedEdges = 0;
+
+	/**
+	 * Number of threads used to compute the alpha order and to transform the input DAGs. Set to 1 by default.
+	 * @see AlphaOrder#setParallelism(int)
+	 * @see TransformDags#setParallelism(int)
+	 */
+	private int parallelism = 1;
+
+	/**
+	 * Whether the transformed DAGs are added to the union as soon as they are built, without keeping them. Set to false by default.
+	 * @see #setStreaming(boolean)
+	 */
+	private boolean streaming = false;
+
+	/**
+	 * Number of transformed DAGs containing each pair of nodes, indexed by the alpha order like the union. It is filled while the union is built.
+	 */
+	private EdgeCountMatrix edgeCounts = null;
 	
 	/**
 	 * Constructor for ConsensusUnion that initializes the union process with a list of DAGs and an alpha order.
@@ -72,6 +93,21 @@ public class ConsensusUnion implements Runnable{
 		this.setOfdags = dags;
 		this.heuristic = new AlphaOrder(this.setOfdags);
 	}	
+
+	/**
+	 * Constructor for ConsensusUnion that initializes the union process with a list of DAGs and the heuristic used to generate an alpha order.
+	 * @param dags the list of input DAGs to be merged.
+	 * @param heuristic the heuristic that computes the alpha order, built over the same list of DAGs.
+	 * @throws IllegalArgumentException if the heuristic is null.
+	 * @see OrderHeuristic
+	 */
+	public ConsensusUnion(ArrayList<Dag> dags, OrderHeuristic heuristic){
+		if (heuristic == null) {
+			throw new IllegalArgumentException("The order heuristic cannot be null");
+		}
+		this.setOfdags = dags;
+		this.heuristic = heuristic;
+	}
 	
 	/**
 	 * Default constructor for ConsensusUnion that initializes an empty union.
@@ -90,6 +126,14 @@ public class ConsensusUnion implements Runnable{
 		return this.numberOfInsertedEdges;
 	}
 	
+	/**
+	 * Returns the heuristic used to compute the alpha order, which can be queried for the expected number of inserted edges once the union has been performed.
+	 * @return the order heuristic, or null if the alpha order was given to the constructor.
+	 */
+	public OrderHeuristic getHeuristic(){
+		return this.heuristic;
+	}
+
 	/**
 	 * Performs the union of the input DAGs based on the alpha order. If no alpha order is set, it computes it first.
 	 * The method transforms each input DAG according to the alpha order and then merges them into a single consensus DAG.
@@ -106,30 +150,75 @@ public class ConsensusUnion implements Runnable{
 		
 		// Computing Alpha Order if not set, using the Greedy Heuristic Order (GHO)
 		if(this.alpha == null){
+			this.heuristic.setParallelism(this.parallelism);
 			this.heuristic.computeAlpha();
 			this.alpha = this.heuristic.getOrder();
 		}
 		
+		if(this.streaming){
+			this.union = streamingUnion();
+			return this.union;
+		}
+
 		// Transforming each DAG with the alpha order
 		this.imaps2alpha = new TransformDags(this.setOfdags,this.alpha);
+		this.imaps2alpha.setParallelism(this.parallelism);
 		this.imaps2alpha.transform();
 		this.numberOfInsertedEdges = this.imaps2alpha.getNumberOfInsertedEdges();
 	
-		// Applying a union of the edges of the transformed DAGs
-		this.union = new Dag(this.alpha);
-		for(Node nodei: this.alpha){
-			for(Dag d : this.imaps2alpha.getSetOfOutputDags()){
-				List<Node>parent = d.getParents(nodei);
-				for(Node pa: parent){
-					if(!this.union.isParentOf(pa, nodei)) this.union.addEdge(new Edge(pa,nodei,Endpoint.TAIL,Endpoint.ARROW));
-				}
-			}
-			
+		// Applying a union of the edges of the transformed DAGs, indexing the nodes by the alpha order, and counting them
+		BitsetDag bitsetUnion = new BitsetDag(this.alpha);
+		this.edgeCounts = new EdgeCountMatrix(bitsetUnion);
+		for(Dag d : this.imaps2alpha.getSetOfOutputDags()){
+			bitsetUnion.addEdgesFrom(d);
+			this.edgeCounts.add(d);
 		}
+		this.union = bitsetUnion.toDag();
 		return this.union;
 		
 	}
 	
+	/**
+	 * Transforms each input DAG with the alpha order and adds its edges to the union and to the edge counts right away, inside the task that transforms it.
+	 * Each transformed DAG can be collected as soon as it has been added, so at most one of them per thread is alive at the same time.
+	 * The union and the counts are shared by the threads, so each DAG is added to them while holding the lock of the union. Neither depends on the order
+	 * in which the DAGs are added.
+	 * @return the resulting consensus DAG.
+	 */
+	private Dag streamingUnion(){
+		this.imaps2alpha = null;
+		BitsetDag bitsetUnion = new BitsetDag(this.alpha);
+		EdgeCountMatrix counts = new EdgeCountMatrix(bitsetUnion);
+		int numDags = this.setOfdags.size();
+		int[] inserted = new int[1];
+		IntConsumer transform = d -> {
+			BetaToAlpha transformer = new BetaToAlpha(new Dag(this.setOfdags.get(d)), this.alpha);
+			transformer.transform();
+			BitsetDag edges = bitsetUnion.emptyCopy();
+			edges.addEdgesFrom(transformer.getGraph());
+			synchronized (bitsetUnion) {
+				bitsetUnion.or(edges);
+				counts.add(edges);
+				inserted[0] += transformer.getNumberOfInsertedEdges();
+			}
+		};
+		if(this.parallelism > 1){
+			ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+			try {
+				Utils.runInPool(pool, numDags, transform, "transforming the DAGs");
+			} finally {
+				pool.shutdown();
+			}
+		} else {
+			for(int d = 0; d < numDags; d++){
+				transform.accept(d);
+			}
+		}
+		this.numberOfInsertedEdges = inserted[0];
+		this.edgeCounts = counts;
+		return bitsetUnion.toDag();
+	}
+	
 	/**
 	 * Returns the resulting consensus DAG after the union process.
 	 * This method should be called after the union method to ensure that the union has been performed.
@@ -149,12 +238,68 @@ public class ConsensusUnion implements Runnable{
 	void setDags(ArrayList<Dag> dags){
 		this.setOfdags = dags;
 		this.heuristic = new AlphaOrder(this.setOfdags);
+		this.heuristic.setParallelism(this.parallelism);
 		this.heuristic.computeAlpha();
 		this.alpha = this.heuristic.getOrder();
 		this.imaps2alpha = new TransformDags(this.setOfdags,this.alpha);
+		this.imaps2alpha.setParallelism(this.parallelism);
 		this.imaps2alpha.transform();
 	}
 
+	/**
+	 * Sets the number of threads used to compute the alpha order and to transform the input DAGs with it. The resulting union does not depend on it.
+	 * @param parallelism the number of threads, must be at least 1.
+	 * @throws IllegalArgumentException if the parallelism is lower than 1.
+	 * @see AlphaOrder#setParallelism(int)
+	 * @see TransformDags#setParallelism(int)
+	 */
+	public void setParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be at least 1");
+		}
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Sets whether the union is built in streaming mode. In streaming mode, each input DAG is transformed and added to the union and to the edge counts
+	 * right away, instead of keeping every transformed DAG until the union is built, and the transformed DAGs are then discarded. This lowers the peak
+	 * memory for large sets of DAGs. The resulting union, number of inserted edges and edge counts do not depend on it.
+	 * @param streaming true to build the union in streaming mode.
+	 * @see #getEdgeCounts()
+	 */
+	public void setStreaming(boolean streaming) {
+		this.streaming = streaming;
+	}
+
+	/**
+	 * Returns whether the union is built in streaming mode.
+	 * @return true if the transformed DAGs are not kept after they are added to the union.
+	 */
+	public boolean isStreaming() {
+		return this.streaming;
+	}
+
+	/**
+	 * Returns the number of transformed DAGs containing each pair of nodes, computed while the union is built.
+	 * It is indexed by the alpha order, which is also the order of the nodes of the union, and it is available in streaming mode too.
+	 * @return the edge counts of the transformed DAGs.
+	 * @throws IllegalStateException if the union has not been performed yet.
+	 */
+	public EdgeCountMatrix getEdgeCounts() {
+		if (this.edgeCounts == null) {
+			throw new IllegalStateException("The edge counts have not been computed. Please call union() first.");
+		}
+		return this.edgeCounts;
+	}
+
+	/**
+	 * Returns the number of threads used to compute the alpha order and to transform the input DAGs.
+	 * @return the parallelism of the union.
+	 */
+	public int getParallelism() {
+		return this.parallelism;
+	}
+
 	/**
 	 * Runs the ConsensusUnion process in a separate thread.
 	 */
@@ -165,11 +310,15 @@ public class ConsensusUnion implements Runnable{
 
 	/**
 	 * Returns the list of transformed DAGs after applying the alpha order to the input DAGs with TransformDags.
+	 * The transformed DAGs are not kept when the union is built in streaming mode; {@link #getEdgeCounts()} is available instead.
 	 * @return the list of transformed DAGs.
+	 * @throws IllegalStateException if the union has not been performed yet, or it was built in streaming mode.
 	 */
 	public ArrayList<Dag> getTransformedDags() {
 		if (this.imaps2alpha != null) {
 			return this.imaps2alpha.getSetOfOutputDags();
+		} else if (this.edgeCounts != null) {
+			throw new IllegalStateException("The transformed DAGs are not kept in streaming mode. Please use getEdgeCounts() instead.");
 		} else {
 			throw new IllegalStateException("TransformDags has not been initialized. Please call union() first.");
 		}
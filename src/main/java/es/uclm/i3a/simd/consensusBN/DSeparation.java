@@ -0,0 +1,254 @@
+package es.uclm.i3a.simd.consensusBN;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+
+import edu.cmu.tetrad.graph.Dag;
+import edu.cmu.tetrad.graph.Node;
+
+/**
+ * Bitset-based d-separation engine for a fixed DAG.
+ * It answers the same queries as {@link Utils#dSeparated(Dag, Node, Node, java.util.List)}, using the same criterion:
+ * x and y are d-separated given Z if they are disconnected in the moral graph of the ancestral set of {x, y} ∪ Z once the nodes of Z are removed.
+ *
+ * Instead of building and moralizing a new graph for every query, the ancestors of every node are precomputed as bitsets when the engine is created.
+ * A query joins the ancestor bitsets of x, y and Z to obtain the ancestral set, and then performs a reachability search from x
+ * where the neighbours of each node in the moral graph (parents, relevant children and their parents) are obtained with word-level bit operations.
+ * The search uses reusable scratch buffers, so queries do not allocate. As a consequence, an instance must not be shared between threads.
+ * To query several DAGs at once, see {@link MultiDagDSeparation}.
+ *
+ * @see BitsetDag
+ * @see Utils#dSeparated(Dag, Node, Node, java.util.List)
+ */
+public class DSeparation {
+
+	/**
+	 * The DAG on which the d-separation queries are answered.
+	 */
+	private final BitsetDag dag;
+
+	/**
+	 * Bitset of ancestors of each node, including the node itself.
+	 */
+	private final long[][] ancestors;
+
+	/**
+	 * Scratch buffers used by the queries answered through the public methods of this engine. They are created on the first query.
+	 */
+	private Workspace workspace;
+
+	/**
+	 * Constructor for DSeparation from a Tetrad DAG. The DAG is converted to a {@link BitsetDag} indexed by its own list of nodes.
+	 * @param dag the DAG on which d-separation is checked.
+	 */
+	public DSeparation(Dag dag) {
+		this(BitsetDag.fromDag(dag));
+	}
+
+	/**
+	 * Constructor for DSeparation from a BitsetDag. The ancestors of every node are precomputed, so the DAG must not be modified afterwards.
+	 * @param dag the DAG on which d-separation is checked.
+	 */
+	public DSeparation(BitsetDag dag) {
+		this.dag = dag;
+		this.ancestors = computeAncestors(dag);
+	}
+
+	/**
+	 * Computes the ancestors of every node of the DAG (including the node itself), following a topological order
+	 * so that the ancestors of a node are the union of the ancestors of its parents.
+	 * @param dag the DAG whose ancestors are computed.
+	 * @return the bitset of ancestors of each node, indexed by node.
+	 */
+	private static long[][] computeAncestors(BitsetDag dag) {
+		int n = dag.getNumNodes();
+		long[][] ancestors = new long[n][Bitsets.words(n)];
+		int[] pendingParents = new int[n];
+		Deque<Integer> ready = new ArrayDeque<>();
+		for (int node = 0; node < n; node++) {
+			pendingParents[node] = dag.getNumParents(node);
+			if (pendingParents[node] == 0) {
+				ready.add(node);
+			}
+		}
+		while (!ready.isEmpty()) {
+			int node = ready.poll();
+			long[] pa = dag.getParents(node);
+			Bitsets.set(ancestors[node], node);
+			for (int parent = Bitsets.nextSetBit(pa, 0); parent >= 0; parent = Bitsets.nextSetBit(pa, parent + 1)) {
+				Bitsets.or(ancestors[node], ancestors[parent]);
+			}
+			long[] ch = dag.getChildren(node);
+			for (int child = Bitsets.nextSetBit(ch, 0); child >= 0; child = Bitsets.nextSetBit(ch, child + 1)) {
+				if (--pendingParents[child] == 0) {
+					ready.add(child);
+				}
+			}
+		}
+		return ancestors;
+	}
+
+	/**
+	 * Checks if two nodes are d-separated given a set of conditioning nodes.
+	 * @param x The first node.
+	 * @param y The second node.
+	 * @param cond The conditioning nodes.
+	 * @return True if the nodes are d-separated, false otherwise.
+	 * @throws IllegalArgumentException if any of the nodes does not belong to the DAG.
+	 */
+	public boolean dSeparated(Node x, Node y, Collection<Node> cond) {
+		long[] condBits = new long[Bitsets.words(this.dag.getNumNodes())];
+		for (Node node : cond) {
+			Bitsets.set(condBits, indexOf(node));
+		}
+		return dSeparated(indexOf(x), indexOf(y), condBits);
+	}
+
+	/**
+	 * Checks if two nodes are d-separated given a set of conditioning nodes, all of them given by their index in the DAG.
+	 * This method does not allocate any memory.
+	 * @param x The index of the first node.
+	 * @param y The index of the second node.
+	 * @param cond The bitset of indexes of the conditioning nodes.
+	 * @return True if the nodes are d-separated, false otherwise.
+	 */
+	public boolean dSeparated(int x, int y, long[] cond) {
+		if (this.workspace == null) {
+			this.workspace = new Workspace(this.dag.getNumNodes());
+		}
+		return dSeparated(x, y, cond, this.workspace);
+	}
+
+	/**
+	 * Checks if two nodes are d-separated given a set of conditioning nodes, using the given scratch buffers.
+	 * This allows several engines over the same nodes to share a single workspace.
+	 * @param x The index of the first node.
+	 * @param y The index of the second node.
+	 * @param cond The bitset of indexes of the conditioning nodes.
+	 * @param workspace The scratch buffers used by the search, sized for the number of nodes of the DAG.
+	 * @return True if the nodes are d-separated, false otherwise.
+	 */
+	boolean dSeparated(int x, int y, long[] cond, Workspace workspace) {
+		if (x == y) {
+			return false;
+		}
+		// A conditioning node is removed from the moral graph, so it cannot be connected to any other node.
+		if (Bitsets.get(cond, x) || Bitsets.get(cond, y)) {
+			return true;
+		}
+
+		// Ancestral set of {x, y} ∪ cond
+		long[] rel = workspace.relevant;
+		System.arraycopy(this.ancestors[x], 0, rel, 0, rel.length);
+		Bitsets.or(rel, this.ancestors[y]);
+		for (int z = Bitsets.nextSetBit(cond, 0); z >= 0; z = Bitsets.nextSetBit(cond, z + 1)) {
+			Bitsets.or(rel, this.ancestors[z]);
+		}
+
+		// Reachability search from x in the moral ancestral graph, without crossing conditioning nodes.
+		long[] seen = workspace.visited;
+		long[] nb = workspace.neighbours;
+		int[] stack = workspace.stack;
+		System.arraycopy(cond, 0, seen, 0, seen.length);
+		Bitsets.set(seen, x);
+		int yWord = y >>> 6;
+		long yMask = 1L << y;
+		int top = 0;
+		stack[top++] = x;
+		while (top > 0) {
+			int node = stack[--top];
+			long[] pa = this.dag.getParents(node);
+			long[] ch = this.dag.getChildren(node);
+			// Parents are always in the ancestral set; children only if they are relevant.
+			for (int w = 0; w < nb.length; w++) {
+				nb[w] = pa[w] | (ch[w] & rel[w]);
+			}
+			// Parents of relevant children are married to the node in the moral graph.
+			for (int w = 0; w < nb.length; w++) {
+				long relevantChildren = ch[w] & rel[w];
+				while (relevantChildren != 0) {
+					int child = (w << 6) + Long.numberOfTrailingZeros(relevantChildren);
+					Bitsets.or(nb, this.dag.getParents(child));
+					relevantChildren &= relevantChildren - 1;
+				}
+			}
+			for (int w = 0; w < nb.length; w++) {
+				long pending = nb[w] & ~seen[w];
+				if (pending == 0) {
+					continue;
+				}
+				if (w == yWord && (pending & yMask) != 0) {
+					return false;
+				}
+				seen[w] |= pending;
+				while (pending != 0) {
+					stack[top++] = (w << 6) + Long.numberOfTrailingZeros(pending);
+					pending &= pending - 1;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the index of a node of the DAG.
+	 * @param node the node to look up.
+	 * @return the index of the node.
+	 * @throws IllegalArgumentException if the node does not belong to the DAG.
+	 */
+	private int indexOf(Node node) {
+		int index = this.dag.getIndex(node);
+		if (index < 0) {
+			throw new IllegalArgumentException("Node " + node + " does not belong to the DAG.");
+		}
+		return index;
+	}
+
+	/**
+	 * Returns the DAG on which the d-separation queries are answered.
+	 * @return the DAG of this engine.
+	 */
+	public BitsetDag getDag() {
+		return this.dag;
+	}
+
+	/**
+	 * Scratch buffers of a d-separation query. A workspace can be shared by every engine over the same number of nodes,
+	 * as long as it is used by one thread at a time.
+	 */
+	static final class Workspace {
+
+		/**
+		 * Scratch bitset with the ancestral set of the current query.
+		 */
+		final long[] relevant;
+
+		/**
+		 * Scratch bitset with the nodes visited by the reachability search of the current query.
+		 */
+		final long[] visited;
+
+		/**
+		 * Scratch bitset with the neighbours in the moral graph of the node being expanded.
+		 */
+		final long[] neighbours;
+
+		/**
+		 * Scratch stack of nodes pending to be expanded by the reachability search.
+		 */
+		final int[] stack;
+
+		/**
+		 * Constructor for a workspace sized for the given number of nodes.
+		 * @param numNodes the number of nodes of the DAGs queried with this workspace.
+		 */
+		Workspace(int numNodes) {
+			int words = Bitsets.words(numNodes);
+			this.relevant = new long[words];
+			this.visited = new long[words];
+			this.neighbours = new long[words];
+			this.stack = new int[numNodes];
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package es.uclm.i3a.simd.consensusBN;
+
+/**
+ * Cache of the scores of d-separation queries used by the Backward Equivalence Search.
+ * Each entry maps a query, that is, an unordered pair of nodes and a conditioning set given by their indexes, to the fraction of input DAGs
+ * in which the nodes are d-separated. Implementations decide how many entries are kept and which ones are evicted, and keep counters of hits,
+ * misses and evictions that can be read once the search finishes. Implementations must be thread-safe, since the search may evaluate candidate edges in parallel.
+ *
+ * @see BackwardEquivalenceSearchDSep#setDSeparationCache(DSeparationCache)
+ * @see CompactDSeparationKey
+ * @see CompactDSeparationCache
+ * @see LruDSeparationCache
+ */
+public interface DSeparationCache {
+
+	/**
+	 * Returns the cached score of a d-separation query, counting a hit or a miss.
+	 * @param x the index of the first node.
+	 * @param y the index of the second node.
+	 * @param conditioningSet the bitset of indexes of the conditioning nodes.
+	 * @return the cached score, or {@link Double#NaN} if the query is not cached.
+	 */
+	double get(int x, int y, long[] conditioningSet);
+
+	/**
+	 * Stores the score of a d-separation query, evicting other entries if the cache is full. The conditioning bitset is copied.
+	 * @param x the index of the first node.
+	 * @param y the index of the second node.
+	 * @param conditioningSet the bitset of indexes of the conditioning nodes.
+	 * @param score the score of the query.
+	 */
+	void put(int x, int y, long[] conditioningSet, double score);
+
+	/**
+	 * Removes every entry of the cache. The counters are not reset.
+	 */
+	void clear();
+
+	/**
+	 * Returns the number of entries currently stored in the cache.
+	 * @return the number of entries.
+	 */
+	int size();
+
+	/**
+	 * Returns the number of lookups that found a cached score.
+	 * @return the number of hits.
+	 */
+	long getHits();
+
+	/**
+	 * Returns the number of lookups that did not find a cached score.
+	 * @return the number of misses.
+	 */
+	long getMisses();
+
+	/**
+	 * Returns the number of entries evicted to keep the cache within its budget.
+	 * @return the number of evictions.
+	 */
+	long getEvictions();
+}
@@ -0,0 +1,197 @@
+package es.uclm.i3a.simd.consensusBN;
+
+import java.util.List;
+
+import edu.cmu.tetrad.graph.Dag;
+import edu.cmu.tetrad.graph.Edge;
+import edu.cmu.tetrad.graph.Node;
+
+/**
+ * Number of DAGs, out of a set of DAGs over the same nodes, in which each pair of nodes is adjacent.
+ * The counts are stored in the upper triangle of a matrix, packed into a {@code short[]} with one entry per unordered pair of nodes,
+ * so that the count of an edge is read in constant time instead of probing every DAG.
+ *
+ * {@link ConsensusUnion} fills it with the transformed DAGs while it builds the union, indexing the nodes by the alpha order.
+ * The counts are stored as unsigned 16-bit values, so at most {@link #MAX_DAGS} DAGs can be added.
+ *
+ * @see ConsensusUnion#getEdgeCounts()
+ * @see BackwardEquivalenceSearchDSep
+ */
+public class EdgeCountMatrix {
+
+	/**
+	 * Maximum number of DAGs whose edges can be counted.
+	 */
+	public static final int MAX_DAGS = 0xFFFF;
+
+	/**
+	 * Empty bitset DAG whose node index is used to translate nodes into indexes.
+	 */
+	private final BitsetDag nodeIndex;
+
+	/**
+	 * Number of DAGs containing each pair of nodes, as unsigned values. The pair (i, j), with i &lt; j, is stored at {@link #pairIndex(int, int, int)}.
+	 */
+	private final short[] counts;
+
+	/**
+	 * Number of DAGs added so far.
+	 */
+	private int numDags = 0;
+
+	/**
+	 * Constructor for an EdgeCountMatrix without DAGs over the given list of nodes.
+	 * @param nodes the list of nodes. The position of each node in the list is its index.
+	 * @throws IllegalArgumentException if the list of nodes contains duplicates.
+	 */
+	public EdgeCountMatrix(List<Node> nodes) {
+		this(new BitsetDag(nodes));
+	}
+
+	/**
+	 * Constructor for an EdgeCountMatrix without DAGs that shares the node index of a bitset DAG.
+	 * @param nodeIndex the bitset DAG whose node index is used.
+	 */
+	EdgeCountMatrix(BitsetDag nodeIndex) {
+		this.nodeIndex = nodeIndex.emptyCopy();
+		this.counts = new short[numPairs(nodeIndex.getNumNodes())];
+	}
+
+	/**
+	 * Adds the edges of a bitset DAG to the counts.
+	 * @param dag the bitset DAG to add, indexed by the same list of nodes.
+	 * @throws IllegalArgumentException if the DAG is not indexed by the same list of nodes.
+	 * @throws IllegalStateException if {@link #MAX_DAGS} DAGs have already been added.
+	 */
+	public void add(BitsetDag dag) {
+		if (!dag.getNodes().equals(this.nodeIndex.getNodes())) {
+			throw new IllegalArgumentException("The DAG must be indexed by the same list of nodes.");
+		}
+		checkCapacity();
+		for (int child = 0; child < dag.getNumNodes(); child++) {
+			long[] parents = dag.getParents(child);
+			for (int parent = Bitsets.nextSetBit(parents, 0); parent >= 0; parent = Bitsets.nextSetBit(parents, parent + 1)) {
+				this.counts[pairIndex(parent, child)]++;
+			}
+		}
+		this.numDags++;
+	}
+
+	/**
+	 * Adds the edges of a Tetrad DAG to the counts.
+	 * @param dag the DAG to add, whose nodes must be in the list of nodes.
+	 * @throws IllegalArgumentException if the DAG contains a node that is not in the list of nodes.
+	 * @throws IllegalStateException if {@link #MAX_DAGS} DAGs have already been added.
+	 */
+	public void add(Dag dag) {
+		checkCapacity();
+		// The pairs are collected first, so that the counts are not changed if a node is not in the list
+		int[] pairs = new int[dag.getNumEdges()];
+		int numPairs = 0;
+		for (Edge edge : dag.getEdges()) {
+			pairs[numPairs++] = pairIndex(indexOf(edge.getNode1()), indexOf(edge.getNode2()));
+		}
+		for (int i = 0; i < numPairs; i++) {
+			this.counts[pairs[i]]++;
+		}
+		this.numDags++;
+	}
+
+	/**
+	 * Returns the number of DAGs in which two nodes are adjacent.
+	 * @param a the first node.
+	 * @param b the second node.
+	 * @return the number of DAGs with an edge between both nodes, in any direction. It is 0 if both nodes are the same.
+	 * @throws IllegalArgumentException if a node is not in the list of nodes.
+	 */
+	public int getCount(Node a, Node b) {
+		return getCount(indexOf(a), indexOf(b));
+	}
+
+	/**
+	 * Returns the number of DAGs in which two nodes are adjacent.
+	 * @param a the index of the first node.
+	 * @param b the index of the second node.
+	 * @return the number of DAGs with an edge between both nodes, in any direction. It is 0 if both nodes are the same.
+	 */
+	int getCount(int a, int b) {
+		if (a == b) {
+			return 0;
+		}
+		return Short.toUnsignedInt(this.counts[pairIndex(a, b)]);
+	}
+
+	/**
+	 * Returns the number of DAGs added so far.
+	 * @return the number of DAGs.
+	 */
+	public int getNumDags() {
+		return this.numDags;
+	}
+
+	/**
+	 * Returns the list of nodes. The position of each node in this list is its index.
+	 * @return the unmodifiable list of nodes.
+	 */
+	public List<Node> getNodes() {
+		return this.nodeIndex.getNodes();
+	}
+
+	/**
+	 * Returns the index of a node.
+	 * @param node the node to look up.
+	 * @return the index of the node.
+	 * @throws IllegalArgumentException if the node is not in the list of nodes.
+	 */
+	private int indexOf(Node node) {
+		int index = this.nodeIndex.getIndex(node);
+		if (index < 0) {
+			throw new IllegalArgumentException("Node " + node + " is not in the list of nodes.");
+		}
+		return index;
+	}
+
+	/**
+	 * Checks that another DAG can be added without overflowing the counts.
+	 * @throws IllegalStateException if {@link #MAX_DAGS} DAGs have already been added.
+	 */
+	private void checkCapacity() {
+		if (this.numDags == MAX_DAGS) {
+			throw new IllegalStateException("At most " + MAX_DAGS + " DAGs can be counted.");
+		}
+	}
+
+	/**
+	 * Returns the position of an unordered pair of nodes in the packed upper triangle of the counts.
+	 * @param a the index of the first node.
+	 * @param b the index of the second node, different from the first one.
+	 * @return the position of the pair in the counts.
+	 */
+	private int pairIndex(int a, int b) {
+		return pairIndex(a, b, this.nodeIndex.getNumNodes());
+	}
+
+	/**
+	 * Returns the number of unordered pairs of different nodes, which is the length of a packed upper triangle.
+	 * @param numNodes the number of nodes.
+	 * @return the number of pairs of nodes.
+	 * @throws ArithmeticException if the number of pairs does not fit in an int.
+	 */
+	static int numPairs(int numNodes) {
+		long n = numNodes;
+		return Math.toIntExact(n * (n - 1) / 2);
+	}
+
+	/**
+	 * Returns the position of an unordered pair of nodes in a packed upper triangle, where the pairs (0, 1), (0, 2), ..., (1, 2), ... are stored in order.
+	 * @param a the index of the first node.
+	 * @param b the index of the second node, different from the first one.
+	 * @param numNodes the number of nodes.
+	 * @return the position of the pair, between 0 and {@link #numPairs(int)} - 1.
+	 */
+	static int pairIndex(int a, int b, int numNodes) {
+		long i = Math.min(a, b);
+		long j = Math.max(a, b);
+		return (int) (i * (2L * numNodes - i - 1) / 2 + (j - i - 1));
+	}
+}
@@ -49,9 +49,10 @@ public class HeuristicConsensusBES extends ConsensusBES{
         // 1. Apply ConsensusUnion
         consensusUnion();
         // 2. Apply Heuristic BES with D-separation
-        BackwardEquivalenceSearchDSep bes = new BackwardEquivalenceSearchDSep(this.getUnion(), this.getInputDags(), this.getTransformedDags());
+        BackwardEquivalenceSearchDSep bes = createBackwardSearch();
         bes.setMaxSize(maxSize);
         bes.setPercentage(percentage);
+        configure(bes);
         this.outputDag = bes.applyBackwardEliminationWithDSeparation();
         // 3. Updating numberOfInsertedEdges
         this.numberOfInsertedEdges -= bes.getNumberOfRemovedEdges();
@@ -11,8 +11,13 @@
 package es.uclm.i3a.simd.consensusBN;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
 
 import edu.cmu.tetrad.graph.Dag;
+import edu.cmu.tetrad.graph.Node;
 
 
 /**
@@ -26,8 +31,6 @@ import edu.cmu.tetrad.graph.Dag;
 public final class HierarchicalAgglomerativeClustererBNs {
 
     ArrayList<Dag> setOfBNs = null;
-    Dag[][] clustersBN = null;
-    boolean [][][] clustersIndexes = null;
     double averageNEdges = 0.00;
     double maxComplexityCluster = Double.MAX_VALUE;
     int maxSize = 0;
@@ -41,13 +44,146 @@ public final class HierarchicalAgglomerativeClustererBNs {
     double[] clusterComplexity = null;
     
     PairWiseConsensusBES[][] dissimilarityMatrix = null;
-	private int[][] clustersInsertedEdges;
+
+    /**
+     * DAG of each cluster while cluster() runs, or null once the cluster has been merged into another one.
+     */
+    private Dag[] currentClusters = null;
+
+    /**
+     * Number of merges recorded in the merge history, which is also the last level of the clustering.
+     */
+    private int numberOfMerges = 0;
+
+    /**
+     * Merge history, indexed by level from 1: the cluster that holds the merge of each level, which keeps its index.
+     */
+    private int[] mergedInto = null;
+
+    /**
+     * Merge history, indexed by level from 1: the cluster merged into the other one at each level, which disappears.
+     */
+    private int[] mergedFrom = null;
+
+    /**
+     * Merge history, indexed by level from 1: the fusion DAG of the cluster created at each level.
+     */
+    private Dag[] mergedDags = null;
+
+    /**
+     * Merge history, indexed by level from 1: the number of edges inserted by the fusion of each level.
+     */
+    private int[] mergedInsertedEdges = null;
+
+    /**
+     * Medoid of the cluster created at each level, indexed by level from 1. Only the levels up to medoidLevel have been computed.
+     * They are computed level by level when computeConsensusDag needs them, updating the total distance of each network to the rest of its cluster.
+     */
+    private int[] mergedMedoids = null;
+
+    /**
+     * Last level whose medoid has been computed. The medoids of later levels are computed from here, without replaying the previous levels.
+     */
+    private int medoidLevel = 0;
+
+    /**
+     * Total distance of each network to the rest of its cluster at medoidLevel.
+     */
+    private int[] medoidSums = null;
+
+    /**
+     * Members of each cluster at medoidLevel, as linked lists starting at the index of the cluster: the next member of each network, or -1.
+     */
+    private int[] medoidNext = null;
+
+    /**
+     * Last member of the linked list of each cluster at medoidLevel.
+     */
+    private int[] medoidLast = null;
+
+    /**
+     * Consensus DAG of the medoids of each level, or null if it has not been computed yet.
+     */
+    private Dag[] consensusDags = null;
+
+    /**
+     * Number of edges inserted by the consensus DAG of each level that has been computed.
+     */
+    private int[] consensusInsertedEdges = null;
+
+    /**
+     * Number of threads used to fuse the pairs of clusters. The pairs are independent, so the clustering does not depend on it.
+     */
+    private int parallelism = 1;
+
+    /**
+     * Listener notified each time a pair of the initial dissimilarity matrix has been fused, or null.
+     */
+    private ProgressListener progressListener = null;
+
+    /**
+     * Pool of threads used during cluster() when the parallelism is greater than 1.
+     */
+    private ForkJoinPool pool = null;
+
+    /**
+     * Hamming distance of the pair of clusters of each non-null cell of the dissimilarity matrix, computed once when the cell is set.
+     */
+    private int[][] hammingDistances = null;
+
+    /**
+     * Number of edges of the union of the pair of clusters of each non-null cell of the dissimilarity matrix, used to break ties.
+     */
+    private int[][] unionEdges = null;
+
+    /**
+     * Whether the most similar pair is found from the nearest neighbour of each cluster, which is kept up to date after each merge,
+     * instead of scanning the whole dissimilarity matrix. Both modes merge the same pairs. Set to true by default.
+     */
+    private boolean nearestNeighbourSearch = true;
+
+    /**
+     * For each active cluster a, the cluster b &gt; a with the lowest dissimilarity to it, or -1 if there is none.
+     * Ties are broken as in the scan of the matrix: by the number of union edges, then by the lowest b.
+     */
+    private int[] nearestNeighbours = null;
+
+    /**
+     * Number of nearest networks, by skeleton Hamming distance, that each network is fused with to build the initial dissimilarity matrix,
+     * or 0 to fuse every pair. Set to 0 by default.
+     */
+    private int candidateNeighbours = 0;
+
+    /**
+     * Whether each pair of clusters is a candidate to be fused, when candidateNeighbours is greater than 0. A merged cluster is a candidate
+     * of the clusters that were candidates of any of its two parts.
+     */
+    private boolean[][] candidates = null;
+
+    /**
+     * Hamming distance between the skeletons of each pair of input networks, computed when candidateNeighbours is greater than 0.
+     * It stands in for the distance of the pairwise fusion of the pairs that were not fused, when the medoids are computed.
+     */
+    private int[][] skeletonDistances = null;
+
+    /**
+     * Listener of the progress of the initial dissimilarity matrix, which needs n(n-1)/2 pairwise fusions, or fewer in the approximate mode.
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+
+        /**
+         * Called after each pairwise fusion of the initial dissimilarity matrix. Calls are never concurrent and the number of fused pairs
+         * increases by one on each call, but they can come from the worker threads.
+         * @param completed the number of pairs fused so far.
+         * @param total the number of pairs fused for the matrix.
+         */
+        void progress(int completed, int total);
+    }
    
     
     public HierarchicalAgglomerativeClustererBNs(ArrayList<Dag> setOfBNs, int maxSize) {
         this.setOfBNs = setOfBNs;
-        this.clustersBN = new Dag[setOfBNs.size()][setOfBNs.size()];
-        this.clustersIndexes = new boolean[setOfBNs.size()][setOfBNs.size()][setOfBNs.size()];
         for(int i=  0 ; i< setOfBNs.size(); i++){
         	this.averageNEdges+=(double) setOfBNs.get(i).getNumEdges();
         }
@@ -57,13 +193,10 @@ public final class HierarchicalAgglomerativeClustererBNs {
         this.indexUsed = new boolean[nDags];
         this.clusterCardinalities = new int[nDags];
         this.clusterComplexity = new double[nDags];
-        this.clustersInsertedEdges = new int[setOfBNs.size()][setOfBNs.size()];
     }
     
     public HierarchicalAgglomerativeClustererBNs(ArrayList<Dag> setOfBNs, double maxComplexity) {
         this.setOfBNs = setOfBNs;
-        this.clustersBN = new Dag[setOfBNs.size()][setOfBNs.size()];
-        this.clustersIndexes = new boolean[setOfBNs.size()][setOfBNs.size()][setOfBNs.size()];
         for(int i=  0 ; i< setOfBNs.size(); i++){
         	this.averageNEdges+=(double) setOfBNs.get(i).getNumEdges();
         }
@@ -74,7 +207,6 @@ public final class HierarchicalAgglomerativeClustererBNs {
         this.indexUsed = new boolean[nDags];
         this.clusterCardinalities = new int[nDags];
         this.clusterComplexity = new double[nDags];
-        this.clustersInsertedEdges = new int[setOfBNs.size()][setOfBNs.size()];
     }
     
 //    public HierarchicalAgglomerativeClustererBNs(ArrayList<BayesIm> setOfBNs, int sampleSize) {
@@ -93,8 +225,93 @@ public final class HierarchicalAgglomerativeClustererBNs {
     public ArrayList<Dag> getSetOfBNs() {
         return this.setOfBNs;
     }
+
+    /**
+     * Sets the number of threads used to compute the dissimilarity matrix and to update it after each merge.
+     * The clustering does not depend on it.
+     * @param parallelism the number of threads, must be at least 1.
+     * @throws IllegalArgumentException if the parallelism is lower than 1.
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Returns the number of threads used to compute the dissimilarity matrix.
+     * @return the parallelism, 1 by default.
+     */
+    public int getParallelism() {
+        return this.parallelism;
+    }
+
+    /**
+     * Sets the listener notified of the progress of the initial dissimilarity matrix.
+     * @param progressListener the listener, or null to remove it.
+     */
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Sets an approximate mode where only promising pairs are fused. Each network is compared with the rest by the Hamming distance between their
+     * skeletons, which is computed with bitwise operations, and it is only fused with its k nearest networks (ties broken by the lowest index).
+     * The pairs that are not fused are never merged directly, and after a merge only the candidates of either part are fused with the new cluster.
+     * This reduces the initial matrix from n(n-1)/2 fusions to at most n*k fusions, and no other pair of networks is ever fused: when computeConsensusDag
+     * chooses the medoid of a cluster, the distance between two members that were not fused is their skeleton Hamming distance instead.
+     * @param candidateNeighbours the number k of nearest networks, or 0 to fuse every pair as in the exact mode.
+     * @throws IllegalArgumentException if the number is negative.
+     */
+    public void setCandidateNeighbours(int candidateNeighbours) {
+        if (candidateNeighbours < 0) {
+            throw new IllegalArgumentException("The number of candidate neighbours cannot be negative");
+        }
+        this.candidateNeighbours = candidateNeighbours;
+    }
+
+    /**
+     * Returns the number of nearest networks each network is fused with to build the initial dissimilarity matrix.
+     * @return the number of candidate neighbours, 0 if every pair is fused.
+     */
+    public int getCandidateNeighbours() {
+        return this.candidateNeighbours;
+    }
+
+    /**
+     * Sets whether the most similar pair of clusters is found from the cached nearest neighbour of each cluster, which takes O(n) time per merge
+     * plus O(n) for each cluster whose nearest neighbour was one of the merged clusters, instead of scanning the whole dissimilarity matrix,
+     * which takes O(n^2) time per merge. Both modes merge the same pairs in the same order.
+     * @param nearestNeighbourSearch true to use the nearest neighbours, false to scan the matrix.
+     */
+    public void setNearestNeighbourSearch(boolean nearestNeighbourSearch) {
+        this.nearestNeighbourSearch = nearestNeighbourSearch;
+    }
+
+    /**
+     * Returns whether the most similar pair of clusters is found from the cached nearest neighbour of each cluster.
+     * @return true if the nearest neighbours are used, false if the whole matrix is scanned.
+     */
+    public boolean isNearestNeighbourSearch() {
+        return this.nearestNeighbourSearch;
+    }
     
     public int cluster() {
+        if (this.parallelism > 1) {
+            this.pool = new ForkJoinPool(this.parallelism);
+        }
+        try {
+            return agglomerate();
+        } finally {
+            if (this.pool != null) {
+                this.pool.shutdown();
+                this.pool = null;
+            }
+        }
+    }
+
+    private int agglomerate() {
     	 
        // Perform nObservations-1 agglomerations
         
@@ -102,15 +319,39 @@ public final class HierarchicalAgglomerativeClustererBNs {
             indexUsed[i] = true;
             clusterCardinalities[i] = 1;
             clusterComplexity[i] = setOfBNs.get(i).getNumEdges()/this.averageNEdges;
-            clustersBN[i][0] = setOfBNs.get(i);
-            clustersIndexes[i][i][0] = true;
         }
+        this.currentClusters = new Dag[nDags];
+        for (int i = 0; i<nDags; i++) {
+            this.currentClusters[i] = setOfBNs.get(i);
+        }
+        this.numberOfMerges = 0;
+        this.mergedInto = new int[nDags];
+        this.mergedFrom = new int[nDags];
+        this.mergedDags = new Dag[nDags];
+        this.mergedInsertedEdges = new int[nDags];
+        this.mergedMedoids = new int[nDags];
+        this.medoidLevel = 0;
+        this.medoidSums = new int[nDags];
+        this.medoidNext = new int[nDags];
+        this.medoidLast = new int[nDags];
+        for (int c = 0; c<nDags; c++) {
+            this.medoidNext[c] = -1;
+            this.medoidLast[c] = c;
+        }
+        this.consensusDags = new Dag[nDags];
+        this.consensusInsertedEdges = new int[nDags];
         
         computeDissimilarityMatrix();
+        if (this.nearestNeighbourSearch) {
+            this.nearestNeighbours = new int[nDags];
+            for (int c = 0; c<nDags; c++) {
+                this.nearestNeighbours[c] = findNearestNeighbour(c);
+            }
+        }
        
         for (int a = 1; a<nDags; a++) {
             // Determine the two most similar clusters, i and j (such that i<j)
-            final Pair pair = findMostSimilarClusters();
+            final Pair pair = this.nearestNeighbourSearch ? findMostSimilarNeighbours() : findMostSimilarClusters();
             final int i = pair.getSmaller();
             final int j = pair.getLarger();
             if(i==j){
@@ -129,152 +370,232 @@ public final class HierarchicalAgglomerativeClustererBNs {
             merge(i, j, d , a);
             clusterCardinalities[i] = clusterCardinalities[i]+clusterCardinalities[j];
             clusterCardinalities[j] = 0;
-            clusterComplexity[i] = clustersBN[i][a].getNumEdges()/averageNEdges;
+            clusterComplexity[i] = currentClusters[i].getNumEdges()/averageNEdges;
             clusterComplexity[j] = 0.0;
-//            System.out.println(" Indices de los Cluster a nivel: "+a);
-//            for(int c = 0 ; c< setOfBNs.size();c++){
-//            	System.out.print(" Indices cluster: "+c+ " ( ");
-//            	for(int g = 0; g<setOfBNs.size(); g++){
-//            		if(this.clustersIndexes[c][g][a]) System.out.print(g+", ");
-//            	}
-//            	System.out.println(") ");
-//            }
             
             // erase cluster j
             indexUsed[j] = false;
             for (int k = 0; k<nDags; k++) {
-                dissimilarityMatrix[j][k] = null;
-                dissimilarityMatrix[k][j] = null;
+                setDissimilarity(j, k, null);
             }
             
             // cluster i becomes new cluster
             // (by agglomerating former clusters i and j)
             // update dissimilarityMatrix[i][*] and dissimilarityMatrix[*][i]
             // if(clusterCardinalities[i] > maxSize) return a;
+            if (candidates != null) {
+            	for (int k = 0; k<nDags; k++) {
+            		candidates[i][k] = candidates[i][k] || candidates[j][k];
+            		candidates[k][i] = candidates[i][k];
+            	}
+            }
             if((clusterComplexity[i]<= maxComplexityCluster&&maxSize==0)||(maxSize>0 && clusterCardinalities[i]<=maxSize)){
+            	int[] firsts = new int[nDags];
+            	int[] seconds = new int[nDags];
+            	int numPairs = 0;
             	for (int k = 0; k<nDags; k++) {
-            		if ((k!=i)&&(k!=j)&&indexUsed[k]) {
-            			PairWiseConsensusBES dissimilarity = computeDissimilarity(i,k,a);
-            			dissimilarityMatrix[i][k] = dissimilarity;
-            			dissimilarityMatrix[k][i] = dissimilarity;
+            		if ((k!=i)&&(k!=j)&&indexUsed[k]&&(candidates==null||candidates[i][k])) {
+            			firsts[numPairs] = i;
+            			seconds[numPairs++] = k;
             		}
             	}
+            	PairWiseConsensusBES[] dissimilarities = computeDissimilarities(firsts, seconds, numPairs, a, null);
+            	for (int p = 0; p<numPairs; p++) {
+            		int k = seconds[p];
+            		setDissimilarity(i, k, dissimilarities[p]);
+            	}
             }else indexUsed[i] = false;
+            if (this.nearestNeighbourSearch) {
+            	updateNearestNeighbours(i, j);
+            }
         }
         return nDags;
     }
     
+    /**
+     * Computes the consensus DAG of a level as the fusion of the medoids of its clusters, the network of each cluster with the lowest total
+     * Hamming distance to the rest of its members (the lowest index in case of ties). The DAG of each level is only computed on the first call,
+     * and the following calls return the same DAG; the number of inserted edges is updated on every call.
+     * At the level after the last one, the DAG of the first remaining cluster is returned instead.
+     * @param level the level of the clustering.
+     * @return the consensus DAG of the level, or null if there is no such level.
+     */
     public Dag computeConsensusDag(int level){
 
     	if (level <= this.maxLevel && level > 0 && this.initialpairwisedistance!=null){
-    		int[] distance = new int[this.setOfBNs.size()];
-    		int[] index = new int[this.setOfBNs.size()];
-    		for(int i = 0; i< this.setOfBNs.size(); i++){
-    			distance[i] = 0;
-    			index[i] = -1;
-    		}
-
-    		for(int cluster = 0 ; cluster < this.setOfBNs.size();cluster++ ){
-    			int bestDistance = Integer.MAX_VALUE;
-    			for(int j = 0; j< this.setOfBNs.size(); j++){
-    				for(int k = 0; k< this.setOfBNs.size(); k++){
-    					if(this.clustersIndexes[cluster][j][level]&&this.clustersIndexes[cluster][k][level]&&(j!=k)){
-        					distance[j]+=this.initialpairwisedistance[j][k].calculateHammingDistance();//getNumberOfInsertedEdges();
-    					}
-    				}
-    				if(clustersIndexes[cluster][j][level]&&distance[j]<bestDistance){
-    					bestDistance = distance[j];
-    					index[cluster] = j;
-    				}
-    			}
-    		}
-    		ArrayList<Dag> setOfDags = new ArrayList<Dag>();
-    		for (int cluster = 0; cluster < this.setOfBNs.size(); cluster++){
-    			if(index[cluster]!=-1) setOfDags.add(this.setOfBNs.get(index[cluster]));
-    		}
-    		ConsensusBES fus = new ConsensusBES(setOfDags);
-    		fus.fusion();
-    		this.numberOfInsertedEdges = fus.getNumberOfInsertedEdges();
-    		return fus.getFusionDag();
-    	}else{
-    		if(level == this.maxLevel+1){
-    			for(int cluster =0 ; cluster < this.setOfBNs.size(); cluster++){
-    				for(int index =0; index < this.setOfBNs.size(); index++){
-    					if(this.clustersIndexes[cluster][index][level-1]){
-    						return this.clustersBN[cluster][level-1];
-    					}
-    				}
+    		// The consensus DAG of each level is computed once
+    		if(this.consensusDags[level] == null){
+    			ArrayList<Dag> setOfDags = new ArrayList<Dag>();
+    			for(int medoid : getMedoids(level)){
+    				setOfDags.add(this.setOfBNs.get(medoid));
     			}
+    			ConsensusBES fus = new ConsensusBES(setOfDags);
+    			fus.fusion();
+    			this.consensusInsertedEdges[level] = fus.getNumberOfInsertedEdges();
+    			this.consensusDags[level] = fus.getFusionDag();
     		}
-    		else return null;
+    		this.numberOfInsertedEdges = this.consensusInsertedEdges[level];
+    		return this.consensusDags[level];
+    	}else if(level == this.maxLevel+1){
+    		ArrayList<Dag> clusters = getClustersOutput(level-1);
+    		return clusters.isEmpty() ? null : clusters.get(0);
     	}
     	return null;
     }
     
     
     public int getInsertedEdges(int level){
-    	int insertedEdges = 0;
-    	for(int cluster=0; cluster< this.setOfBNs.size(); cluster++){
-    		if(clustersBN[cluster][level]!= null){
-    			insertedEdges+= clustersInsertedEdges[cluster][level];
+    	Dag[] clusters = new Dag[nDags];
+    	int[] insertedEdges = new int[nDags];
+    	replay(level, clusters, insertedEdges);
+    	int total = 0;
+    	for(int cluster=0; cluster< nDags; cluster++){
+    		if(clusters[cluster]!= null){
+    			total+= insertedEdges[cluster];
     		}
     	}
-    	return insertedEdges;
+    	return total;
     }
     
     
     public ArrayList<Dag> getClustersOutput(int level){
     	
-    	ArrayList<Dag> clusters = new ArrayList<Dag>();
-    	for(int cluster = 0; cluster< this.setOfBNs.size(); cluster++){
-    		if(this.clustersBN[cluster][level]!= null)
-    			clusters.add(this.clustersBN[cluster][level]);
+    	Dag[] clusters = new Dag[nDags];
+    	replay(level, clusters, new int[nDags]);
+    	ArrayList<Dag> output = new ArrayList<Dag>();
+    	for(int cluster = 0; cluster< nDags; cluster++){
+    		if(clusters[cluster]!= null)
+    			output.add(clusters[cluster]);
     	}
     	
-    	return clusters;
+    	return output;
     	
     }
+
+    /**
+     * Returns the number of merges performed by the last call to cluster(), which is the last level with clusters.
+     * @return the number of recorded merges, 0 if cluster() has not been called.
+     */
+    public int getNumberOfMerges() {
+        return this.numberOfMerges;
+    }
+
+    /**
+     * Returns the pair of clusters merged at a level of the dendrogram. The clusters are identified by the index of their first input DAG,
+     * and the merged cluster keeps the lowest index.
+     * @param level the level of the merge, from 1 to getNumberOfMerges().
+     * @return the indexes of the two merged clusters, the lowest one first.
+     * @throws IllegalArgumentException if there is no merge at that level.
+     */
+    public int[] getMerge(int level) {
+        if (level < 1 || level > this.numberOfMerges) {
+            throw new IllegalArgumentException("There is no merge at level " + level);
+        }
+        return new int[] {this.mergedInto[level], this.mergedFrom[level]};
+    }
+
+    /**
+     * Rebuilds the clusters of a level by replaying the merge history from the input DAGs.
+     * Levels after the last merge, or any level before cluster() is called, have no clusters.
+     * @param level the level to rebuild.
+     * @param clusters the array where the DAG of each cluster is stored, null if there is no cluster with that index.
+     * @param insertedEdges the array where the number of edges inserted by the fusion of each cluster is stored.
+     * @throws IllegalArgumentException if the level is negative or not lower than the number of input DAGs.
+     */
+    private void replay(int level, Dag[] clusters, int[] insertedEdges) {
+    	if (level < 0 || level >= nDags) {
+    		throw new IllegalArgumentException("The level must be between 0 and " + (nDags-1));
+    	}
+    	if (this.currentClusters == null || level > this.numberOfMerges) {
+    		return;
+    	}
+    	for (int c = 0; c<nDags; c++) {
+    		clusters[c] = this.setOfBNs.get(c);
+    	}
+    	for (int m = 1; m<=level; m++) {
+    		int i = this.mergedInto[m];
+    		int j = this.mergedFrom[m];
+    		clusters[i] = this.mergedDags[m];
+    		insertedEdges[i] = this.mergedInsertedEdges[m];
+    		clusters[j] = null;
+    	}
+    }
+
+    /**
+     * Returns the medoids of the clusters of a level, in the order of the clusters. Only the medoids up to that level are computed.
+     * @param level the level of the clustering, between 1 and the number of merges.
+     * @return the index of the medoid of each cluster.
+     */
+    int[] getMedoids(int level) {
+    	computeMedoids(level);
+    	Dag[] clusters = new Dag[nDags];
+    	replay(level, clusters, new int[nDags]);
+    	int[] medoids = new int[nDags];
+    	for (int c = 0; c<nDags; c++) {
+    		medoids[c] = c;
+    	}
+    	for (int m = 1; m<=level; m++) {
+    		medoids[this.mergedInto[m]] = this.mergedMedoids[m];
+    	}
+    	int count = 0;
+    	for (int c = 0; c<nDags; c++) {
+    		if (clusters[c] != null) {
+    			medoids[count++] = medoids[c];
+    		}
+    	}
+    	return Arrays.copyOf(medoids, count);
+    }
+
+    /**
+     * Computes the medoid of the cluster created at each level up to the given one, resuming from the last level computed by a previous call.
+     * The total distance of each network to the rest of its cluster is kept up to date as the merges are replayed: merging two clusters only adds
+     * the distances between the members of one and the other, so each pair of networks that end up in the same cluster is visited once over all the levels.
+     * @param level the last level whose medoid is needed.
+     */
+    private void computeMedoids(int level) {
+    	for (int m = this.medoidLevel+1; m<=Math.min(level, this.numberOfMerges); m++) {
+    		int i = this.mergedInto[m];
+    		int j = this.mergedFrom[m];
+    		for (int a = i; a >= 0; a = this.medoidNext[a]) {
+    			for (int b = j; b >= 0; b = this.medoidNext[b]) {
+    				int distance = initialPairwiseDistance(a, b);
+    				this.medoidSums[a] += distance;
+    				this.medoidSums[b] += distance;
+    			}
+    		}
+    		this.medoidNext[this.medoidLast[i]] = j;
+    		this.medoidLast[i] = this.medoidLast[j];
+    		int medoid = i;
+    		for (int a = i; a >= 0; a = this.medoidNext[a]) {
+    			if (this.medoidSums[a] < this.medoidSums[medoid] || (this.medoidSums[a] == this.medoidSums[medoid] && a < medoid)) {
+    				medoid = a;
+    			}
+    		}
+    		this.mergedMedoids[m] = medoid;
+    		this.medoidLevel = m;
+    	}
+    }
     
     public int getNumberOfInsertedEdges(){
 		return this.numberOfInsertedEdges;
 	}
     
     private void merge(int i, int j, PairWiseConsensusBES d, int level) {
-		
-    	for(int u = 0; u < this.getSetOfBNs().size(); u++){
-    		for(int v = 0; v < this.getSetOfBNs().size(); v++){
-    			this.clustersIndexes[u][v][level] = this.clustersIndexes[u][v][level-1];
-    		}
-    	}
-    	
-    	for(int ant = 0 ; ant < this.getSetOfBNs().size(); ant++){
-    		if(this.clustersIndexes[j][ant][level]){
-    			this.clustersIndexes[i][ant][level] = true;
-    		}
-    	}
-    	
-    	for(int ant = 0 ; ant <this.getSetOfBNs().size(); ant++){
-//    		this.clustersIndexes[ant][j][level] = false;
-    		this.clustersIndexes[j][ant][level] = false;
-    	}
-  
-    	
-    	
-    	
-    	for (int c = 0; c < this.getSetOfBNs().size(); c++)
-    		if(c == i){
-    			this.clustersBN[c][level] = d.getDagFusion();
-    			this.clustersInsertedEdges[c][level] = d.getNumberOfInsertedEdges();
-    		}else{
-    			this.clustersBN[c][level] = this.clustersBN[c][level-1];
-    			this.clustersInsertedEdges[c][level] = this.clustersInsertedEdges[c][level-1];
-    		}
-    	this.clustersBN[j][level]= null;
+    	// Each merge is recorded once; the clusters of any level are rebuilt from this history when they are requested
+    	this.mergedInto[level] = i;
+    	this.mergedFrom[level] = j;
+    	this.mergedDags[level] = d.getDagFusion();
+    	this.mergedInsertedEdges[level] = d.getNumberOfInsertedEdges();
+    	this.numberOfMerges = level;
+    	this.currentClusters[i] = d.getDagFusion();
+    	this.currentClusters[j] = null;
 	}
 
 	
 	private void computeDissimilarityMatrix() {
         this.dissimilarityMatrix = new PairWiseConsensusBES[this.getSetOfBNs().size()][this.getSetOfBNs().size()];
+        this.hammingDistances = new int[this.getSetOfBNs().size()][this.getSetOfBNs().size()];
+        this.unionEdges = new int[this.getSetOfBNs().size()][this.getSetOfBNs().size()];
         this.initialpairwisedistance = new PairWiseConsensusBES[this.getSetOfBNs().size()][this.getSetOfBNs().size()];
         // fill diagonal
         for (int o = 0; o<dissimilarityMatrix.length; o++) {
@@ -283,27 +604,172 @@ public final class HierarchicalAgglomerativeClustererBNs {
         }
         // fill rest (only compute half, then mirror accross diagonal, assuming
         // a symmetric dissimilarity measure)
+        this.skeletonDistances = null;
+        this.candidates = this.candidateNeighbours > 0 ? findCandidates() : null;
+        int numPairs = 0;
+        for (int o1 = 0; o1<dissimilarityMatrix.length; o1++) {
+            for (int o2 = 0; o2<o1; o2++) {
+                if (candidates == null || candidates[o1][o2]) {
+                    numPairs++;
+                }
+            }
+        }
+        int[] firsts = new int[numPairs];
+        int[] seconds = new int[numPairs];
+        int p = 0;
         for (int o1 = 0; o1<dissimilarityMatrix.length; o1++) {
             for (int o2 = 0; o2<o1; o2++) {
-            	PairWiseConsensusBES dissimilarity = computeDissimilarity(o1, o2, 0);
-                dissimilarityMatrix[o1][o2] = dissimilarity;
-                dissimilarityMatrix[o2][o1] = dissimilarity;
-                this.initialpairwisedistance[o1][o2] = dissimilarity;
-                this.initialpairwisedistance[o2][o1] = dissimilarity;
+                if (candidates == null || candidates[o1][o2]) {
+                    firsts[p] = o1;
+                    seconds[p++] = o2;
+                }
+            }
+        }
+        PairWiseConsensusBES[] dissimilarities = computeDissimilarities(firsts, seconds, numPairs, 0, this.progressListener);
+        for (p = 0; p<numPairs; p++) {
+            int o1 = firsts[p];
+            int o2 = seconds[p];
+            PairWiseConsensusBES dissimilarity = dissimilarities[p];
+            setDissimilarity(o1, o2, dissimilarity);
+            this.initialpairwisedistance[o1][o2] = dissimilarity;
+            this.initialpairwisedistance[o2][o1] = dissimilarity;
+        }
+    }
+
+    /**
+     * Finds the pairs of networks to fuse in the approximate mode: each network and its candidateNeighbours nearest networks by skeleton Hamming distance.
+     * The skeleton Hamming distances are kept in skeletonDistances.
+     * @return the symmetric matrix of candidate pairs.
+     */
+    private boolean[][] findCandidates() {
+        long[][] skeletons = new long[nDags][];
+        List<Node> nodes = setOfBNs.get(0).getNodes();
+        BitsetDag nodeIndex = new BitsetDag(nodes);
+        for (int o = 0; o<nDags; o++) {
+            skeletons[o] = skeleton(nodeIndex, setOfBNs.get(o));
+        }
+        this.skeletonDistances = new int[nDags][nDags];
+        for (int o1 = 0; o1<nDags; o1++) {
+            for (int o2 = 0; o2<o1; o2++) {
+                int distance = Bitsets.xorCardinality(skeletons[o1], skeletons[o2]);
+                this.skeletonDistances[o1][o2] = distance;
+                this.skeletonDistances[o2][o1] = distance;
+            }
+        }
+        boolean[][] pairs = new boolean[nDags][nDags];
+        long[] keys = new long[nDags-1];
+        for (int o1 = 0; o1<nDags; o1++) {
+            // Sorting the rest of networks by distance, then by index
+            int count = 0;
+            for (int o2 = 0; o2<nDags; o2++) {
+                if (o2 != o1) {
+                    keys[count++] = ((long) this.skeletonDistances[o1][o2] << 32) | o2;
+                }
+            }
+            Arrays.sort(keys);
+            for (int n = 0; n<Math.min(this.candidateNeighbours, count); n++) {
+                int o2 = (int) keys[n];
+                pairs[o1][o2] = true;
+                pairs[o2][o1] = true;
+            }
+        }
+        return pairs;
+    }
+
+    /**
+     * Builds the skeleton of a DAG as a bitset with one bit per unordered pair of nodes, set if both nodes are adjacent.
+     * @param nodeIndex the bitset DAG whose node index is used.
+     * @param dag the DAG.
+     * @return the bitset of the adjacent pairs of nodes.
+     */
+    private static long[] skeleton(BitsetDag nodeIndex, Dag dag) {
+        BitsetDag bitsetDag = nodeIndex.emptyCopy();
+        bitsetDag.addEdgesFrom(dag);
+        int numNodes = bitsetDag.getNumNodes();
+        long[] skeleton = new long[Bitsets.words(EdgeCountMatrix.numPairs(numNodes))];
+        for (int child = 0; child<numNodes; child++) {
+            long[] parents = bitsetDag.getParents(child);
+            for (int parent = Bitsets.nextSetBit(parents, 0); parent >= 0; parent = Bitsets.nextSetBit(parents, parent + 1)) {
+                Bitsets.set(skeleton, EdgeCountMatrix.pairIndex(parent, child, numNodes));
             }
         }
+        return skeleton;
+    }
+
+    /**
+     * Returns the Hamming distance between two input networks after their pairwise fusion. In the approximate mode, the pairs that were not fused
+     * for the initial matrix are not fused now either, and the Hamming distance between their skeletons is returned instead.
+     * @param o1 the first network.
+     * @param o2 the second network, different from the first one.
+     * @return the Hamming distance of the pairwise fusion, or of the skeletons if the pair was not fused.
+     */
+    private int initialPairwiseDistance(int o1, int o2) {
+        if (this.initialpairwisedistance[o1][o2] == null) {
+            return this.skeletonDistances[o1][o2];
+        }
+        return this.initialpairwisedistance[o1][o2].calculateHammingDistance();
+    }
+
+    /**
+     * Sets the dissimilarity of a pair of clusters in both cells of the matrix, caching its Hamming distance and number of union edges.
+     * @param o1 the first cluster.
+     * @param o2 the second cluster.
+     * @param dissimilarity the fusion of both clusters, or null if they cannot be merged.
+     */
+    private void setDissimilarity(int o1, int o2, PairWiseConsensusBES dissimilarity) {
+        dissimilarityMatrix[o1][o2] = dissimilarity;
+        dissimilarityMatrix[o2][o1] = dissimilarity;
+        if (dissimilarity != null) {
+            int distance = dissimilarity.calculateHammingDistance();
+            int edges = dissimilarity.getNumberOfUnionEdges();
+            this.hammingDistances[o1][o2] = distance;
+            this.hammingDistances[o2][o1] = distance;
+            this.unionEdges[o1][o2] = edges;
+            this.unionEdges[o2][o1] = edges;
+        }
+    }
+
+    /**
+     * Computes the dissimilarity of several pairs of clusters, in parallel if the parallelism is greater than 1.
+     * Each pair is fused independently, so the result does not depend on the parallelism.
+     * @param firsts the first cluster of each pair.
+     * @param seconds the second cluster of each pair.
+     * @param numPairs the number of pairs.
+     * @param level the level of the clusters.
+     * @param listener the listener notified after each pair, or null.
+     * @return the dissimilarity of each pair, as computed by computeDissimilarity.
+     */
+    private PairWiseConsensusBES[] computeDissimilarities(int[] firsts, int[] seconds, int numPairs, int level, ProgressListener listener) {
+        PairWiseConsensusBES[] dissimilarities = new PairWiseConsensusBES[numPairs];
+        int[] completed = new int[1];
+        IntConsumer task = p -> {
+            dissimilarities[p] = computeDissimilarity(firsts[p], seconds[p], level);
+            if (listener != null) {
+                synchronized (completed) {
+                    listener.progress(++completed[0], numPairs);
+                }
+            }
+        };
+        if (this.pool == null) {
+            for (int p = 0; p<numPairs; p++) {
+                task.accept(p);
+            }
+            return dissimilarities;
+        }
+        Utils.runInPool(this.pool, numPairs, task, "computing the dissimilarity matrix");
+        return dissimilarities;
     }
 
     private PairWiseConsensusBES computeDissimilarity(int o1, int o2, int level) {
     	
     	
     	if (this.maxSize > 0 && (this.maxSize >= (this.clusterCardinalities[o1] + this.clusterCardinalities[o2]))|| level == 0){
-    		PairWiseConsensusBES pairBNs = new PairWiseConsensusBES(this.clustersBN[o1][level],this.clustersBN[o2][level]);
+    		PairWiseConsensusBES pairBNs = new PairWiseConsensusBES(this.currentClusters[o1],this.currentClusters[o2]);
     		PairWiseConsensusBES pairDag= (PairWiseConsensusBES) pairBNs;
     		pairDag.fusion();
     		return pairBNs;
     	}else if(this.maxSize == 0){
-    			PairWiseConsensusBES pairBNs = new PairWiseConsensusBES(this.clustersBN[o1][level],this.clustersBN[o2][level]);
+    			PairWiseConsensusBES pairBNs = new PairWiseConsensusBES(this.currentClusters[o1],this.currentClusters[o2]);
     			PairWiseConsensusBES pairDag= (PairWiseConsensusBES) pairBNs;
     			pairDag.fusion();
     			if((pairDag.getDagFusion().getNumEdges())/this.averageNEdges <= this.maxComplexityCluster|| level == 0)
@@ -325,14 +791,14 @@ public final class HierarchicalAgglomerativeClustererBNs {
                 		PairWiseConsensusBES inCluster = dissimilarityMatrix[cluster][neighbor];
                 		if(inCluster!= null){
                 			double complexity = 0.0;
-                			complexity = (float) inCluster.calculateHammingDistance();//getNumberOfInsertedEdges();
+                			complexity = (float) hammingDistances[cluster][neighbor];//getNumberOfInsertedEdges();
                 			if (indexUsed[neighbor]&&complexity<smallestDissimilarity&&cluster!=neighbor) {
                 				smallestDissimilarity = complexity;
-                				smallnEdgesUnion = (float) inCluster.getNumberOfUnionEdges();
+                				smallnEdgesUnion = (float) unionEdges[cluster][neighbor];
                 				mostSimilarPair.set(cluster, neighbor);
                 			}else if (indexUsed[neighbor]&&complexity==smallestDissimilarity&&cluster!=neighbor) {
-                				if(smallnEdgesUnion > (float) inCluster.getNumberOfUnionEdges()){
-                					smallnEdgesUnion = (float) inCluster.getNumberOfUnionEdges();
+                				if(smallnEdgesUnion > (float) unionEdges[cluster][neighbor]){
+                					smallnEdgesUnion = (float) unionEdges[cluster][neighbor];
                 					mostSimilarPair.set(cluster, neighbor);
                 				}  
                 			}
@@ -343,6 +809,89 @@ public final class HierarchicalAgglomerativeClustererBNs {
         }
         return mostSimilarPair;
     }
+
+    /**
+     * Finds the two most similar clusters from the nearest neighbour of each active cluster, in O(n) time.
+     * The rows are visited in increasing order and only a strictly closer pair replaces the current one, so the pair is the same
+     * that findMostSimilarClusters finds by scanning the whole matrix.
+     * @return the most similar pair, or a pair with the same cluster twice if no pair can be merged.
+     */
+    private Pair findMostSimilarNeighbours() {
+        final Pair mostSimilarPair = new Pair();
+        int best = -1;
+        for (int cluster = 0; cluster<nDags; cluster++) {
+            int neighbor = this.nearestNeighbours[cluster];
+            if (indexUsed[cluster] && neighbor >= 0
+                    && (best < 0 || isCloser(cluster, neighbor, best, this.nearestNeighbours[best]))) {
+                best = cluster;
+            }
+        }
+        if (best >= 0) {
+            mostSimilarPair.set(best, this.nearestNeighbours[best]);
+        }
+        return mostSimilarPair;
+    }
+
+    /**
+     * Finds the nearest neighbour of a cluster among the active clusters with a greater index.
+     * @param cluster the cluster.
+     * @return the nearest neighbour with a greater index, the lowest one in case of ties, or -1 if there is none.
+     */
+    private int findNearestNeighbour(int cluster) {
+        int nearest = -1;
+        if (indexUsed[cluster]) {
+            for (int neighbor = cluster+1; neighbor<nDags; neighbor++) {
+                if (indexUsed[neighbor] && dissimilarityMatrix[cluster][neighbor] != null
+                        && (nearest < 0 || isCloser(cluster, neighbor, cluster, nearest))) {
+                    nearest = neighbor;
+                }
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * Updates the nearest neighbours after merging cluster j into cluster i. The row of i is searched again, as well as the rows whose
+     * nearest neighbour was i or j. The other rows only need to compare their nearest neighbour with the new dissimilarity to i.
+     * @param i the cluster that holds the merge, which may have been deactivated if it is too large or complex.
+     * @param j the cluster merged into i, which is no longer active.
+     */
+    private void updateNearestNeighbours(int i, int j) {
+        for (int cluster = 0; cluster<nDags; cluster++) {
+            int nearest = this.nearestNeighbours[cluster];
+            if (!indexUsed[cluster]) {
+                this.nearestNeighbours[cluster] = -1;
+            } else if (cluster == i || nearest == i || nearest == j) {
+                this.nearestNeighbours[cluster] = findNearestNeighbour(cluster);
+            } else if (cluster < i && indexUsed[i] && dissimilarityMatrix[cluster][i] != null
+                    && (nearest < 0 || isCloser(cluster, i, cluster, nearest))) {
+                this.nearestNeighbours[cluster] = i;
+            }
+        }
+    }
+
+    /**
+     * Checks whether a pair of clusters goes before another one in the scan of the matrix: a lower Hamming distance, then fewer union edges,
+     * then the first row and the first column.
+     * @param a1 the first cluster of the first pair, lower than b1.
+     * @param b1 the second cluster of the first pair.
+     * @param a2 the first cluster of the second pair, lower than b2.
+     * @param b2 the second cluster of the second pair.
+     * @return true if the first pair goes strictly before the second one.
+     */
+    private boolean isCloser(int a1, int b1, int a2, int b2) {
+        int distance1 = this.hammingDistances[a1][b1];
+        int distance2 = this.hammingDistances[a2][b2];
+        if (distance1 != distance2) {
+            return distance1 < distance2;
+        }
+        int edges1 = this.unionEdges[a1][b1];
+        int edges2 = this.unionEdges[a2][b2];
+        if (edges1 != edges2) {
+            return edges1 < edges2;
+        }
+        return a1 != a2 ? a1 < a2 : b1 < b2;
+    }
 	
 	
 
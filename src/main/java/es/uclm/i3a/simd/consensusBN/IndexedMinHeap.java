@@ -0,0 +1,194 @@
+package es.uclm.i3a.simd.consensusBN;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Binary min-heap over the indexes 0..n-1, each one with an integer key that can be changed while it is in the heap.
+ * The index with the lowest key is returned first and, among indexes with the same key, the lowest index, which is the
+ * tie-break of a linear scan keeping the first minimum. Polling and updating a key take logarithmic time.
+ *
+ * @see AlphaOrder
+ */
+class IndexedMinHeap {
+
+	/**
+	 * The indexes stored in the heap, in heap order.
+	 */
+	private final int[] heap;
+
+	/**
+	 * The position of each index in the heap, or -1 if the index is not in the heap.
+	 */
+	private final int[] positions;
+
+	/**
+	 * The key of each index.
+	 */
+	private final int[] keys;
+
+	/**
+	 * Number of indexes stored in the heap.
+	 */
+	private int size;
+
+	/**
+	 * Builds a heap with every index from 0 to keys.length-1, with the given keys.
+	 * @param keys the initial key of each index, which is copied.
+	 */
+	IndexedMinHeap(int[] keys) {
+		int n = keys.length;
+		this.keys = keys.clone();
+		this.heap = new int[n];
+		this.positions = new int[n];
+		for (int i = 0; i < n; i++) {
+			this.heap[i] = i;
+			this.positions[i] = i;
+		}
+		this.size = n;
+		for (int i = n / 2 - 1; i >= 0; i--) {
+			siftDown(i);
+		}
+	}
+
+	/**
+	 * Checks whether the heap is empty.
+	 * @return true if there are no indexes left in the heap.
+	 */
+	boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	/**
+	 * Returns the number of indexes in the heap.
+	 * @return the size of the heap.
+	 */
+	int size() {
+		return this.size;
+	}
+
+	/**
+	 * Checks whether an index is still in the heap.
+	 * @param index the index to check.
+	 * @return true if the index has not been polled yet.
+	 */
+	boolean contains(int index) {
+		return this.positions[index] >= 0;
+	}
+
+	/**
+	 * Returns the current key of an index.
+	 * @param index the index whose key is returned.
+	 * @return the key of the index.
+	 */
+	int getKey(int index) {
+		return this.keys[index];
+	}
+
+	/**
+	 * Returns the index with the lowest key without removing it.
+	 * @return the index with the lowest key, the lowest one in case of ties.
+	 * @throws NoSuchElementException if the heap is empty.
+	 */
+	int peek() {
+		if (this.size == 0) {
+			throw new NoSuchElementException("The heap is empty");
+		}
+		return this.heap[0];
+	}
+
+	/**
+	 * Removes and returns the index with the lowest key.
+	 * @return the index with the lowest key, the lowest one in case of ties.
+	 * @throws NoSuchElementException if the heap is empty.
+	 */
+	int poll() {
+		int top = peek();
+		this.size--;
+		if (this.size > 0) {
+			move(this.heap[this.size], 0);
+			siftDown(0);
+		}
+		this.positions[top] = -1;
+		return top;
+	}
+
+	/**
+	 * Changes the key of an index in the heap, restoring the heap order.
+	 * @param index the index whose key is changed.
+	 * @param key the new key of the index.
+	 * @throws IllegalStateException if the index is no longer in the heap.
+	 */
+	void update(int index, int key) {
+		int position = this.positions[index];
+		if (position < 0) {
+			throw new IllegalStateException("Index " + index + " is not in the heap");
+		}
+		int old = this.keys[index];
+		this.keys[index] = key;
+		if (key < old) {
+			siftUp(position);
+		} else if (key > old) {
+			siftDown(position);
+		}
+	}
+
+	/**
+	 * Checks whether an index goes before another one in the heap order.
+	 * @param a the first index.
+	 * @param b the second index.
+	 * @return true if a has a lower key than b, or the same key and a lower index.
+	 */
+	private boolean less(int a, int b) {
+		return this.keys[a] < this.keys[b] || (this.keys[a] == this.keys[b] && a < b);
+	}
+
+	/**
+	 * Moves up the index at a position of the heap until its parent goes before it.
+	 * @param position the position of the index to move.
+	 */
+	private void siftUp(int position) {
+		int index = this.heap[position];
+		while (position > 0) {
+			int parent = (position - 1) >>> 1;
+			if (!less(index, this.heap[parent])) {
+				break;
+			}
+			move(this.heap[parent], position);
+			position = parent;
+		}
+		move(index, position);
+	}
+
+	/**
+	 * Moves down the index at a position of the heap until it goes before its children.
+	 * @param position the position of the index to move.
+	 */
+	private void siftDown(int position) {
+		int index = this.heap[position];
+		while (true) {
+			int child = 2 * position + 1;
+			if (child >= this.size) {
+				break;
+			}
+			if (child + 1 < this.size && less(this.heap[child + 1], this.heap[child])) {
+				child++;
+			}
+			if (!less(this.heap[child], index)) {
+				break;
+			}
+			move(this.heap[child], position);
+			position = child;
+		}
+		move(index, position);
+	}
+
+	/**
+	 * Places an index at a position of the heap.
+	 * @param index the index to place.
+	 * @param position the position where it is placed.
+	 */
+	private void move(int index, int position) {
+		this.heap[position] = index;
+		this.positions[index] = position;
+	}
+}
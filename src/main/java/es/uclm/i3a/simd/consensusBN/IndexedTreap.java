@@ -0,0 +1,228 @@
+package es.uclm.i3a.simd.consensusBN;
+
+import java.util.Random;
+
+/**
+ * Sequence of the indexes 0..n-1, each one with an integer key, stored in an implicit treap so that an index can be inserted at any position.
+ * Besides insertions, it finds the current position of an index and the first position holding a key greater than a given one.
+ * Every operation takes expected logarithmic time.
+ *
+ * @see BetaToAlpha
+ */
+class IndexedTreap {
+
+	/**
+	 * The key of each index.
+	 */
+	private final int[] keys;
+
+	/**
+	 * The random priority of each index, which keeps the treap balanced.
+	 */
+	private final int[] priorities;
+
+	/**
+	 * The left child, right child and parent of each index in the treap, or -1 if there is none.
+	 */
+	private final int[] left, right, parent;
+
+	/**
+	 * The number of indexes in the subtree of each index.
+	 */
+	private final int[] sizes;
+
+	/**
+	 * The greatest key in the subtree of each index.
+	 */
+	private final int[] maxKeys;
+
+	/**
+	 * The root of the treap, or -1 if the sequence is empty.
+	 */
+	private int root = -1;
+
+	/**
+	 * The left and right parts of the last split.
+	 */
+	private int splitLeft, splitRight;
+
+	/**
+	 * Builds an empty sequence for the indexes from 0 to keys.length-1, with the given keys.
+	 * @param keys the key of each index, which is not copied.
+	 */
+	IndexedTreap(int[] keys) {
+		int n = keys.length;
+		this.keys = keys;
+		this.priorities = new int[n];
+		this.left = new int[n];
+		this.right = new int[n];
+		this.parent = new int[n];
+		this.sizes = new int[n];
+		this.maxKeys = new int[n];
+		// A fixed seed, the shape of the treap does not change the sequence
+		Random random = new Random(n);
+		for (int i = 0; i < n; i++) {
+			this.priorities[i] = random.nextInt();
+		}
+	}
+
+	/**
+	 * Returns the number of indexes in the sequence.
+	 * @return the size of the sequence.
+	 */
+	int size() {
+		return size(this.root);
+	}
+
+	/**
+	 * Inserts an index at a position of the sequence, moving the following indexes one position forwards.
+	 * @param position the position of the inserted index, between 0 and the size of the sequence.
+	 * @param index the index to insert, which must not be in the sequence.
+	 */
+	void insert(int position, int index) {
+		this.left[index] = -1;
+		this.right[index] = -1;
+		update(index);
+		split(this.root, position);
+		int rest = this.splitRight;
+		this.root = merge(merge(this.splitLeft, index), rest);
+		this.parent[this.root] = -1;
+	}
+
+	/**
+	 * Returns the position of an index in the sequence.
+	 * @param index an index of the sequence.
+	 * @return the position of the index.
+	 */
+	int positionOf(int index) {
+		int position = size(this.left[index]);
+		for (int node = index; this.parent[node] >= 0; node = this.parent[node]) {
+			int p = this.parent[node];
+			if (this.right[p] == node) {
+				position += size(this.left[p]) + 1;
+			}
+		}
+		return position;
+	}
+
+	/**
+	 * Returns the first position of the sequence holding an index with a key greater than the given one.
+	 * @param key the key to compare with.
+	 * @return the first position with a greater key, or the size of the sequence if there is none.
+	 */
+	int firstGreater(int key) {
+		int position = 0;
+		int node = this.root;
+		while (node >= 0 && this.maxKeys[node] > key) {
+			int l = this.left[node];
+			if (l >= 0 && this.maxKeys[l] > key) {
+				node = l;
+			} else if (this.keys[node] > key) {
+				return position + size(l);
+			} else {
+				position += size(l) + 1;
+				node = this.right[node];
+			}
+		}
+		return size();
+	}
+
+	/**
+	 * Returns the indexes of the sequence in order.
+	 * @return a new array with the indexes of the sequence.
+	 */
+	int[] toArray() {
+		int[] sequence = new int[size()];
+		int[] stack = new int[sequence.length];
+		int top = 0;
+		int count = 0;
+		int node = this.root;
+		while (node >= 0 || top > 0) {
+			while (node >= 0) {
+				stack[top++] = node;
+				node = this.left[node];
+			}
+			node = stack[--top];
+			sequence[count++] = node;
+			node = this.right[node];
+		}
+		return sequence;
+	}
+
+	/**
+	 * Returns the number of indexes of a subtree.
+	 * @param node the root of the subtree, or -1.
+	 * @return the size of the subtree, 0 if it is empty.
+	 */
+	private int size(int node) {
+		return node < 0 ? 0 : this.sizes[node];
+	}
+
+	/**
+	 * Recomputes the size and greatest key of the subtree of an index from its children, and links the children to it.
+	 * @param node the index to update.
+	 */
+	private void update(int node) {
+		int l = this.left[node];
+		int r = this.right[node];
+		this.sizes[node] = 1 + size(l) + size(r);
+		int max = this.keys[node];
+		if (l >= 0) {
+			max = Math.max(max, this.maxKeys[l]);
+			this.parent[l] = node;
+		}
+		if (r >= 0) {
+			max = Math.max(max, this.maxKeys[r]);
+			this.parent[r] = node;
+		}
+		this.maxKeys[node] = max;
+	}
+
+	/**
+	 * Splits a subtree into the first indexes and the rest, stored in splitLeft and splitRight.
+	 * @param node the root of the subtree, or -1.
+	 * @param count the number of indexes of the left part.
+	 */
+	private void split(int node, int count) {
+		if (node < 0) {
+			this.splitLeft = -1;
+			this.splitRight = -1;
+			return;
+		}
+		int leftSize = size(this.left[node]);
+		if (count <= leftSize) {
+			split(this.left[node], count);
+			this.left[node] = this.splitRight;
+			update(node);
+			this.splitRight = node;
+		} else {
+			split(this.right[node], count - leftSize - 1);
+			this.right[node] = this.splitLeft;
+			update(node);
+			this.splitLeft = node;
+		}
+	}
+
+	/**
+	 * Concatenates two subtrees.
+	 * @param a the root of the first subtree, or -1.
+	 * @param b the root of the second subtree, or -1.
+	 * @return the root of the concatenation.
+	 */
+	private int merge(int a, int b) {
+		if (a < 0) {
+			return b;
+		}
+		if (b < 0) {
+			return a;
+		}
+		if (this.priorities[a] > this.priorities[b]) {
+			this.right[a] = merge(this.right[a], b);
+			update(a);
+			return a;
+		}
+		this.left[b] = merge(a, this.left[b]);
+		update(b);
+		return b;
+	}
+}
@@ -4,6 +4,11 @@ package es.uclm.i3a.simd.consensusBN;
  * ListFabric is a utility class that generates lists of integers representing subsets
  * of a set of a given size, with a maximum size constraint on the number of elements
  * in each subset.
+ *
+ * The int masks of {@link #generateList(int)} are limited to sets of at most {@link #MAX_INT_SIZE} elements, and the long masks of
+ * {@link #generateLongList(int, int)} to {@link #MAX_LONG_SIZE} elements. Larger sets can be enumerated combination by combination with
+ * {@link #firstCombination(int[], int)} and {@link #nextCombination(int[], int, int)}, which never allocate the whole list; this is what
+ * {@link PowerSet} does.
  */
 public class ListFabric {
 	
@@ -13,14 +18,34 @@ public class ListFabric {
 	 */
 	public static int MAX_SIZE=Integer.MAX_VALUE; 
 
+	/**
+	 * Largest size of a set whose subsets can be represented as int masks.
+	 */
+	public static final int MAX_INT_SIZE = 30;
+
+	/**
+	 * Largest size of a set whose subsets can be represented as long masks.
+	 */
+	public static final int MAX_LONG_SIZE = 62;
+
+	/**
+	 * Largest number of subsets that can be stored in an array.
+	 */
+	private static final long MAX_LIST_LENGTH = Integer.MAX_VALUE - 8;
+
 	/**
 	 * Generates a list of integers representing all subsets of a set of a given size.
 	 * Each integer is a bitmask where the i-th bit represents the inclusion of the i-th element.
+	 * Only subsets of at most MAX_SIZE elements are generated, and the array is allocated with their exact number.
 	 * @param size the size of the set for which subsets are generated
 	 * @return an array of integers representing the subsets
+	 * @throws IllegalArgumentException if size is negative or greater than MAX_INT_SIZE.
 	 */
 	public static int[] generateList(int size) {
 		int[] lista;
+		if (size < 0 || size > MAX_INT_SIZE) {
+			throw new IllegalArgumentException("The size must be between 0 and " + MAX_INT_SIZE + " to use int masks, but it is " + size);
+		}
 		if(size==0) {
 			return new int[1];
 		}
@@ -32,7 +57,7 @@ public class ListFabric {
 		}
 		
 		// Initialization of aux, where aux[0] stores the numbers and aux[1] the number of ones in aux[0]
-		int tam=(int)Math.pow(2, size);
+		int tam=(int)countSubsets(size, Math.max(0, MAX_SIZE));
 		int[][] aux=new int[2][tam];
 		
 		// Algorithm of generation of the list
@@ -55,4 +80,119 @@ public class ListFabric {
 		return lista;
 	}
 
+	/**
+	 * Generates a list of longs representing the subsets of a set of a given size with at most maxSize elements.
+	 * Each long is a bitmask where the i-th bit represents the inclusion of the i-th element. The subsets are sorted by increasing size and,
+	 * within the same size, in lexicographic order of their elements, which is the order of generateList.
+	 * The array is allocated with the exact number of subsets, so maxSize bounds both time and memory.
+	 * @param size the size of the set for which subsets are generated
+	 * @param maxSize the maximum number of elements of a subset
+	 * @return an array of longs representing the subsets
+	 * @throws IllegalArgumentException if size is negative or greater than MAX_LONG_SIZE, if maxSize is negative, or if there are too many subsets to store them in an array.
+	 */
+	public static long[] generateLongList(int size, int maxSize) {
+		if (size < 0 || size > MAX_LONG_SIZE) {
+			throw new IllegalArgumentException("The size must be between 0 and " + MAX_LONG_SIZE + " to use long masks, but it is " + size);
+		}
+		if (maxSize < 0) {
+			throw new IllegalArgumentException("maxSize cannot be negative");
+		}
+		long count = countSubsets(size, maxSize);
+		if (count > MAX_LIST_LENGTH) {
+			throw new IllegalArgumentException("There are too many subsets of size at most " + maxSize + " of a set of size " + size + " to store them; enumerate them with nextCombination instead");
+		}
+		long[] lista = new long[(int) count];
+		int[] combination = new int[Math.min(size, maxSize)];
+		int counter = 0;
+		for (int k = 0; k <= combination.length; k++) {
+			firstCombination(combination, k);
+			do {
+				long mask = 0L;
+				for (int i = 0; i < k; i++) {
+					mask |= 1L << combination[i];
+				}
+				lista[counter++] = mask;
+			} while (nextCombination(combination, k, size));
+		}
+		return lista;
+	}
+
+	/**
+	 * Returns the number of subsets with at most maxSize elements of a set of a given size, that is, the sum of the binomial coefficients
+	 * C(size, k) for k from 0 to maxSize. The result saturates at Long.MAX_VALUE.
+	 * @param size the size of the set
+	 * @param maxSize the maximum number of elements of a subset
+	 * @return the number of subsets, or Long.MAX_VALUE if it does not fit in a long.
+	 */
+	public static long countSubsets(int size, int maxSize) {
+		long total = 0;
+		long binomial = 1;
+		for (int k = 0; k <= Math.min(size, maxSize); k++) {
+			if (k > 0) {
+				// C(size, k) = C(size, k-1) * (size-k+1) / k, computed without overflowing when possible
+				long factor = size - k + 1;
+				long gcd = gcd(binomial, k);
+				long reduced = binomial / gcd;
+				long divisor = k / gcd;
+				if (reduced > Long.MAX_VALUE / factor) {
+					return Long.MAX_VALUE;
+				}
+				binomial = reduced * (factor / divisor);
+			}
+			if (total > Long.MAX_VALUE - binomial) {
+				return Long.MAX_VALUE;
+			}
+			total += binomial;
+		}
+		return total;
+	}
+
+	/**
+	 * Returns the greatest common divisor of two positive numbers.
+	 * @param a the first number
+	 * @param b the second number
+	 * @return the greatest common divisor of a and b
+	 */
+	private static long gcd(long a, long b) {
+		while (b != 0) {
+			long t = a % b;
+			a = b;
+			b = t;
+		}
+		return a;
+	}
+
+	/**
+	 * Sets the first k positions of an array to the first combination of k elements, that is, 0, 1, ..., k-1.
+	 * @param combination the array where the combination is stored, of length at least k
+	 * @param k the number of elements of the combination
+	 */
+	public static void firstCombination(int[] combination, int k) {
+		for (int i = 0; i < k; i++) {
+			combination[i] = i;
+		}
+	}
+
+	/**
+	 * Moves a combination of k elements out of size elements, stored in increasing order in the first k positions of an array,
+	 * to the next one in lexicographic order.
+	 * @param combination the array with the combination, which is modified
+	 * @param k the number of elements of the combination
+	 * @param size the number of elements to choose from
+	 * @return true if the combination has been moved, false if it was the last one, in which case it is left unchanged.
+	 */
+	public static boolean nextCombination(int[] combination, int k, int size) {
+		int i = k - 1;
+		while (i >= 0 && combination[i] == size - k + i) {
+			i--;
+		}
+		if (i < 0) {
+			return false;
+		}
+		combination[i]++;
+		for (int j = i + 1; j < k; j++) {
+			combination[j] = combination[j - 1] + 1;
+		}
+		return true;
+	}
 }
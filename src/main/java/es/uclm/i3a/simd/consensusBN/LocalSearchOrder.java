@@ -0,0 +1,442 @@
+package es.uclm.i3a.simd.consensusBN;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import edu.cmu.tetrad.graph.Dag;
+import edu.cmu.tetrad.graph.Node;
+
+/**
+ * Local search refinement of the order computed by another heuristic, {@link AlphaOrder} by default.
+ * Starting from the order of the initial heuristic, each node is moved up to a maximum distance forwards or backwards, and the move is
+ * accepted when it lowers the number of edges that the transformation of the input DAGs to the order inserts. The search stops when a
+ * full pass over the order does not improve it, or after a maximum number of passes.
+ *
+ * The cost of an order is the number of edges of the minimal I-maps of the input DAGs with respect to it, minus the edges of the input DAGs,
+ * which is what {@link BetaToAlpha} builds. In the minimal I-map, the parents of a node are the predecessors that are not d-separated from it
+ * by the rest of its predecessors, so they only depend on the set of its predecessors. Swapping two adjacent nodes only changes the
+ * predecessors of those two nodes, so the cost of a move is computed as a sequence of adjacent swaps, recomputing the parents of the
+ * swapped pair only, never transforming the whole DAGs again. The parents of every node in every DAG are cached.
+ * Each swap takes O(k (n + E)) time for k DAGs with n nodes and E edges, so a pass takes O(k n d (n + E)) time for a maximum distance d.
+ *
+ * @see OrderHeuristic
+ */
+public class LocalSearchOrder implements OrderHeuristic {
+
+	/**
+	 * Default maximum number of passes over the order.
+	 */
+	public static final int DEFAULT_MAX_PASSES = 10;
+
+	/**
+	 * Default maximum number of positions that a node is moved in a single move.
+	 */
+	public static final int DEFAULT_MAX_DISTANCE = 4;
+
+	/**
+	 * The set of DAGs to compute the order from.
+	 */
+	private final ArrayList<Dag> setOfDags;
+
+	/**
+	 * The heuristic that computes the initial order.
+	 */
+	private final OrderHeuristic initial;
+
+	/**
+	 * Maximum number of passes over the order.
+	 */
+	private int maxPasses = DEFAULT_MAX_PASSES;
+
+	/**
+	 * Maximum number of positions that a node is moved in a single move. A distance of 1 only tries adjacent swaps.
+	 */
+	private int maxDistance = DEFAULT_MAX_DISTANCE;
+
+	/**
+	 * The refined order of nodes.
+	 */
+	private ArrayList<Node> alpha = new ArrayList<>();
+
+	/**
+	 * Number of edges inserted by the transformation to the order of the initial heuristic, or -1 if it has not been computed.
+	 */
+	private long initialInsertedEdges = -1;
+
+	/**
+	 * Number of edges inserted by the transformation to the refined order, or -1 if it has not been computed.
+	 */
+	private long expectedInsertedEdges = -1;
+
+	/**
+	 * Number of moves accepted by the last refinement.
+	 */
+	private int numberOfMoves = 0;
+
+	/**
+	 * The input DAGs as bitset DAGs, only while the order is being refined.
+	 */
+	private List<BitsetDag> dags;
+
+	/**
+	 * The indexes of the nodes in the current order, only while the order is being refined.
+	 */
+	private int[] order;
+
+	/**
+	 * Number of parents of each node in the minimal I-map of each DAG with respect to the current order.
+	 */
+	private int[][] parents;
+
+	/**
+	 * Scratch bitsets of the predecessors of a node, the ancestral set of the predecessors, the nodes visited by a search and the neighbours of a node.
+	 */
+	private long[] predecessors, ancestral, visited, neighbours;
+
+	/**
+	 * Scratch stack of a search.
+	 */
+	private int[] stack;
+
+	/**
+	 * Constructor for LocalSearchOrder that refines the order of the greedy heuristic.
+	 * @param dags the list of DAGs from which to compute the order.
+	 * @throws IllegalArgumentException if the set is null, has fewer than 2 DAGs, or contains DAGs with different nodes.
+	 * @see AlphaOrder
+	 */
+	public LocalSearchOrder(ArrayList<Dag> dags) {
+		this(dags, new AlphaOrder(dags));
+	}
+
+	/**
+	 * Constructor for LocalSearchOrder that refines the order of a given heuristic, built over the same list of DAGs.
+	 * If the order of the heuristic has already been computed, it is not computed again.
+	 * @param dags the list of DAGs from which to compute the order.
+	 * @param initial the heuristic that computes the initial order.
+	 * @throws IllegalArgumentException if the heuristic is null, or the set is null, empty, or contains DAGs with different nodes.
+	 */
+	public LocalSearchOrder(ArrayList<Dag> dags, OrderHeuristic initial) {
+		AlphaOrder.checkDags(dags);
+		if (initial == null) {
+			throw new IllegalArgumentException("The initial order heuristic cannot be null");
+		}
+		this.setOfDags = dags;
+		this.initial = initial;
+	}
+
+	/**
+	 * Computes the initial order and refines it with node moves until no move lowers the number of inserted edges, or the maximum number of passes is reached.
+	 */
+	@Override
+	public void computeAlpha() {
+		if (this.initial.getOrder().isEmpty()) {
+			this.initial.computeAlpha();
+		}
+		List<Node> nodes = this.setOfDags.get(0).getNodes();
+		int numNodes = nodes.size();
+		this.dags = BitsetDag.fromDags(this.setOfDags, nodes);
+		this.order = new int[numNodes];
+		ArrayList<Node> initialOrder = this.initial.getOrder();
+		for (int p = 0; p < numNodes; p++) {
+			this.order[p] = this.dags.get(0).getIndex(initialOrder.get(p));
+		}
+		int words = Bitsets.words(numNodes);
+		this.predecessors = new long[words];
+		this.ancestral = new long[words];
+		this.visited = new long[words];
+		this.neighbours = new long[words];
+		this.stack = new int[numNodes];
+
+		try {
+			// Parents of every node in the minimal I-maps of the initial order
+			long inputEdges = 0;
+			long edges = 0;
+			this.parents = new int[this.dags.size()][numNodes];
+			for (int d = 0; d < this.dags.size(); d++) {
+				BitsetDag g = this.dags.get(d);
+				inputEdges += g.getNumEdges();
+				Arrays.fill(this.predecessors, 0L);
+				for (int p = 0; p < numNodes; p++) {
+					this.parents[d][this.order[p]] = countMinimalParents(g, this.order[p]);
+					edges += this.parents[d][this.order[p]];
+					Bitsets.set(this.predecessors, this.order[p]);
+				}
+			}
+			this.initialInsertedEdges = edges - inputEdges;
+
+			// Passes of first-improvement moves over the order
+			this.numberOfMoves = 0;
+			int[][] saved = new int[this.maxDistance][2 * this.dags.size()];
+			for (int pass = 0; pass < this.maxPasses; pass++) {
+				boolean improved = false;
+				for (int p = 0; p < numNodes; p++) {
+					long delta = moveForwards(p, saved);
+					if (delta == 0) {
+						delta = moveBackwards(p, saved);
+					}
+					if (delta < 0) {
+						edges += delta;
+						this.numberOfMoves++;
+						improved = true;
+					}
+				}
+				if (!improved) {
+					break;
+				}
+			}
+			this.expectedInsertedEdges = edges - inputEdges;
+
+			this.alpha = new ArrayList<>(numNodes);
+			for (int index : this.order) {
+				this.alpha.add(nodes.get(index));
+			}
+		} finally {
+			this.dags = null;
+			this.order = null;
+			this.parents = null;
+		}
+	}
+
+	/**
+	 * Tries to move the node at a position forwards, swapping it with the following nodes one by one, and keeps the move that most lowers the number of edges.
+	 * @param position the current position of the node.
+	 * @param saved scratch arrays where the number of parents before each swap is saved.
+	 * @return the variation of the number of edges, negative if the node has been moved and 0 if it stays in its position.
+	 */
+	private long moveForwards(int position, int[][] saved) {
+		int steps = Math.min(this.maxDistance, this.order.length - 1 - position);
+		long delta = 0;
+		long bestDelta = 0;
+		int bestSteps = 0;
+		for (int s = 0; s < steps; s++) {
+			delta += swap(position + s, saved[s]);
+			if (delta < bestDelta) {
+				bestDelta = delta;
+				bestSteps = s + 1;
+			}
+		}
+		for (int s = steps - 1; s >= bestSteps; s--) {
+			undoSwap(position + s, saved[s]);
+		}
+		return bestDelta;
+	}
+
+	/**
+	 * Tries to move the node at a position backwards, swapping it with the preceding nodes one by one, and keeps the move that most lowers the number of edges.
+	 * @param position the current position of the node.
+	 * @param saved scratch arrays where the number of parents before each swap is saved.
+	 * @return the variation of the number of edges, negative if the node has been moved and 0 if it stays in its position.
+	 */
+	private long moveBackwards(int position, int[][] saved) {
+		int steps = Math.min(this.maxDistance, position);
+		long delta = 0;
+		long bestDelta = 0;
+		int bestSteps = 0;
+		for (int s = 0; s < steps; s++) {
+			delta += swap(position - s - 1, saved[s]);
+			if (delta < bestDelta) {
+				bestDelta = delta;
+				bestSteps = s + 1;
+			}
+		}
+		for (int s = steps - 1; s >= bestSteps; s--) {
+			undoSwap(position - s - 1, saved[s]);
+		}
+		return bestDelta;
+	}
+
+	/**
+	 * Swaps the nodes at a position and the next one, updating the number of parents of both nodes in every DAG.
+	 * @param position the position of the first node.
+	 * @param saved array where the previous number of parents of both nodes in each DAG is saved, to undo the swap.
+	 * @return the variation of the number of edges of the minimal I-maps.
+	 */
+	private long swap(int position, int[] saved) {
+		int first = this.order[position];
+		int second = this.order[position + 1];
+		Arrays.fill(this.predecessors, 0L);
+		for (int p = 0; p < position; p++) {
+			Bitsets.set(this.predecessors, this.order[p]);
+		}
+		long delta = 0;
+		for (int d = 0; d < this.dags.size(); d++) {
+			BitsetDag g = this.dags.get(d);
+			saved[2 * d] = this.parents[d][first];
+			saved[2 * d + 1] = this.parents[d][second];
+			// The second node loses the first one as predecessor, and the first node gains the second one
+			this.parents[d][second] = countMinimalParents(g, second);
+			Bitsets.set(this.predecessors, second);
+			this.parents[d][first] = countMinimalParents(g, first);
+			Bitsets.clear(this.predecessors, second);
+			delta += this.parents[d][first] + this.parents[d][second] - saved[2 * d] - saved[2 * d + 1];
+		}
+		this.order[position] = second;
+		this.order[position + 1] = first;
+		return delta;
+	}
+
+	/**
+	 * Undoes the swap of the nodes at a position and the next one, restoring their saved number of parents.
+	 * @param position the position of the first node after the swap.
+	 * @param saved the number of parents of both nodes in each DAG before the swap.
+	 */
+	private void undoSwap(int position, int[] saved) {
+		int first = this.order[position + 1];
+		int second = this.order[position];
+		for (int d = 0; d < this.dags.size(); d++) {
+			this.parents[d][first] = saved[2 * d];
+			this.parents[d][second] = saved[2 * d + 1];
+		}
+		this.order[position] = first;
+		this.order[position + 1] = second;
+	}
+
+	/**
+	 * Counts the parents of a node in the minimal I-map of a DAG, given the predecessors of the node in the order.
+	 * A predecessor is a parent when it is not d-separated from the node by the rest of the predecessors, that is, when it can be reached
+	 * from the node in the moral graph of the ancestral set of the node and its predecessors through nodes that are not predecessors.
+	 * @param g the DAG.
+	 * @param node the index of the node.
+	 * @return the number of parents of the node in the minimal I-map.
+	 */
+	private int countMinimalParents(BitsetDag g, int node) {
+		// Ancestral set of the node and its predecessors
+		System.arraycopy(this.predecessors, 0, this.ancestral, 0, this.ancestral.length);
+		Bitsets.set(this.ancestral, node);
+		int top = 0;
+		for (int v = Bitsets.nextSetBit(this.ancestral, 0); v >= 0; v = Bitsets.nextSetBit(this.ancestral, v + 1)) {
+			this.stack[top++] = v;
+		}
+		while (top > 0) {
+			long[] pa = g.getParents(this.stack[--top]);
+			for (int p = Bitsets.nextSetBit(pa, 0); p >= 0; p = Bitsets.nextSetBit(pa, p + 1)) {
+				if (!Bitsets.get(this.ancestral, p)) {
+					Bitsets.set(this.ancestral, p);
+					this.stack[top++] = p;
+				}
+			}
+		}
+
+		// Search in the moral graph of the ancestral set, only going through nodes that are not predecessors
+		Arrays.fill(this.visited, 0L);
+		Bitsets.set(this.visited, node);
+		this.stack[top++] = node;
+		int count = 0;
+		while (top > 0) {
+			int v = this.stack[--top];
+			System.arraycopy(g.getParents(v), 0, this.neighbours, 0, this.neighbours.length);
+			long[] children = g.getChildren(v);
+			for (int c = Bitsets.nextSetBit(children, 0); c >= 0; c = Bitsets.nextSetBit(children, c + 1)) {
+				if (Bitsets.get(this.ancestral, c)) {
+					Bitsets.set(this.neighbours, c);
+					Bitsets.or(this.neighbours, g.getParents(c));
+				}
+			}
+			Bitsets.andNot(this.neighbours, this.visited);
+			for (int w = Bitsets.nextSetBit(this.neighbours, 0); w >= 0; w = Bitsets.nextSetBit(this.neighbours, w + 1)) {
+				Bitsets.set(this.visited, w);
+				if (Bitsets.get(this.predecessors, w)) {
+					count++;
+				} else {
+					this.stack[top++] = w;
+				}
+			}
+		}
+		return count;
+	}
+
+	@Override
+	public ArrayList<Node> getOrder() {
+		return this.alpha;
+	}
+
+	/**
+	 * Returns the number of edges that the transformation to the refined order inserts, computed as the edges of the minimal I-maps
+	 * with respect to the order minus the edges of the input DAGs. The transformation may insert a few more edges when it does not reach a minimal I-map.
+	 * @return the expected number of inserted edges.
+	 * @throws IllegalStateException if the order has not been computed yet.
+	 */
+	@Override
+	public long getExpectedInsertedEdges() {
+		if (this.expectedInsertedEdges < 0) {
+			throw new IllegalStateException("The order has not been computed. Please call computeAlpha() first.");
+		}
+		return this.expectedInsertedEdges;
+	}
+
+	/**
+	 * Returns the number of edges that the transformation to the initial order inserts, with the same model as getExpectedInsertedEdges.
+	 * @return the expected number of inserted edges before the refinement.
+	 * @throws IllegalStateException if the order has not been computed yet.
+	 */
+	public long getInitialInsertedEdges() {
+		if (this.initialInsertedEdges < 0) {
+			throw new IllegalStateException("The order has not been computed. Please call computeAlpha() first.");
+		}
+		return this.initialInsertedEdges;
+	}
+
+	/**
+	 * Returns the number of moves accepted by the last refinement.
+	 * @return the number of accepted moves.
+	 */
+	public int getNumberOfMoves() {
+		return this.numberOfMoves;
+	}
+
+	/**
+	 * Sets the maximum number of passes over the order. Each pass tries to move every node once.
+	 * @param maxPasses the maximum number of passes, 0 to keep the initial order.
+	 * @throws IllegalArgumentException if the number of passes is negative.
+	 */
+	public void setMaxPasses(int maxPasses) {
+		if (maxPasses < 0) {
+			throw new IllegalArgumentException("The maximum number of passes cannot be negative");
+		}
+		this.maxPasses = maxPasses;
+	}
+
+	/**
+	 * Returns the maximum number of passes over the order.
+	 * @return the maximum number of passes.
+	 */
+	public int getMaxPasses() {
+		return this.maxPasses;
+	}
+
+	/**
+	 * Sets the maximum number of positions that a node is moved in a single move. With a distance of 1, only adjacent swaps are tried.
+	 * @param maxDistance the maximum distance of a move, at least 1.
+	 * @throws IllegalArgumentException if the distance is lower than 1.
+	 */
+	public void setMaxDistance(int maxDistance) {
+		if (maxDistance < 1) {
+			throw new IllegalArgumentException("The maximum distance must be at least 1");
+		}
+		this.maxDistance = maxDistance;
+	}
+
+	/**
+	 * Returns the maximum number of positions that a node is moved in a single move.
+	 * @return the maximum distance of a move.
+	 */
+	public int getMaxDistance() {
+		return this.maxDistance;
+	}
+
+	/**
+	 * Sets the number of threads used by the initial heuristic. The refinement itself runs on the calling thread.
+	 * @param parallelism the number of threads, must be at least 1.
+	 * @throws IllegalArgumentException if the parallelism is lower than 1.
+	 */
+	@Override
+	public void setParallelism(int parallelism) {
+		this.initial.setParallelism(parallelism);
+	}
+
+	@Override
+	public int getParallelism() {
+		return this.initial.getParallelism();
+	}
+}
@@ -0,0 +1,113 @@
+package es.uclm.i3a.simd.consensusBN;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * D-separation cache bounded by a maximum number of entries, evicting the least recently used entry when it is full.
+ * It is meant to cap the memory used by the Backward Equivalence Search on long runs over big unions.
+ * Entries are keyed by {@link CompactDSeparationKey}.
+ * Accesses are synchronized, so it can be shared by the workers of a parallel search.
+ *
+ * @see DSeparationCache
+ */
+public class LruDSeparationCache implements DSeparationCache {
+
+	/**
+	 * Maximum number of entries kept in the cache.
+	 */
+	private final int maxEntries;
+
+	/**
+	 * The cached scores of the d-separation queries, in access order.
+	 */
+	private final LinkedHashMap<CompactDSeparationKey, Double> scores;
+
+	/**
+	 * Number of lookups that found a cached score.
+	 */
+	private long hits = 0;
+
+	/**
+	 * Number of lookups that did not find a cached score.
+	 */
+	private long misses = 0;
+
+	/**
+	 * Number of entries evicted to keep the cache within its maximum size.
+	 */
+	private long evictions = 0;
+
+	/**
+	 * Constructor for LruDSeparationCache with a maximum number of entries.
+	 * @param maxEntries the maximum number of entries kept in the cache, must be positive.
+	 * @throws IllegalArgumentException if maxEntries is not positive.
+	 */
+	public LruDSeparationCache(int maxEntries) {
+		if (maxEntries <= 0) {
+			throw new IllegalArgumentException("The maximum number of entries must be positive");
+		}
+		this.maxEntries = maxEntries;
+		this.scores = new LinkedHashMap<CompactDSeparationKey, Double>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<CompactDSeparationKey, Double> eldest) {
+				if (size() > LruDSeparationCache.this.maxEntries) {
+					LruDSeparationCache.this.evictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	@Override
+	public synchronized double get(int x, int y, long[] conditioningSet) {
+		Double score = this.scores.get(CompactDSeparationKey.lookup(x, y, conditioningSet));
+		if (score != null) {
+			this.hits++;
+			return score;
+		}
+		this.misses++;
+		return Double.NaN;
+	}
+
+	@Override
+	public synchronized void put(int x, int y, long[] conditioningSet, double score) {
+		this.scores.put(new CompactDSeparationKey(x, y, conditioningSet), score);
+	}
+
+	@Override
+	public synchronized void clear() {
+		this.scores.clear();
+	}
+
+	@Override
+	public synchronized int size() {
+		return this.scores.size();
+	}
+
+	@Override
+	public synchronized long getHits() {
+		return this.hits;
+	}
+
+	@Override
+	public synchronized long getMisses() {
+		return this.misses;
+	}
+
+	@Override
+	public synchronized long getEvictions() {
+		return this.evictions;
+	}
+
+	/**
+	 * Returns the maximum number of entries kept in the cache.
+	 * @return the maximum number of entries.
+	 */
+	public int getMaxEntries() {
+		return this.maxEntries;
+	}
+}
@@ -0,0 +1,116 @@
+package es.uclm.i3a.simd.consensusBN;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import edu.cmu.tetrad.graph.Dag;
+import edu.cmu.tetrad.graph.Node;
+
+/**
+ * Order heuristic that sorts the nodes by their median rank across topological orders of the input DAGs.
+ * A topological order of each DAG is computed, placing the lowest index first among the nodes available at each step, and the nodes are sorted
+ * by the median of their positions, then by the mean of their positions, then by index. If an edge appears in every DAG, its tail has a lower
+ * median than its head, so the order respects the edges shared by all the DAGs. The order takes O(k (n + E) + n log n) time for k DAGs.
+ *
+ * @see OrderHeuristic
+ * @see TopologicalOrder
+ */
+public class MedianRankOrder implements OrderHeuristic {
+
+	/**
+	 * The set of DAGs to compute the order from.
+	 */
+	private final ArrayList<Dag> setOfDags;
+
+	/**
+	 * The computed order of nodes.
+	 */
+	private ArrayList<Node> alpha = new ArrayList<>();
+
+	/**
+	 * Expected number of edges inserted by the transformation to the computed order, or -1 if it has not been estimated yet.
+	 */
+	private long expectedInsertedEdges = -1;
+
+	/**
+	 * Constructor for MedianRankOrder.
+	 * @param dags the list of DAGs from which to compute the order.
+	 * @throws IllegalArgumentException if the set is null, empty, or contains DAGs with different nodes.
+	 */
+	public MedianRankOrder(ArrayList<Dag> dags) {
+		AlphaOrder.checkDags(dags);
+		this.setOfDags = dags;
+	}
+
+	/**
+	 * Computes the order, sorting the nodes by their median position in the topological orders of the DAGs.
+	 */
+	@Override
+	public void computeAlpha() {
+		List<Node> nodes = this.setOfDags.get(0).getNodes();
+		List<BitsetDag> dags = BitsetDag.fromDags(this.setOfDags, nodes);
+		int numNodes = nodes.size();
+		int numDags = dags.size();
+
+		// Positions of each node in the topological order of each DAG
+		int[][] ranks = new int[numNodes][numDags];
+		for (int d = 0; d < numDags; d++) {
+			TopologicalOrder order = new TopologicalOrder(dags.get(d));
+			for (int i = 0; i < numNodes; i++) {
+				ranks[i][d] = order.getPosition(i);
+			}
+		}
+		double[] medians = new double[numNodes];
+		double[] means = new double[numNodes];
+		for (int i = 0; i < numNodes; i++) {
+			int[] sorted = ranks[i];
+			Arrays.sort(sorted);
+			medians[i] = (sorted[(numDags - 1) / 2] + sorted[numDags / 2]) / 2.0;
+			long sum = 0;
+			for (int rank : sorted) {
+				sum += rank;
+			}
+			means[i] = (double) sum / numDags;
+		}
+
+		Integer[] indexes = new Integer[numNodes];
+		for (int i = 0; i < numNodes; i++) {
+			indexes[i] = i;
+		}
+		Arrays.sort(indexes, (a, b) -> {
+			int compare = Double.compare(medians[a], medians[b]);
+			if (compare == 0) {
+				compare = Double.compare(means[a], means[b]);
+			}
+			return compare != 0 ? compare : Integer.compare(a, b);
+		});
+		this.alpha = new ArrayList<>(numNodes);
+		for (int index : indexes) {
+			this.alpha.add(nodes.get(index));
+		}
+		this.expectedInsertedEdges = -1;
+	}
+
+	@Override
+	public ArrayList<Node> getOrder() {
+		return this.alpha;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @return {@inheritDoc}
+	 * @throws IllegalStateException {@inheritDoc}
+	 * @see AlphaOrder#estimateInsertedEdges(List, List)
+	 */
+	@Override
+	public long getExpectedInsertedEdges() {
+		if (this.alpha.isEmpty()) {
+			throw new IllegalStateException("The order has not been computed. Please call computeAlpha() first.");
+		}
+		if (this.expectedInsertedEdges < 0) {
+			this.expectedInsertedEdges = AlphaOrder.estimateInsertedEdges(this.setOfDags, this.alpha);
+		}
+		return this.expectedInsertedEdges;
+	}
+}
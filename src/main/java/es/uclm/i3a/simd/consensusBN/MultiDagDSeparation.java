@@ -0,0 +1,195 @@
+package es.uclm.i3a.simd.consensusBN;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import edu.cmu.tetrad.graph.Dag;
+import edu.cmu.tetrad.graph.Node;
+
+/**
+ * Batched d-separation queries over a set of DAGs sharing the same nodes.
+ * A query (x, y, Z) is answered for every DAG of the set, returning the fraction of DAGs in which x and y are d-separated given Z.
+ * The conditioning set is translated into a bitset only once per query, and the scratch buffers of the search are shared by all the DAGs,
+ * so a query does not allocate. An instance must not be shared between threads; use {@link #fork()} to obtain an instance for another thread.
+ *
+ * When the caller discards fractions below a threshold, {@link #separatedFraction(int, int, long[], double)} stops the evaluation
+ * as soon as the threshold can no longer be reached.
+ *
+ * @see DSeparation
+ * @see BackwardEquivalenceSearchDSep
+ */
+public class MultiDagDSeparation {
+
+	/**
+	 * The d-separation engines of each DAG of the set.
+	 */
+	private final List<DSeparation> engines;
+
+	/**
+	 * Empty bitset DAG over the shared nodes, used to translate nodes into indexes.
+	 */
+	private final BitsetDag nodeIndex;
+
+	/**
+	 * Scratch buffers shared by the queries on every DAG of the set.
+	 */
+	private final DSeparation.Workspace workspace;
+
+	/**
+	 * Scratch bitset with the conditioning set of the queries given as nodes.
+	 */
+	private final long[] condBits;
+
+	/**
+	 * Constructor for MultiDagDSeparation from a list of Tetrad DAGs.
+	 * @param dags the DAGs on which d-separation is checked.
+	 * @param nodes the nodes shared by the DAGs, whose positions are the indexes used by the queries.
+	 * @throws IllegalArgumentException if the list of DAGs is empty or a DAG has a node that is not in the list of nodes.
+	 */
+	public MultiDagDSeparation(List<Dag> dags, List<Node> nodes) {
+		this(BitsetDag.fromDags(dags, nodes));
+	}
+
+	/**
+	 * Constructor for MultiDagDSeparation from a list of bitset DAGs. The DAGs must not be modified afterwards.
+	 * @param dags the DAGs on which d-separation is checked, all of them sharing the same nodes.
+	 * @throws IllegalArgumentException if the list of DAGs is empty or the DAGs do not have the same nodes.
+	 */
+	public MultiDagDSeparation(List<BitsetDag> dags) {
+		if (dags.isEmpty()) {
+			throw new IllegalArgumentException("At least one DAG is needed");
+		}
+		List<Node> nodes = dags.get(0).getNodes();
+		this.engines = new ArrayList<>(dags.size());
+		for (BitsetDag dag : dags) {
+			if (!dag.getNodes().equals(nodes)) {
+				throw new IllegalArgumentException("All the DAGs must have the same nodes in the same order");
+			}
+			this.engines.add(new DSeparation(dag));
+		}
+		this.nodeIndex = dags.get(0).emptyCopy();
+		this.workspace = new DSeparation.Workspace(nodes.size());
+		this.condBits = new long[Bitsets.words(nodes.size())];
+	}
+
+	/**
+	 * Constructor for a fork sharing the precomputed engines of another instance, with its own scratch buffers.
+	 * @param other the instance whose engines are shared.
+	 */
+	private MultiDagDSeparation(MultiDagDSeparation other) {
+		this.engines = other.engines;
+		this.nodeIndex = other.nodeIndex;
+		this.workspace = new DSeparation.Workspace(other.nodeIndex.getNumNodes());
+		this.condBits = new long[other.condBits.length];
+	}
+
+	/**
+	 * Returns a new instance answering the same queries, sharing the precomputed ancestors of this one but with its own scratch buffers,
+	 * so that it can be used concurrently with this instance from another thread.
+	 * @return a new instance over the same DAGs.
+	 */
+	public MultiDagDSeparation fork() {
+		return new MultiDagDSeparation(this);
+	}
+
+	/**
+	 * Returns the fraction of DAGs in which two nodes are d-separated given a set of conditioning nodes.
+	 * @param x The first node.
+	 * @param y The second node.
+	 * @param cond The conditioning nodes.
+	 * @return The fraction of DAGs in which the nodes are d-separated.
+	 * @throws IllegalArgumentException if any of the nodes does not belong to the DAGs.
+	 */
+	public double separatedFraction(Node x, Node y, Collection<Node> cond) {
+		return separatedFraction(indexOf(x), indexOf(y), toBitset(cond));
+	}
+
+	/**
+	 * Returns the fraction of DAGs in which two nodes are d-separated given a set of conditioning nodes, all of them given by their index.
+	 * @param x The index of the first node.
+	 * @param y The index of the second node.
+	 * @param cond The bitset of indexes of the conditioning nodes.
+	 * @return The fraction of DAGs in which the nodes are d-separated.
+	 */
+	public double separatedFraction(int x, int y, long[] cond) {
+		return separatedFraction(x, y, cond, 0.0);
+	}
+
+	/**
+	 * Returns the fraction of DAGs in which two nodes are d-separated given a set of conditioning nodes, stopping as soon as the fraction
+	 * can no longer reach the given threshold. The result is exact when it is greater than or equal to the threshold; otherwise it is
+	 * a lower bound of the exact fraction, which is also below the threshold.
+	 * @param x The index of the first node.
+	 * @param y The index of the second node.
+	 * @param cond The bitset of indexes of the conditioning nodes.
+	 * @param threshold The minimum fraction the caller is interested in.
+	 * @return The fraction of DAGs in which the nodes are d-separated, or a value below the threshold if the threshold cannot be reached.
+	 */
+	public double separatedFraction(int x, int y, long[] cond, double threshold) {
+		int size = this.engines.size();
+		int separated = 0;
+		for (int i = 0; i < size; i++) {
+			if (this.engines.get(i).dSeparated(x, y, cond, this.workspace)) {
+				separated++;
+			}
+			else if ((double) (separated + size - i - 1) / size < threshold) {
+				break;
+			}
+		}
+		return (double) separated / size;
+	}
+
+	/**
+	 * Translates a collection of nodes into the reusable conditioning bitset of this instance.
+	 * @param cond The conditioning nodes.
+	 * @return The bitset of indexes of the nodes, only valid until the next call.
+	 */
+	private long[] toBitset(Collection<Node> cond) {
+		Arrays.fill(this.condBits, 0L);
+		for (Node node : cond) {
+			Bitsets.set(this.condBits, indexOf(node));
+		}
+		return this.condBits;
+	}
+
+	/**
+	 * Returns the index of a node shared by the DAGs.
+	 * @param node the node to look up.
+	 * @return the index of the node.
+	 * @throws IllegalArgumentException if the node does not belong to the DAGs.
+	 */
+	private int indexOf(Node node) {
+		int index = this.nodeIndex.getIndex(node);
+		if (index < 0) {
+			throw new IllegalArgumentException("Node " + node + " does not belong to the DAGs.");
+		}
+		return index;
+	}
+
+	/**
+	 * Returns the index of a node shared by the DAGs, or -1 if the node does not belong to them.
+	 * @param node the node to look up.
+	 * @return the index of the node, or -1 if it is not found.
+	 */
+	public int getIndex(Node node) {
+		return this.nodeIndex.getIndex(node);
+	}
+
+	/**
+	 * Returns the nodes shared by the DAGs, in index order.
+	 * @return the list of nodes.
+	 */
+	public List<Node> getNodes() {
+		return this.nodeIndex.getNodes();
+	}
+
+	/**
+	 * Returns the number of DAGs of the set.
+	 * @return the number of DAGs.
+	 */
+	public int size() {
+		return this.engines.size();
+	}
+}
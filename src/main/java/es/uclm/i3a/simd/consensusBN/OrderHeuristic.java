@@ -0,0 +1,61 @@
+package es.uclm.i3a.simd.consensusBN;
+
+import java.util.ArrayList;
+
+import edu.cmu.tetrad.graph.Node;
+
+/**
+ * Strategy to compute the order of the nodes used by {@link ConsensusUnion} to transform the input DAGs before their union.
+ * An implementation is built over a set of DAGs with the same nodes, computes the order with computeAlpha, and returns it with getOrder,
+ * from the first ancestor to the last descendant.
+ *
+ * The order determines how many edges the transformation inserts, so each heuristic reports the expected number of inserted edges of its order,
+ * which allows trading a slightly larger union for an order computed much faster.
+ *
+ * @see AlphaOrder
+ * @see WeightedTopologicalOrder
+ * @see MedianRankOrder
+ * @see SampledAlphaOrder
+ */
+public interface OrderHeuristic {
+
+	/**
+	 * Computes the order of the nodes.
+	 */
+	void computeAlpha();
+
+	/**
+	 * Returns the computed order of the nodes.
+	 * @return the list of nodes in order, empty if the order has not been computed yet.
+	 */
+	ArrayList<Node> getOrder();
+
+	/**
+	 * Returns the expected number of edges that the transformation of the input DAGs to the computed order will insert.
+	 * Heuristics that do not count the inserted edges while they compute the order estimate them with
+	 * {@link AlphaOrder#estimateInsertedEdges(java.util.List, java.util.List)} the first time they are requested, and keep the estimate until the order is computed again.
+	 * @return the expected number of inserted edges.
+	 * @throws IllegalStateException if the order has not been computed yet.
+	 * @see AlphaOrder#estimateInsertedEdges(java.util.List, java.util.List)
+	 */
+	long getExpectedInsertedEdges();
+
+	/**
+	 * Sets the number of threads used to compute the order. Heuristics that do not run in parallel ignore it.
+	 * @param parallelism the number of threads, must be at least 1.
+	 * @throws IllegalArgumentException if the parallelism is lower than 1.
+	 */
+	default void setParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be at least 1");
+		}
+	}
+
+	/**
+	 * Returns the number of threads used to compute the order.
+	 * @return the parallelism of the heuristic, 1 for heuristics that do not run in parallel.
+	 */
+	default int getParallelism() {
+		return 1;
+	}
+}
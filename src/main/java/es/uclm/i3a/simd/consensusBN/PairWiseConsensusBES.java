@@ -12,6 +12,7 @@ import edu.cmu.tetrad.graph.Node;
  * It first fuses the two input DAGs into a consensus DAG using the ConsensusBES class.
  * After obtaining the consensus DAG, it calculates the Hamming distance between the fused DAG and the original input DAGs.
  * The resulting output DAG is stored in the consensusDAG attribute, and the number of inserted edges during the fusion process can be retrieved using getNumberOfInsertedEdges.
+ * Only these results are kept after the fusion: the ConsensusBES used to compute them is released, so that many pairs can be stored at once.
  */
 public class PairWiseConsensusBES implements Runnable{
 	/** 
@@ -30,9 +31,9 @@ public class PairWiseConsensusBES implements Runnable{
 	private Dag consensusDAG = null;
 
 	/**
-	 * Instance of ConsensusBES used to compute the consensus DAG from the input DAGs.
+	 * Hamming distance between the consensus DAG and the input DAGs, computed once during the fusion process.
 	 */
-	private ConsensusBES consensusBES= null;
+	private int hammingDistance = 0;
 	
 	/**
 	 * Number of total edges inserted during the fusion process.
@@ -91,12 +92,14 @@ public class PairWiseConsensusBES implements Runnable{
 		setOfDags.add(this.firstDag);
 		setOfDags.add(this.secondDag);
 		// Applying the ConsensusBES algorithm to fuse the DAGs
-		consensusBES = new ConsensusBES(setOfDags);
+		ConsensusBES consensusBES = new ConsensusBES(setOfDags);
 		consensusBES.fusion();
 		// Retrieving the resulting DAG and the number of inserted edges
 		this.numberOfInsertedEdges = consensusBES.getNumberOfInsertedEdges();
 		this.numberOfUnionEdges  = consensusBES.getUnion().getNumEdges();
 		this.consensusDAG = consensusBES.getFusionDag();
+		// Computing the Hamming distance with the edge counts of the union, before releasing the ConsensusBES
+		this.hammingDistance = computeHammingDistance(consensusBES.getConsensusUnion().getEdgeCounts());
 	}
 
 	/**
@@ -124,20 +127,28 @@ public class PairWiseConsensusBES implements Runnable{
 	}
 	
 	/**
-	 * Calculates the Hamming distance between the optimum fusion DAG and the original input DAGs.
+	 * Returns the Hamming distance between the optimum fusion DAG and the original input DAGs, which is computed once during the fusion process.
+	 * The fusion process is applied first if it has not been applied yet.
 	 * @return The Hamming distance between the fused DAG and the original input DAGs.
 	 */
 	public int calculateHammingDistance(){
 		if(this.consensusDAG==null) this.fusion();
+		return this.hammingDistance;
+	}
+
+	/**
+	 * Computes the Hamming distance between the fusion DAG and the transformed input DAGs: the number of transformed DAGs without each edge
+	 * of the fusion DAG, plus the number of inserted edges.
+	 * @param edgeCounts the number of transformed DAGs containing each pair of nodes.
+	 * @return The Hamming distance between the fused DAG and the original input DAGs.
+	 */
+	private int computeHammingDistance(EdgeCountMatrix edgeCounts){
 		int distance = 0;
 		for(Edge ed: this.consensusDAG.getEdges()){
 			Node tail = ed.getNode1();
 			Node head = ed.getNode2();
-			for(Dag g: consensusBES.getTransformedDags()){	
-				Edge edge1 = g.getEdge(tail, head);
-				Edge edge2 = g.getEdge(head, tail);
-				if(edge1 == null && edge2==null) distance++;
-			}
+			// Number of transformed DAGs without the edge
+			distance += edgeCounts.getNumDags() - edgeCounts.getCount(tail, head);
 		}
 		return distance+this.getNumberOfInsertedEdges();
 	}
@@ -1,10 +1,10 @@
 package es.uclm.i3a.simd.consensusBN;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Enumeration;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 import edu.cmu.tetrad.graph.Node;
@@ -12,54 +12,73 @@ import edu.cmu.tetrad.graph.Node;
 /**
  * PowerSet generates all subsets of a given set of nodes, with an optional maximum size constraint.
  * It implements Enumeration to allow iteration over the subsets.
+ *
+ * The subsets are generated lazily, in increasing cardinality and, within the same cardinality, in lexicographic order of the positions
+ * of their nodes in the list (the order of {@link ListFabric#generateList(int)}), so only the current subset is kept in memory.
+ * Besides {@link #nextElement()}, which builds a new set of nodes, {@link #nextMask()} returns the next subset as a reusable bitset of positions,
+ * which does not allocate any memory. Since no table of all the subsets is built, the number of nodes is not limited by the size of an int mask.
+ *
+ * @see ListFabric#nextCombination(int[], int, int)
  */
 public class PowerSet implements Enumeration<Set<Node>> {
 	/**
 	 * List of nodes for which the power set is generated.
 	 */
 	List<Node> nodes;
+
+	/**
+	 * Maximum size of the subsets to be generated, never greater than the number of nodes.
+	 */
+	private final int maxSize;
+
 	/**
-	 * List to store the generated subsets.
+	 * Positions of the nodes of the next subset, in increasing order. Only the first cardinality positions are used.
 	 */
-	private final List<Set<Node>> subSets = new ArrayList<>();
+	private final int[] combination;
+
 	/**
-	 * Index to track the current position in the enumeration.
+	 * Number of nodes of the next subset.
 	 */
-	private int index;
+	private int cardinality;
+
 	/**
-	 * List of integers representing the subsets in binary form.
+	 * Whether every subset has already been returned.
 	 */
-	private int[] binaryList;
+	private boolean exhausted;
 
 	/**
-	 * A map to store the subsets with their corresponding binary representation.
-	 * The key is the binary representation of the subset, and the value is the subset itself.
+	 * Reusable bitset of positions of the nodes of the last returned subset.
 	 */
-	private HashMap<Integer,Set<Node>> subset;
+	private final long[] mask;
+
+	/**
+	 * Number of nodes of the last returned subset.
+	 */
+	private int maskSize;
 
 	/**
 	 * Maximum size of the subsets to be generated.
 	 * If set to a value less than the number of nodes, it limits the size of the subsets.
 	 */
 	private int maxPow = 0;
-	
+
 	/**
 	 * Builds a PowerSet with subsets of the given nodes, limited to a maximum size.
 	 * @param nodes List of nodes to generate subsets from.
 	 * @param maxSize Maximum size of the subsets to be generated. Assuring that k does not exceed the number of nodes.
 	 * * If maxSize is negative, it will throw an IllegalArgumentException.
 	 * @throws IllegalArgumentException if maxSize is negative.
-	 
+
 	 */
     public PowerSet(List<Node> nodes, int maxSize) {
 		if (maxSize < 0) {
 			throw new IllegalArgumentException("maxSize cannot be negative");
 		}
-        if (maxSize >= nodes.size()) {
-            maxSize = nodes.size();
-        }
         this.nodes = nodes;
-        initializeSubsets(maxSize);
+        this.maxSize = Math.max(0, Math.min(Math.min(maxSize, nodes.size()), ListFabric.MAX_SIZE));
+        this.combination = new int[this.maxSize];
+        this.mask = new long[Bitsets.words(nodes.size())];
+        resetIndex();
     }
 
     /**
@@ -68,41 +87,10 @@ public class PowerSet implements Enumeration<Set<Node>> {
      * @param nodes Lista de nodos de entrada.
      */
     public PowerSet(List<Node> nodes) {
+        this(nodes, nodes.size()); // sin límite: k = nodes.size()
         if (nodes.size() > maxPow) {
             maxPow = nodes.size();
         }
-        this.nodes = nodes;
-        initializeSubsets(nodes.size()); // sin límite: k = nodes.size()
-    }
-
-	/**
-	 * Initializes the subsets based on the nodes and the maximum size.
-	 * This method generates all possible subsets of the nodes, respecting the maximum size constraint.
-	 * @param maxSize Maximum size of the subsets to be generated.
-	 * If maxSize is greater than the number of nodes, it will generate subsets of all sizes.
-	 * If maxSize is 0, it will only generate the empty set.
-	 */
-	private void initializeSubsets(int maxSize) {
-        subset = new HashMap<>();
-        index = 0;
-        binaryList = ListFabric.generateList(nodes.size());
-
-        for (int i : binaryList) {
-            Set<Node> newSubSet = new HashSet<>();
-            String selection = Integer.toBinaryString(i);
-
-            for (int j = selection.length() - 1; j >= 0; j--) {
-                if (selection.charAt(j) == '1') {
-                    int idx = selection.length() - j - 1;
-                    newSubSet.add(nodes.get(idx));
-                }
-            }
-
-            if (newSubSet.size() <= maxSize) {
-                subSets.add(newSubSet);
-                subset.put(i, newSubSet);
-            }
-        }
     }
 
 	/**
@@ -111,28 +99,85 @@ public class PowerSet implements Enumeration<Set<Node>> {
 	 */
     @Override
 	public boolean hasMoreElements() {
-		return index<subSets.size();
+		return !this.exhausted;
 	}
 
 	/**
 	 * Returns the next subset in the enumeration.
 	 * @return The next subset of the power set of nodes.
+	 * @throws NoSuchElementException if every subset has already been returned.
 	 */
 	@Override
 	public Set<Node> nextElement() {
-		Set<Node> result = subSets.get(index);
-		index++;
-		return result;
+		nextMask();
+		return currentSubset();
 	}
-	
+
+	/**
+	 * Returns the next subset in the enumeration as a bitset of the positions of its nodes in the list of nodes.
+	 * The returned array is reused by the following calls, so it must not be modified or kept by the caller.
+	 * @return The bitset of positions of the next subset, only valid until the next call.
+	 * @throws NoSuchElementException if every subset has already been returned.
+	 */
+	public long[] nextMask() {
+		if (this.exhausted) {
+			throw new NoSuchElementException("There are no more subsets");
+		}
+		Arrays.fill(this.mask, 0L);
+		for (int i = 0; i < this.cardinality; i++) {
+			Bitsets.set(this.mask, this.combination[i]);
+		}
+		this.maskSize = this.cardinality;
+		advance();
+		return this.mask;
+	}
+
+	/**
+	 * Returns the number of nodes of the last subset returned by nextElement or nextMask.
+	 * @return The size of the last returned subset.
+	 */
+	public int currentSize() {
+		return this.maskSize;
+	}
+
+	/**
+	 * Builds the set of nodes of the last subset returned by nextElement or nextMask.
+	 * @return A new set with the nodes of the last returned subset.
+	 */
+	public Set<Node> currentSubset() {
+		Set<Node> subset = new HashSet<>();
+		for (int i = Bitsets.nextSetBit(this.mask, 0); i >= 0; i = Bitsets.nextSetBit(this.mask, i + 1)) {
+			subset.add(this.nodes.get(i));
+		}
+		return subset;
+	}
+
+	/**
+	 * Moves to the next combination of the same cardinality or, when there are none left, to the first combination of the next cardinality.
+	 */
+	private void advance() {
+		if (ListFabric.nextCombination(this.combination, this.cardinality, this.nodes.size())) {
+			return;
+		}
+		if (this.cardinality == this.maxSize) {
+			this.exhausted = true;
+			return;
+		}
+		this.cardinality++;
+		ListFabric.firstCombination(this.combination, this.cardinality);
+	}
+
 	/**
 	 * Resets the index to allow re-iteration over the subsets.
 	 * This method allows the enumeration to start over from the beginning.
 	 */
 	public void resetIndex(){
-		this.index = 0;
+		this.cardinality = 0;
+		this.exhausted = false;
+		this.maskSize = 0;
+		Arrays.fill(this.mask, 0L);
 	}
-	
+
 	/**
 	 * Returns the maximum size of the power set based on the maximum number of nodes.
 	 * This method calculates the size of the power set as 2 raised to the power of the maximum number of nodes.
@@ -142,9 +187,15 @@ public class PowerSet implements Enumeration<Set<Node>> {
 		return (long) Math.pow(2,maxPow);
 	}
 
+	/**
+	 * Returns the subsets of all sizes as integer bitmasks, in the order of {@link ListFabric#generateList(int)}.
+	 * The list is built on each call, so it should be avoided for large sets of nodes.
+	 * @return an array of integers representing the subsets.
+	 * @throws IllegalArgumentException if there are more than {@link ListFabric#MAX_INT_SIZE} nodes.
+	 */
 	public int[] getBinaryList() {
-		return binaryList;
+		return ListFabric.generateList(nodes.size());
 	}
 
-	
+
 }
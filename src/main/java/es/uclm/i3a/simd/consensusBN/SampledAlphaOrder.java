@@ -0,0 +1,110 @@
+package es.uclm.i3a.simd.consensusBN;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import edu.cmu.tetrad.graph.Dag;
+import edu.cmu.tetrad.graph.Node;
+
+/**
+ * Bounded variant of the greedy heuristic order, which runs {@link AlphaOrder} on a random sample of the input DAGs.
+ * The cost of the greedy heuristic grows linearly with the number of DAGs, so with many similar input DAGs a small sample gives an order
+ * almost as good in a fraction of the time. The expected number of inserted edges is estimated over all the input DAGs, not only the sample.
+ *
+ * @see OrderHeuristic
+ */
+public class SampledAlphaOrder implements OrderHeuristic {
+
+	/**
+	 * The set of DAGs to compute the order from.
+	 */
+	private final ArrayList<Dag> setOfDags;
+
+	/**
+	 * The greedy heuristic run on the sample of DAGs.
+	 */
+	private final AlphaOrder heuristic;
+
+	/**
+	 * Number of DAGs of the sample.
+	 */
+	private final int sampleSize;
+
+	/**
+	 * Expected number of edges inserted by the transformation of all the DAGs to the computed order, or -1 if it has not been estimated yet.
+	 */
+	private long expectedInsertedEdges = -1;
+
+	/**
+	 * Constructor for SampledAlphaOrder. If the sample size is not lower than the number of DAGs, every DAG is used.
+	 * @param dags the list of DAGs from which to compute the order.
+	 * @param sampleSize the number of DAGs sampled, at least 2.
+	 * @param seed the seed of the random sample.
+	 * @throws IllegalArgumentException if the sample size is lower than 2, or the set is null, has fewer than 2 DAGs, or contains DAGs with different nodes.
+	 */
+	public SampledAlphaOrder(ArrayList<Dag> dags, int sampleSize, long seed) {
+		if (sampleSize < 2) {
+			throw new IllegalArgumentException("The sample must have at least 2 DAGs");
+		}
+		AlphaOrder.checkDags(dags);
+		this.setOfDags = dags;
+		ArrayList<Dag> sample = new ArrayList<>(dags);
+		if (sampleSize < dags.size()) {
+			Collections.shuffle(sample, new Random(seed));
+			sample = new ArrayList<>(sample.subList(0, sampleSize));
+		}
+		this.sampleSize = sample.size();
+		this.heuristic = new AlphaOrder(sample);
+	}
+
+	/**
+	 * Computes the order with the greedy heuristic on the sample of DAGs.
+	 */
+	@Override
+	public void computeAlpha() {
+		this.heuristic.computeAlpha();
+		this.expectedInsertedEdges = -1;
+	}
+
+	@Override
+	public ArrayList<Node> getOrder() {
+		return this.heuristic.getOrder();
+	}
+
+	/**
+	 * {@inheritDoc} The estimate is computed over all the input DAGs, not only over the sample used to compute the order.
+	 * @return {@inheritDoc}
+	 * @throws IllegalStateException {@inheritDoc}
+	 * @see AlphaOrder#estimateInsertedEdges(List, List)
+	 */
+	@Override
+	public long getExpectedInsertedEdges() {
+		if (getOrder().isEmpty()) {
+			throw new IllegalStateException("The order has not been computed. Please call computeAlpha() first.");
+		}
+		if (this.expectedInsertedEdges < 0) {
+			this.expectedInsertedEdges = AlphaOrder.estimateInsertedEdges(this.setOfDags, getOrder());
+		}
+		return this.expectedInsertedEdges;
+	}
+
+	@Override
+	public void setParallelism(int parallelism) {
+		this.heuristic.setParallelism(parallelism);
+	}
+
+	@Override
+	public int getParallelism() {
+		return this.heuristic.getParallelism();
+	}
+
+	/**
+	 * Returns the number of DAGs of the sample used to compute the order.
+	 * @return the number of sampled DAGs.
+	 */
+	public int getSampleSize() {
+		return this.sampleSize;
+	}
+}
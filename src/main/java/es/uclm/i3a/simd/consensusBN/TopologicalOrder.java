@@ -0,0 +1,235 @@
+package es.uclm.i3a.simd.consensusBN;
+
+import java.util.Arrays;
+
+/**
+ * Topological order of a {@link BitsetDag} that is kept up to date while edges are added, following the dynamic topological sort of
+ * Pearce and Kelly: when an added edge goes against the order, only the nodes between both endpoints that are reachable from the head or
+ * reach the tail are moved. Removing edges or isolating nodes never invalidates the order.
+ *
+ * The order bounds the directed path queries: a path from one node to another can only go through nodes placed between them, so the search
+ * does not visit the rest of the DAG, and it ends immediately when no child of the origin is placed before the destination.
+ * Every edge added to the DAG while this order is in use must be added through {@link #addEdge(int, int)}.
+ *
+ * @see AlphaOrder
+ */
+class TopologicalOrder {
+
+	/**
+	 * The DAG whose nodes are ordered.
+	 */
+	private final BitsetDag dag;
+
+	/**
+	 * The position of each node in the order.
+	 */
+	private final int[] positions;
+
+	/**
+	 * Scratch bitset of the nodes visited by a search.
+	 */
+	private final long[] visited;
+
+	/**
+	 * Scratch bitset of the nodes reached backwards when the order is repaired.
+	 */
+	private final long[] visitedBackward;
+
+	/**
+	 * Scratch stack of a search.
+	 */
+	private final int[] stack;
+
+	/**
+	 * Builds a topological order of the current edges of a DAG. Among the nodes that can be placed at each step, the lowest index is placed first.
+	 * @param dag the DAG to order, which must be acyclic.
+	 * @throws IllegalArgumentException if the DAG has a cycle.
+	 */
+	TopologicalOrder(BitsetDag dag) {
+		this.dag = dag;
+		int numNodes = dag.getNumNodes();
+		this.positions = new int[numNodes];
+		this.visited = new long[Bitsets.words(numNodes)];
+		this.visitedBackward = new long[this.visited.length];
+		this.stack = new int[numNodes];
+
+		// Kahn's algorithm, using the stack as the queue of nodes without pending parents
+		int[] pendingParents = new int[numNodes];
+		int head = 0;
+		int tail = 0;
+		for (int node = 0; node < numNodes; node++) {
+			pendingParents[node] = dag.getNumParents(node);
+			if (pendingParents[node] == 0) {
+				this.stack[tail++] = node;
+			}
+		}
+		while (head < tail) {
+			int node = this.stack[head];
+			this.positions[node] = head++;
+			long[] children = dag.getChildren(node);
+			for (int child = Bitsets.nextSetBit(children, 0); child >= 0; child = Bitsets.nextSetBit(children, child + 1)) {
+				if (--pendingParents[child] == 0) {
+					this.stack[tail++] = child;
+				}
+			}
+		}
+		if (tail < numNodes) {
+			throw new IllegalArgumentException("The graph has a cycle");
+		}
+	}
+
+	/**
+	 * Returns the DAG whose nodes are ordered.
+	 * @return the ordered DAG.
+	 */
+	BitsetDag getDag() {
+		return this.dag;
+	}
+
+	/**
+	 * Returns the position of a node in the order.
+	 * @param node the index of the node.
+	 * @return the position of the node, between 0 and the number of nodes minus 1.
+	 */
+	int getPosition(int node) {
+		return this.positions[node];
+	}
+
+	/**
+	 * Adds the edge parent -&gt; child to the DAG, moving nodes in the order if the edge goes against it.
+	 * The edge must not create a cycle.
+	 * @param parent the index of the parent node.
+	 * @param child the index of the child node.
+	 * @return true if the edge has been added, false if it already existed.
+	 * @throws IllegalArgumentException if the edge creates a cycle. The edge is added to the DAG anyway.
+	 */
+	boolean addEdge(int parent, int child) {
+		if (!this.dag.addEdge(parent, child)) {
+			return false;
+		}
+		if (this.positions[parent] > this.positions[child]) {
+			reorder(parent, child);
+		}
+		return true;
+	}
+
+	/**
+	 * Checks whether there is a directed path from one node to another, only visiting the nodes placed between them in the order.
+	 * A node is considered to have a directed path to itself.
+	 * @param from the index of the origin node.
+	 * @param to the index of the destination node.
+	 * @return true if there is a directed path from {@code from} to {@code to}, false otherwise.
+	 */
+	boolean existsDirectedPath(int from, int to) {
+		if (from == to) {
+			return true;
+		}
+		int limit = this.positions[to];
+		if (this.positions[from] > limit) {
+			return false;
+		}
+		Arrays.fill(this.visited, 0L);
+		int top = 0;
+		this.stack[top++] = from;
+		while (top > 0) {
+			long[] children = this.dag.getChildren(this.stack[--top]);
+			for (int child = Bitsets.nextSetBit(children, 0); child >= 0; child = Bitsets.nextSetBit(children, child + 1)) {
+				if (child == to) {
+					return true;
+				}
+				if (this.positions[child] < limit && !Bitsets.get(this.visited, child)) {
+					Bitsets.set(this.visited, child);
+					this.stack[top++] = child;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Repairs the order after adding an edge parent -&gt; child with the parent placed after the child.
+	 * The nodes reachable from the child and placed up to the parent, and the nodes reaching the parent and placed from the child on,
+	 * are placed again in the positions they occupied: first the ones reaching the parent, then the ones reachable from the child,
+	 * each group keeping its relative order.
+	 * @param parent the index of the parent node.
+	 * @param child the index of the child node.
+	 * @throws IllegalArgumentException if the edge creates a cycle.
+	 */
+	private void reorder(int parent, int child) {
+		int lower = this.positions[child];
+		int upper = this.positions[parent];
+		int forward = collect(child, upper, true, this.visited);
+		if (Bitsets.get(this.visited, parent)) {
+			throw new IllegalArgumentException("The edge " + parent + " -> " + child + " creates a cycle");
+		}
+		int backward = collect(parent, lower, false, this.visitedBackward);
+
+		// Nodes to move: the ones reaching the parent, then the ones reachable from the child, each group sorted by position
+		long[] backwardKeys = sortedByPosition(this.visitedBackward, backward);
+		long[] forwardKeys = sortedByPosition(this.visited, forward);
+
+		// The positions they occupied are the union of both groups, merged in increasing order
+		int b = 0;
+		int f = 0;
+		int[] moved = new int[backward + forward];
+		int[] slots = new int[moved.length];
+		for (int i = 0; i < moved.length; i++) {
+			moved[i] = (int) (i < backward ? backwardKeys[i] : forwardKeys[i - backward]);
+			if (f == forward || (b < backward && backwardKeys[b] < forwardKeys[f])) {
+				slots[i] = (int) (backwardKeys[b++] >>> 32);
+			} else {
+				slots[i] = (int) (forwardKeys[f++] >>> 32);
+			}
+		}
+		for (int i = 0; i < moved.length; i++) {
+			this.positions[moved[i]] = slots[i];
+		}
+	}
+
+	/**
+	 * Collects the nodes reachable from a node, forwards through children or backwards through parents, without leaving the region of
+	 * the order between the start node and a bound.
+	 * @param start the index of the node where the search starts, which is included.
+	 * @param bound the last position that can be visited: an upper bound when going forwards and a lower bound when going backwards.
+	 * @param forwards true to follow children, false to follow parents.
+	 * @param reached the bitset where the reached nodes are stored, which is cleared first.
+	 * @return the number of reached nodes.
+	 */
+	private int collect(int start, int bound, boolean forwards, long[] reached) {
+		Arrays.fill(reached, 0L);
+		Bitsets.set(reached, start);
+		int count = 1;
+		int top = 0;
+		this.stack[top++] = start;
+		while (top > 0) {
+			int node = this.stack[--top];
+			long[] next = forwards ? this.dag.getChildren(node) : this.dag.getParents(node);
+			for (int w = Bitsets.nextSetBit(next, 0); w >= 0; w = Bitsets.nextSetBit(next, w + 1)) {
+				int position = this.positions[w];
+				boolean inRegion = forwards ? position <= bound : position >= bound;
+				if (inRegion && !Bitsets.get(reached, w)) {
+					Bitsets.set(reached, w);
+					this.stack[top++] = w;
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Sorts the nodes of a bitset by their position in the order.
+	 * @param nodes the bitset of nodes to sort.
+	 * @param count the number of nodes of the bitset.
+	 * @return the nodes sorted by position, each one encoded as its position in the upper 32 bits and its index in the lower 32 bits.
+	 */
+	private long[] sortedByPosition(long[] nodes, int count) {
+		long[] keys = new long[count];
+		int i = 0;
+		for (int node = Bitsets.nextSetBit(nodes, 0); node >= 0; node = Bitsets.nextSetBit(nodes, node + 1)) {
+			keys[i++] = ((long) this.positions[node] << 32) | node;
+		}
+		Arrays.sort(keys);
+		return keys;
+	}
+}
@@ -1,12 +1,14 @@
 package es.uclm.i3a.simd.consensusBN;
 
 import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
 
 import edu.cmu.tetrad.graph.Dag;
 import edu.cmu.tetrad.graph.Node;
 
 /**
  * This class transforms a set of DAGs by applying the BetaToAlpha transformation to each DAG with a given alpha order.
+ * The transformations are independent, since each one works on its own copy of a DAG, so they can be run in parallel with setParallelism.
  */
 public class TransformDags {
 	/**
@@ -32,6 +34,11 @@ public class TransformDags {
 	 * This is used to track how many edges were added to the transformed DAGs.
 	 */
 	private int numberOfInsertedEdges = 0;
+
+	/**
+	 * Number of threads used to transform the DAGs. Set to 1 by default, which transforms them sequentially on the calling thread.
+	 */
+	private int parallelism = 1;
 	
 	/**
 	 * Constructor for TransformDags.
@@ -71,13 +78,34 @@ public class TransformDags {
 	 */
 	public ArrayList<Dag> transform (){
 		this.numberOfInsertedEdges = 0;
+		if (this.parallelism > 1) {
+			transformInParallel();
+		} else {
+			for(BetaToAlpha transformDagi: this.transformers){
+				transformDagi.transform();
+			}
+		}
+		// Collecting the results in the order of the input DAGs
 		for(BetaToAlpha transformDagi: this.transformers){
-			transformDagi.transform();
 			this.numberOfInsertedEdges += transformDagi.getNumberOfInsertedEdges();
 			this.setOfOutputDags.add(transformDagi.getGraph());
 		}
 		return this.setOfOutputDags;
 	}
+
+	/**
+	 * Applies the BetaToAlpha transformation of every DAG using a pool with as many threads as the parallelism.
+	 * Each transformer only modifies its own copy of a DAG, so no synchronization is needed between them.
+	 * @throws IllegalStateException if the calling thread is interrupted while waiting for the transformations.
+	 */
+	private void transformInParallel() {
+		ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+		try {
+			Utils.runInPool(pool, this.transformers.size(), i -> this.transformers.get(i).transform(), "transforming the DAGs");
+		} finally {
+			pool.shutdown();
+		}
+	}
 	
 	/**
 	 * Returns the number of edges that were inserted during the transformation process.
@@ -130,5 +158,25 @@ public class TransformDags {
 	public void setTransformers(ArrayList<BetaToAlpha> transformers) {
 		this.transformers = transformers;
 	}
+
+	/**
+	 * Sets the number of threads used to transform the DAGs. The transformed DAGs, their order and the number of inserted edges do not depend on it.
+	 * @param parallelism the number of threads, must be at least 1.
+	 * @throws IllegalArgumentException if the parallelism is lower than 1.
+	 */
+	public void setParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be at least 1");
+		}
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Returns the number of threads used to transform the DAGs.
+	 * @return the parallelism of the transformation.
+	 */
+	public int getParallelism() {
+		return this.parallelism;
+	}
 	
 }
@@ -7,6 +7,10 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
 
 import edu.cmu.tetrad.graph.Dag;
 import edu.cmu.tetrad.graph.Edge;
@@ -109,6 +113,7 @@ public final class Utils {
 	 * @param y The second node.
 	 * @param cond The list of conditioning nodes.
 	 * @return True if the nodes are d-separated, false otherwise.
+	 * @see DSeparation for a bitset-based engine answering the same queries without building new graphs, used by the fusion pipeline.
 	 */
 	public static boolean dSeparated(Dag g, Node x, Node y, List<Node> cond) {
 
@@ -283,4 +288,28 @@ public final class Utils {
 
         return naYX;
     }
+
+	/**
+	 * Runs a task for every index from 0 to n - 1 concurrently in a pool, and waits for all of them to finish.
+	 * The tasks of different indexes must only modify data of their own index, or synchronize the data they share.
+	 * A runtime exception thrown by a task is rethrown as it is; any other failure is wrapped in an IllegalStateException.
+	 * @param pool the pool where the tasks are run.
+	 * @param n the number of indexes.
+	 * @param task the task to run, receiving an index.
+	 * @param description what the tasks do, used in the exception messages, such as "transforming the DAGs".
+	 * @throws IllegalStateException if the calling thread is interrupted while waiting for the tasks, or a task fails with a checked exception.
+	 */
+	static void runInPool(ForkJoinPool pool, int n, IntConsumer task, String description) {
+		try {
+			pool.submit(() -> IntStream.range(0, n).parallel().forEach(task)).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while " + description, e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException("Error while " + description, e.getCause());
+		}
+	}
 }
@@ -2,6 +2,7 @@ package es.uclm.i3a.simd.consensusBN;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -12,6 +13,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import edu.cmu.tetrad.graph.Dag;
+import edu.cmu.tetrad.graph.Edge;
 import edu.cmu.tetrad.graph.GraphNode;
 import edu.cmu.tetrad.graph.Node;
 
@@ -113,7 +115,70 @@ class AlphaOrderTest {
         assertEquals(3, order.stream().distinct().count());
         
     }
-}
-  
-	
 
+    @Test
+    void computeAlphaOfIdenticalDagsIsTopologicalOrder(){
+        // When every DAG is the same, a sink is always the cheapest node, so the order must respect every edge
+        Dag dag = GraphTestHelper.generateRandomDagList(60, 1, 120, 4, 4, 6, false, 21).get(0);
+        ArrayList<Dag> copies = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            copies.add(new Dag(dag));
+        }
+        AlphaOrder alphaOrder = new AlphaOrder(copies);
+        alphaOrder.computeAlpha();
+        List<Node> order = alphaOrder.getOrder();
+
+        assertEquals(dag.getNumNodes(), order.size());
+        for (Edge edge : dag.getEdges()) {
+            assertTrue(order.indexOf(edge.getNode1()) < order.indexOf(edge.getNode2()), "Edge " + edge + " is not respected");
+        }
+    }
+
+    @Test
+    void parallelComputeAlphaMatchesSequential(){
+        ArrayList<Dag> randomDags = new ArrayList<>(GraphTestHelper.generateRandomDagList(40, 12, 80, 3, 3, 5, false, 4));
+        AlphaOrder sequential = new AlphaOrder(randomDags);
+        sequential.computeAlpha();
+        AlphaOrder parallel = new AlphaOrder(randomDags);
+        parallel.setParallelism(4);
+        parallel.computeAlpha();
+
+        assertEquals(4, parallel.getParallelism());
+        assertEquals(sequential.getOrder(), parallel.getOrder());
+        assertThrows(IllegalArgumentException.class, () -> parallel.setParallelism(0));
+    }
+
+    @Test
+    void expectedInsertedEdgesMatchesEstimate(){
+        ArrayList<Dag> randomDags = new ArrayList<>(GraphTestHelper.generateRandomDagList(30, 6, 60, 3, 3, 5, false, 9));
+        AlphaOrder alphaOrder = new AlphaOrder(randomDags);
+        assertThrows(IllegalStateException.class, alphaOrder::getExpectedInsertedEdges);
+        alphaOrder.computeAlpha();
+
+        assertEquals(AlphaOrder.estimateInsertedEdges(randomDags, alphaOrder.getOrder()), alphaOrder.getExpectedInsertedEdges());
+
+        ArrayList<Node> reversed = new ArrayList<>(alphaOrder.getOrder());
+        Collections.reverse(reversed);
+        assertTrue(AlphaOrder.estimateInsertedEdges(randomDags, reversed) >= alphaOrder.getExpectedInsertedEdges());
+    }
+
+    @Test
+    void computeAlphaTwiceReturnsTheSameOrder(){
+        ArrayList<Dag> randomDags = new ArrayList<>(GraphTestHelper.generateRandomDagList(30, 5, 60, 3, 3, 5, false, 13));
+        AlphaOrder alphaOrder = new AlphaOrder(randomDags);
+        alphaOrder.computeAlpha();
+        ArrayList<Node> first = new ArrayList<>(alphaOrder.getOrder());
+        long firstInserted = alphaOrder.getExpectedInsertedEdges();
+        alphaOrder.computeAlpha();
+
+        assertEquals(first, alphaOrder.getOrder());
+        assertEquals(firstInserted, alphaOrder.getExpectedInsertedEdges());
+    }
+
+    @Test
+    void estimateInsertedEdgesRejectsInvalidOrders(){
+        assertThrows(IllegalArgumentException.class, () -> AlphaOrder.estimateInsertedEdges(dags, Arrays.asList(a, b)));
+        assertThrows(IllegalArgumentException.class, () -> AlphaOrder.estimateInsertedEdges(dags, Arrays.asList(a, b, b)));
+        assertEquals(0, AlphaOrder.estimateInsertedEdges(dags, Arrays.asList(a, b, c)));
+    }
+}
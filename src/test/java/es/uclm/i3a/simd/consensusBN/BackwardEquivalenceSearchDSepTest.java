@@ -3,8 +3,10 @@ package es.uclm.i3a.simd.consensusBN;
 import java.util.ArrayList;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.Test;
 
@@ -107,4 +109,72 @@ class BackwardEquivalenceSearchDSepTest {
         assertTrue(insertedEdgesAfter >= 0, "The number of inserted edges should not be negative.");
         assertTrue(insertedEdgesAfter <= insertedEdgesBefore, "The number of inserted edges should decrease after BES.");
     }
+
+    @Test
+    void testParallelSearchMatchesSequentialSearch() {
+        ArrayList<Dag> initialDags = new ArrayList<>(GraphTestHelper.generateRandomDagList(30, 4, 60, 5, 5, 8, false, 3));
+        ConsensusUnion consensusUnion = new ConsensusUnion(initialDags);
+        Dag unionDag = consensusUnion.union();
+
+        BackwardEquivalenceSearchDSep sequential = new BackwardEquivalenceSearchDSep(unionDag, initialDags, consensusUnion.getTransformedDags());
+        Dag sequentialDag = sequential.applyBackwardEliminationWithDSeparation();
+
+        BackwardEquivalenceSearchDSep parallel = new BackwardEquivalenceSearchDSep(unionDag, initialDags, consensusUnion.getTransformedDags());
+        parallel.setParallelism(4);
+        assertEquals(4, parallel.getParallelism());
+        Dag parallelDag = parallel.applyBackwardEliminationWithDSeparation();
+
+        assertEquals(sequentialDag.getEdges(), parallelDag.getEdges());
+        assertEquals(sequential.getNumberOfRemovedEdges(), parallel.getNumberOfRemovedEdges());
+    }
+
+    @Test
+    void testInvalidParallelismThrowsException() {
+        ArrayList<Dag> initialDags = createRandomDagList(2);
+        ConsensusUnion consensusUnion = new ConsensusUnion(initialDags);
+        Dag unionDag = consensusUnion.union();
+        BackwardEquivalenceSearchDSep besd = new BackwardEquivalenceSearchDSep(unionDag, initialDags, consensusUnion.getTransformedDags());
+
+        assertThrows(IllegalArgumentException.class, () -> besd.setParallelism(0));
+    }
+
+    @Test
+    void testIncrementalSearchMatchesFullSearch() {
+        ArrayList<Dag> initialDags = new ArrayList<>(GraphTestHelper.generateRandomDagList(30, 4, 60, 5, 5, 8, false, 5));
+        ConsensusUnion consensusUnion = new ConsensusUnion(initialDags);
+        Dag unionDag = consensusUnion.union();
+
+        BackwardEquivalenceSearchDSep full = new BackwardEquivalenceSearchDSep(unionDag, initialDags, consensusUnion.getTransformedDags());
+        full.setIncremental(false);
+        Dag fullDag = full.applyBackwardEliminationWithDSeparation();
+
+        BackwardEquivalenceSearchDSep incremental = new BackwardEquivalenceSearchDSep(unionDag, initialDags, consensusUnion.getTransformedDags());
+        assertTrue(incremental.isIncremental());
+        Dag incrementalDag = incremental.applyBackwardEliminationWithDSeparation();
+
+        assertEquals(fullDag.getEdges(), incrementalDag.getEdges());
+        assertEquals(full.getNumberOfRemovedEdges(), incremental.getNumberOfRemovedEdges());
+    }
+
+    @Test
+    void testBoundedCacheDoesNotChangeTheResult() {
+        ArrayList<Dag> initialDags = new ArrayList<>(GraphTestHelper.generateRandomDagList(30, 4, 60, 5, 5, 8, false, 7));
+        ConsensusUnion consensusUnion = new ConsensusUnion(initialDags);
+        Dag unionDag = consensusUnion.union();
+
+        BackwardEquivalenceSearchDSep unbounded = new BackwardEquivalenceSearchDSep(unionDag, initialDags, consensusUnion.getTransformedDags());
+        Dag unboundedDag = unbounded.applyBackwardEliminationWithDSeparation();
+
+        BackwardEquivalenceSearchDSep bounded = new BackwardEquivalenceSearchDSep(unionDag, initialDags, consensusUnion.getTransformedDags());
+        LruDSeparationCache cache = new LruDSeparationCache(8);
+        bounded.setDSeparationCache(cache);
+        Dag boundedDag = bounded.applyBackwardEliminationWithDSeparation();
+
+        assertEquals(unboundedDag.getEdges(), boundedDag.getEdges());
+        assertTrue(cache.size() <= 8);
+        assertTrue(cache.getMisses() > 0);
+        assertTrue(cache.getEvictions() > 0);
+        assertEquals(unbounded.getDSeparationCache().getHits() + unbounded.getDSeparationCache().getMisses(),
+                cache.getHits() + cache.getMisses());
+    }
 }
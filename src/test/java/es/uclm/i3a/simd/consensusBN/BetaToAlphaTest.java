@@ -2,6 +2,7 @@ package es.uclm.i3a.simd.consensusBN;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
@@ -106,4 +107,22 @@ public class BetaToAlphaTest {
         assertTrue(order.contains(b));
         assertTrue(order.contains(a));
     }
+
+    @Test
+    void transformOfRandomDagRespectsAlphaAndKeepsAdjacencies() {
+        Dag random = GraphTestHelper.generateRandomDagList(60, 1, 150, 5, 5, 8, false, 12).get(0);
+        ArrayList<Node> randomAlpha = new ArrayList<>(random.getNodes());
+        Collections.shuffle(randomAlpha, new Random(3));
+        Dag transformed = new Dag(random);
+        BetaToAlpha bta = new BetaToAlpha(transformed, randomAlpha);
+        bta.transform();
+
+        for (Edge edge : transformed.getEdges()) {
+            assertTrue(randomAlpha.indexOf(edge.getNode1()) < randomAlpha.indexOf(edge.getNode2()), "Edge violates alpha order: " + edge);
+        }
+        for (Edge edge : random.getEdges()) {
+            assertTrue(transformed.isAdjacentTo(edge.getNode1(), edge.getNode2()), "Adjacency lost: " + edge);
+        }
+        assertEquals(transformed.getNumEdges() - random.getNumEdges(), bta.getNumberOfInsertedEdges());
+    }
 }
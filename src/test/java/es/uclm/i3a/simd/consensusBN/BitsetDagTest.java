@@ -0,0 +1,157 @@
+package es.uclm.i3a.simd.consensusBN;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.cmu.tetrad.graph.Dag;
+import edu.cmu.tetrad.graph.GraphNode;
+import edu.cmu.tetrad.graph.Node;
+
+class BitsetDagTest {
+
+    private Node a, b, c, d;
+    private Dag dag;
+
+    @BeforeEach
+    void setUp() {
+        a = new GraphNode("A");
+        b = new GraphNode("B");
+        c = new GraphNode("C");
+        d = new GraphNode("D");
+
+        // DAG: A -> B, A -> C, B -> D, C -> D
+        dag = new Dag(Arrays.asList(a, b, c, d));
+        dag.addDirectedEdge(a, b);
+        dag.addDirectedEdge(a, c);
+        dag.addDirectedEdge(b, d);
+        dag.addDirectedEdge(c, d);
+    }
+
+    @Test
+    void testFromDagKeepsNodesAndEdges() {
+        BitsetDag bitsetDag = BitsetDag.fromDag(dag);
+
+        assertEquals(4, bitsetDag.getNumNodes());
+        assertEquals(4, bitsetDag.getNumEdges());
+        assertEquals(dag.getNodes(), bitsetDag.getNodes());
+        assertTrue(bitsetDag.isParentOf(0, 1));
+        assertTrue(bitsetDag.isParentOf(2, 3));
+        assertFalse(bitsetDag.isParentOf(1, 0));
+        assertTrue(bitsetDag.isAdjacentTo(1, 0));
+        assertFalse(bitsetDag.isAdjacentTo(1, 2));
+        assertEquals(2, bitsetDag.getNumParents(3));
+        assertEquals(2, bitsetDag.getNumChildren(0));
+    }
+
+    @Test
+    void testRoundTripToDag() {
+        Dag converted = BitsetDag.fromDag(dag).toDag();
+
+        assertEquals(dag.getNodes(), converted.getNodes());
+        assertEquals(dag.getEdges(), converted.getEdges());
+    }
+
+    @Test
+    void testRandomRoundTrip() {
+        // More than 64 nodes, so that bitsets span several words
+        List<Dag> dags = GraphTestHelper.generateRandomDagList(70, 3, 140, 6, 6, 8, false, 7);
+        List<Node> nodes = dags.get(0).getNodes();
+        ArrayList<BitsetDag> bitsetDags = BitsetDag.fromDags(dags, nodes);
+
+        for (int i = 0; i < dags.size(); i++) {
+            Dag expected = dags.get(i);
+            BitsetDag bitsetDag = bitsetDags.get(i);
+            assertEquals(expected.getNumEdges(), bitsetDag.getNumEdges());
+            assertEquals(expected.getEdges(), bitsetDag.toDag().getEdges());
+            for (Node node : nodes) {
+                int index = bitsetDag.getIndex(node);
+                assertEquals(expected.getParents(node).size(), bitsetDag.getNumParents(index));
+                assertEquals(expected.getChildren(node).size(), bitsetDag.getNumChildren(index));
+            }
+        }
+    }
+
+    @Test
+    void testDagsBuiltTogetherShareNodes() {
+        ArrayList<BitsetDag> bitsetDags = BitsetDag.fromDags(Arrays.asList(dag, new Dag(dag)), dag.getNodes());
+
+        assertSame(bitsetDags.get(0).getNodes(), bitsetDags.get(1).getNodes());
+        assertSame(bitsetDags.get(0).getNodes(), new BitsetDag(bitsetDags.get(0)).getNodes());
+        assertEquals(2, bitsetDags.get(0).getIndex(c));
+        assertEquals(-1, bitsetDags.get(0).getIndex(new GraphNode("E")));
+    }
+
+    @Test
+    void testAddAndRemoveEdges() {
+        BitsetDag bitsetDag = new BitsetDag(dag.getNodes());
+
+        assertTrue(bitsetDag.addEdge(0, 3));
+        assertFalse(bitsetDag.addEdge(0, 3));
+        assertEquals(1, bitsetDag.getNumEdges());
+        assertTrue(bitsetDag.removeEdge(0, 3));
+        assertFalse(bitsetDag.removeEdge(0, 3));
+        assertEquals(0, bitsetDag.getNumEdges());
+    }
+
+    @Test
+    void testCopyIsIndependent() {
+        BitsetDag original = BitsetDag.fromDag(dag);
+        BitsetDag copy = new BitsetDag(original);
+        copy.removeEdge(0, 1);
+
+        assertTrue(original.isParentOf(0, 1));
+        assertFalse(copy.isParentOf(0, 1));
+        assertEquals(4, original.getNumEdges());
+        assertEquals(3, copy.getNumEdges());
+    }
+
+    @Test
+    void testRemoveIncidentEdges() {
+        BitsetDag bitsetDag = BitsetDag.fromDag(dag);
+        bitsetDag.removeIncidentEdges(1);
+
+        assertEquals(2, bitsetDag.getNumEdges());
+        assertFalse(bitsetDag.isAdjacentTo(0, 1));
+        assertFalse(bitsetDag.isAdjacentTo(1, 3));
+        assertEquals(1, bitsetDag.getNumParents(3));
+    }
+
+    @Test
+    void testOrBuildsTheUnionOfEdges() {
+        BitsetDag first = new BitsetDag(dag.getNodes());
+        first.addEdge(0, 1);
+        BitsetDag second = first.emptyCopy();
+        second.addEdge(0, 1);
+        second.addEdge(2, 3);
+        first.or(second);
+
+        assertEquals(2, first.getNumEdges());
+        assertTrue(first.isParentOf(2, 3));
+        assertThrows(IllegalArgumentException.class, () -> first.or(new BitsetDag(Arrays.asList(a, b))));
+    }
+
+    @Test
+    void testExistsDirectedPath() {
+        BitsetDag bitsetDag = BitsetDag.fromDag(dag);
+
+        assertTrue(bitsetDag.existsDirectedPath(0, 3));
+        assertTrue(bitsetDag.existsDirectedPath(2, 2));
+        assertFalse(bitsetDag.existsDirectedPath(3, 0));
+        assertFalse(bitsetDag.existsDirectedPath(1, 2));
+    }
+
+    @Test
+    void testUnknownOrDuplicatedNodesThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> BitsetDag.fromDag(dag, Arrays.asList(a, b, c)));
+        assertThrows(IllegalArgumentException.class, () -> new BitsetDag(Arrays.asList(a, b, a)));
+    }
+}
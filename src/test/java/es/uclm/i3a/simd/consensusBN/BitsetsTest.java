@@ -0,0 +1,65 @@
+package es.uclm.i3a.simd.consensusBN;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+class BitsetsTest {
+
+    @Test
+    void testSetGetAndClearAcrossWords() {
+        long[] bits = new long[Bitsets.words(130)];
+        assertEquals(3, bits.length);
+
+        Bitsets.set(bits, 0);
+        Bitsets.set(bits, 64);
+        Bitsets.set(bits, 129);
+        assertTrue(Bitsets.get(bits, 64));
+        assertEquals(3, Bitsets.cardinality(bits));
+
+        Bitsets.clear(bits, 64);
+        assertFalse(Bitsets.get(bits, 64));
+        assertEquals(2, Bitsets.cardinality(bits));
+    }
+
+    @Test
+    void testNextSetBitIteratesInOrder() {
+        long[] bits = new long[Bitsets.words(200)];
+        int[] expected = {3, 63, 64, 150, 199};
+        for (int index : expected) {
+            Bitsets.set(bits, index);
+        }
+
+        int position = 0;
+        for (int i = Bitsets.nextSetBit(bits, 0); i >= 0; i = Bitsets.nextSetBit(bits, i + 1)) {
+            assertEquals(expected[position++], i);
+        }
+        assertEquals(expected.length, position);
+        assertEquals(-1, Bitsets.nextSetBit(bits, 200));
+    }
+
+    @Test
+    void testSetOperations() {
+        long[] a = new long[2];
+        long[] b = new long[2];
+        Bitsets.set(a, 1);
+        Bitsets.set(a, 70);
+        Bitsets.set(b, 70);
+
+        assertTrue(Bitsets.intersects(a, b));
+        assertTrue(Bitsets.isSubset(b, a));
+        assertFalse(Bitsets.isSubset(a, b));
+        assertEquals(1, Bitsets.andNotCardinality(a, b));
+        Bitsets.set(b, 3);
+        assertEquals(2, Bitsets.xorCardinality(a, b));
+        Bitsets.clear(b, 3);
+
+        Bitsets.andNot(a, b);
+        assertFalse(Bitsets.intersects(a, b));
+        Bitsets.or(a, b);
+        assertEquals(2, Bitsets.cardinality(a));
+        assertFalse(Bitsets.isEmpty(a));
+        assertTrue(Bitsets.isEmpty(new long[3]));
+    }
+}
@@ -0,0 +1,58 @@
+package es.uclm.i3a.simd.consensusBN;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+class CompactDSeparationCacheTest {
+
+    @Test
+    void testGetAndPut() {
+        CompactDSeparationCache cache = new CompactDSeparationCache();
+        long[] conditioningSet = new long[2];
+        Bitsets.set(conditioningSet, 80);
+
+        assertTrue(Double.isNaN(cache.get(1, 2, conditioningSet)));
+        cache.put(1, 2, conditioningSet, 0.25);
+        assertEquals(0.25, cache.get(2, 1, conditioningSet));
+        cache.put(2, 1, conditioningSet, 0.5);
+        assertEquals(0.5, cache.get(1, 2, conditioningSet));
+
+        assertEquals(1, cache.size());
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0, cache.getEvictions());
+    }
+
+    @Test
+    void testManyEntriesMatchHashMap() {
+        CompactDSeparationCache cache = new CompactDSeparationCache();
+        Map<CompactDSeparationKey, Double> expected = new HashMap<>();
+        Random random = new Random(1);
+
+        // Enough entries to force every segment to grow several times
+        for (int i = 0; i < 20000; i++) {
+            int x = random.nextInt(100);
+            int y = random.nextInt(100);
+            long[] conditioningSet = new long[2];
+            Bitsets.set(conditioningSet, random.nextInt(100));
+            Bitsets.set(conditioningSet, random.nextInt(100));
+            double score = random.nextInt(5) / 4.0;
+            cache.put(x, y, conditioningSet, score);
+            expected.put(new CompactDSeparationKey(x, y, conditioningSet), score);
+        }
+
+        assertEquals(expected.size(), cache.size());
+        for (Map.Entry<CompactDSeparationKey, Double> entry : expected.entrySet()) {
+            CompactDSeparationKey key = entry.getKey();
+            assertEquals(entry.getValue(), cache.get(key.getX(), key.getY(), key.getConditioningSet()));
+        }
+
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,60 @@
+package es.uclm.i3a.simd.consensusBN;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+class CompactDSeparationKeyTest {
+
+    private long[] bitset(int... indexes) {
+        long[] bits = new long[2];
+        for (int index : indexes) {
+            Bitsets.set(bits, index);
+        }
+        return bits;
+    }
+
+    @Test
+    void testPairOfNodesIsUnordered() {
+        CompactDSeparationKey key1 = new CompactDSeparationKey(3, 70, bitset(5, 100));
+        CompactDSeparationKey key2 = new CompactDSeparationKey(70, 3, bitset(100, 5));
+
+        assertEquals(key1, key2);
+        assertEquals(key1.hashCode(), key2.hashCode());
+        assertEquals(key1.getHash(), key2.getHash());
+        assertEquals(3, key1.getX());
+        assertEquals(70, key1.getY());
+    }
+
+    @Test
+    void testDifferentQueriesAreNotEqual() {
+        CompactDSeparationKey key = new CompactDSeparationKey(1, 2, bitset(3));
+
+        assertNotEquals(key, new CompactDSeparationKey(1, 4, bitset(3)));
+        assertNotEquals(key, new CompactDSeparationKey(1, 2, bitset(4)));
+        assertNotEquals(key, new CompactDSeparationKey(1, 2, bitset()));
+    }
+
+    @Test
+    void testStaticHashMatchesKey() {
+        long[] conditioningSet = bitset(0, 64, 127);
+        CompactDSeparationKey key = new CompactDSeparationKey(8, 9, conditioningSet);
+
+        assertEquals(CompactDSeparationKey.hash(9, 8, conditioningSet), key.getHash());
+        assertTrue(key.matches(CompactDSeparationKey.packNodes(9, 8), conditioningSet));
+        assertFalse(key.matches(CompactDSeparationKey.packNodes(9, 7), conditioningSet));
+    }
+
+    @Test
+    void testConditioningSetIsCopied() {
+        long[] conditioningSet = bitset(10);
+        CompactDSeparationKey key = new CompactDSeparationKey(0, 1, conditioningSet);
+        Bitsets.set(conditioningSet, 11);
+
+        assertArrayEquals(bitset(10), key.getConditioningSet());
+        assertNotEquals(key, new CompactDSeparationKey(0, 1, conditioningSet));
+    }
+}
@@ -0,0 +1,26 @@
+package es.uclm.i3a.simd.consensusBN;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+class ConcurrentDSeparationCacheTest {
+
+    @Test
+    void testStoresEntriesAndCountsLookups() {
+        long[] conditioningSet = new long[1];
+        Bitsets.set(conditioningSet, 2);
+        ConcurrentDSeparationCache cache = new ConcurrentDSeparationCache();
+
+        assertTrue(Double.isNaN(cache.get(0, 1, conditioningSet)));
+        cache.put(0, 1, conditioningSet, 0.75);
+        assertEquals(0.75, cache.get(1, 0, conditioningSet));
+        cache.clear();
+        assertTrue(Double.isNaN(cache.get(0, 1, conditioningSet)));
+
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(0, cache.getEvictions());
+        assertEquals(0, cache.size());
+    }
+}
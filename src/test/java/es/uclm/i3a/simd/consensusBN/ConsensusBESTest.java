@@ -6,6 +6,7 @@ import java.util.List;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
@@ -193,4 +194,37 @@ public class ConsensusBESTest {
         assertNotNull(fusionAlgorithm.getFusionDag(), "El DAG resultante debe existir tras ejecutar run().");
     }
 
+    @Test
+    void testDSeparationCacheStatisticsAfterFusion() {
+        ConsensusBES defaultCache = new ConsensusBES(inputDags);
+        defaultCache.fusion();
+        assertNotNull(defaultCache.getDSeparationCache());
+
+        ConsensusBES boundedCache = new ConsensusBES(inputDags);
+        LruDSeparationCache cache = new LruDSeparationCache(4);
+        boundedCache.setDSeparationCache(cache);
+        boundedCache.fusion();
+
+        assertSame(cache, boundedCache.getDSeparationCache());
+        assertTrue(cache.size() <= 4);
+        assertEquals(defaultCache.getFusionDag().getEdges(), boundedCache.getFusionDag().getEdges());
+    }
+
+    @Test
+    void testStreamingFusionMatchesFusion() {
+        ArrayList<Dag> dags = new ArrayList<>(GraphTestHelper.generateRandomDagList(20, 6, 30, 3, 3, 5, false, 5L));
+        ConsensusBES expected = new ConsensusBES(dags);
+        expected.fusion();
+
+        ConsensusBES streaming = new ConsensusBES(dags);
+        streaming.setStreaming(true);
+        streaming.fusion();
+
+        assertTrue(streaming.isStreaming());
+        assertEquals(expected.getUnion().getEdges(), streaming.getUnion().getEdges());
+        assertEquals(expected.getFusionDag().getEdges(), streaming.getFusionDag().getEdges());
+        assertEquals(expected.getNumberOfInsertedEdges(), streaming.getNumberOfInsertedEdges());
+        assertThrows(IllegalStateException.class, streaming::getTransformedDags);
+    }
+
 }
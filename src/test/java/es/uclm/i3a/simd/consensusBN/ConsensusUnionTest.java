@@ -2,7 +2,9 @@ package es.uclm.i3a.simd.consensusBN;
 
 import java.util.ArrayList;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
@@ -112,6 +114,76 @@ public class ConsensusUnionTest {
         assertNotNull(cu.getUnion());
     }
 
+    @Test
+    public void testUnionWithHeuristicUsesItsOrder() {
+        MedianRankOrder heuristic = new MedianRankOrder(inputDags);
+        ConsensusUnion cu = new ConsensusUnion(inputDags, heuristic);
+        Dag result = cu.union();
+
+        assertSame(heuristic, cu.getHeuristic());
+        ConsensusUnion expected = new ConsensusUnion(inputDags, heuristic.getOrder());
+        assertEquals(expected.union().getEdges(), result.getEdges());
+        assertEquals(expected.getNumberOfInsertedEdges(), cu.getNumberOfInsertedEdges());
+        assertThrows(IllegalArgumentException.class, () -> new ConsensusUnion(inputDags, (OrderHeuristic) null));
+    }
+
+    @Test
+    public void testUnionWithComputedAlphaOrder() {
+        // A heuristic whose order has already been computed gives the same union
+        AlphaOrder heuristic = new AlphaOrder(inputDags);
+        heuristic.computeAlpha();
+        ConsensusUnion cu = new ConsensusUnion(inputDags, heuristic);
+        assertEquals(new ConsensusUnion(inputDags, alpha).union().getEdges(), cu.union().getEdges());
+    }
+
+    @Test
+    public void testEdgeCountsMatchTransformedDags() {
+        ConsensusUnion cu = new ConsensusUnion(inputDags, alpha);
+        assertThrows(IllegalStateException.class, cu::getEdgeCounts);
+        Dag result = cu.union();
+
+        EdgeCountMatrix counts = cu.getEdgeCounts();
+        assertEquals(result.getNodes(), counts.getNodes());
+        assertEquals(inputDags.size(), counts.getNumDags());
+        for (Node x : result.getNodes()) {
+            for (Node y : result.getNodes()) {
+                int expected = 0;
+                for (Dag dag : cu.getTransformedDags()) {
+                    if (x != y && dag.isAdjacentTo(x, y)) {
+                        expected++;
+                    }
+                }
+                assertEquals(expected, counts.getCount(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void testStreamingUnionMatchesUnion() {
+        ArrayList<Dag> dags = new ArrayList<>(GraphTestHelper.generateRandomDagList(25, 8, 40, 4, 4, 6, false, 17L));
+        ConsensusUnion expected = new ConsensusUnion(dags);
+        Dag expectedUnion = expected.union();
+
+        for (int parallelism = 1; parallelism <= 4; parallelism += 3) {
+            ConsensusUnion streaming = new ConsensusUnion(dags);
+            streaming.setStreaming(true);
+            streaming.setParallelism(parallelism);
+            assertTrue(streaming.isStreaming());
+            Dag result = streaming.union();
+
+            assertEquals(expectedUnion.getNodes(), result.getNodes());
+            assertEquals(expectedUnion.getEdges(), result.getEdges());
+            assertEquals(expected.getNumberOfInsertedEdges(), streaming.getNumberOfInsertedEdges());
+            for (Node x : result.getNodes()) {
+                for (Node y : result.getNodes()) {
+                    assertEquals(expected.getEdgeCounts().getCount(x, y), streaming.getEdgeCounts().getCount(x, y));
+                }
+            }
+            // The transformed DAGs are not kept
+            assertThrows(IllegalStateException.class, streaming::getTransformedDags);
+        }
+    }
+
     @Test
     public void testEmptyDagListReturnsEmptyUnion() {
         assertThrows(IllegalArgumentException.class, () -> new ConsensusUnion(new ArrayList<>()));
@@ -3,8 +3,11 @@ package es.uclm.i3a.simd.consensusBN;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.Test;
 
@@ -330,4 +333,61 @@ public class DseparationTest {
         assertFalse(Utils.dSeparated(dag, y, q, Z));
 
     }
+
+    // Bitset d-separation engine tests
+
+    @Test
+    public void testBitsetEngineOnBasicStructures() {
+        Node A = node("A"), B = node("B"), C = node("C"), D = node("D");
+        Dag dag = createDag(
+            Edges.directedEdge(A, B),
+            Edges.directedEdge(C, B),
+            Edges.directedEdge(B, D)
+        );
+        DSeparation dSeparation = new DSeparation(dag);
+
+        assertTrue(dSeparation.dSeparated(A, C, Collections.emptyList()));
+        assertFalse(dSeparation.dSeparated(A, C, Collections.singletonList(B)));
+        assertFalse(dSeparation.dSeparated(A, C, Collections.singletonList(D)));
+        assertFalse(dSeparation.dSeparated(A, D, Collections.emptyList()));
+        assertTrue(dSeparation.dSeparated(A, D, Collections.singletonList(B)));
+        assertFalse(dSeparation.dSeparated(A, A, Collections.emptyList()));
+    }
+
+    @Test
+    public void testBitsetEngineConditioningOnEndpoints() {
+        Node A = node("A"), B = node("B");
+        Dag dag = createDag(Edges.directedEdge(A, B));
+        DSeparation dSeparation = new DSeparation(dag);
+
+        assertEquals(Utils.dSeparated(dag, A, B, Collections.singletonList(A)), dSeparation.dSeparated(A, B, Collections.singletonList(A)));
+        assertEquals(Utils.dSeparated(dag, A, B, Collections.singletonList(B)), dSeparation.dSeparated(A, B, Collections.singletonList(B)));
+        assertThrows(IllegalArgumentException.class, () -> dSeparation.dSeparated(A, node("C"), Collections.emptyList()));
+    }
+
+    @Test
+    public void testBitsetEngineMatchesUtilsOnRandomDags() {
+        // More than 64 nodes, so that bitsets span several words
+        List<Dag> dags = GraphTestHelper.generateRandomDagList(80, 4, 160, 5, 5, 8, false, 11);
+        Random random = new Random(11);
+
+        for (Dag dag : dags) {
+            List<Node> nodes = dag.getNodes();
+            DSeparation dSeparation = new DSeparation(dag);
+            for (int query = 0; query < 300; query++) {
+                Node x = nodes.get(random.nextInt(nodes.size()));
+                Node y = nodes.get(random.nextInt(nodes.size()));
+                List<Node> cond = new ArrayList<>();
+                int condSize = random.nextInt(6);
+                for (int i = 0; i < condSize; i++) {
+                    Node z = nodes.get(random.nextInt(nodes.size()));
+                    if (!cond.contains(z)) {
+                        cond.add(z);
+                    }
+                }
+                assertEquals(Utils.dSeparated(dag, x, y, cond), dSeparation.dSeparated(x, y, cond),
+                        "d-separation of " + x + " and " + y + " given " + cond);
+            }
+        }
+    }
 }
@@ -0,0 +1,110 @@
+package es.uclm.i3a.simd.consensusBN;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.cmu.tetrad.graph.Dag;
+import edu.cmu.tetrad.graph.GraphNode;
+import edu.cmu.tetrad.graph.Node;
+
+class EdgeCountMatrixTest {
+
+    private Node a, b, c, d;
+    private Dag first, second;
+
+    @BeforeEach
+    void setUp() {
+        a = new GraphNode("A");
+        b = new GraphNode("B");
+        c = new GraphNode("C");
+        d = new GraphNode("D");
+
+        // First DAG: A -> B, B -> C, C -> D
+        first = new Dag(Arrays.asList(a, b, c, d));
+        first.addDirectedEdge(a, b);
+        first.addDirectedEdge(b, c);
+        first.addDirectedEdge(c, d);
+
+        // Second DAG: B -> A, A -> D
+        second = new Dag(Arrays.asList(a, b, c, d));
+        second.addDirectedEdge(b, a);
+        second.addDirectedEdge(a, d);
+    }
+
+    @Test
+    void testCountsAdjacenciesInAnyDirection() {
+        EdgeCountMatrix counts = new EdgeCountMatrix(first.getNodes());
+        counts.add(first);
+        counts.add(BitsetDag.fromDag(second, first.getNodes()));
+
+        assertEquals(2, counts.getNumDags());
+        assertEquals(2, counts.getCount(a, b));
+        assertEquals(2, counts.getCount(b, a));
+        assertEquals(1, counts.getCount(b, c));
+        assertEquals(1, counts.getCount(d, a));
+        assertEquals(0, counts.getCount(a, c));
+        assertEquals(0, counts.getCount(a, a));
+    }
+
+    @Test
+    void testCountsMatchProbingEveryDag() {
+        List<Dag> dags = GraphTestHelper.generateRandomDagList(30, 7, 60, 4, 4, 6, false, 11L);
+        List<Node> nodes = dags.get(0).getNodes();
+        EdgeCountMatrix fromDags = new EdgeCountMatrix(nodes);
+        EdgeCountMatrix fromBitsets = new EdgeCountMatrix(nodes);
+        for (BitsetDag dag : BitsetDag.fromDags(dags, nodes)) {
+            fromBitsets.add(dag);
+        }
+        for (Dag dag : dags) {
+            fromDags.add(dag);
+        }
+
+        for (Node x : nodes) {
+            for (Node y : nodes) {
+                int expected = 0;
+                for (Dag dag : dags) {
+                    if (x != y && dag.isAdjacentTo(x, y)) {
+                        expected++;
+                    }
+                }
+                assertEquals(expected, fromDags.getCount(x, y));
+                assertEquals(expected, fromBitsets.getCount(x, y));
+            }
+        }
+    }
+
+    @Test
+    void testRejectsDagsOverOtherNodes() {
+        EdgeCountMatrix counts = new EdgeCountMatrix(first.getNodes());
+        List<Node> reversed = new ArrayList<>(first.getNodes());
+        Collections.reverse(reversed);
+
+        assertThrows(IllegalArgumentException.class, () -> counts.add(BitsetDag.fromDag(first, reversed)));
+        Dag other = new Dag(Arrays.asList(a, new GraphNode("E")));
+        other.addDirectedEdge(a, other.getNode("E"));
+        assertThrows(IllegalArgumentException.class, () -> counts.add(other));
+        assertThrows(IllegalArgumentException.class, () -> counts.getCount(a, other.getNode("E")));
+        assertEquals(0, counts.getNumDags());
+    }
+
+    @Test
+    void testPairIndexPacksTheUpperTriangle() {
+        int numNodes = 7;
+        int expected = 0;
+        for (int i = 0; i < numNodes; i++) {
+            for (int j = i + 1; j < numNodes; j++) {
+                assertEquals(expected, EdgeCountMatrix.pairIndex(i, j, numNodes));
+                assertEquals(expected, EdgeCountMatrix.pairIndex(j, i, numNodes));
+                expected++;
+            }
+        }
+        assertEquals(expected, EdgeCountMatrix.numPairs(numNodes));
+    }
+}
@@ -1,9 +1,13 @@
 package es.uclm.i3a.simd.consensusBN;
 
 import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -78,7 +82,241 @@ public class HierarchicalAgglomerativeClustererBNsTest {
         assertNotNull(consensus, "El DAG de consenso no debería ser null");
     }
 
-    
+
+    @Test
+    public void testParallelClusteringMatchesSequential() {
+        HierarchicalAgglomerativeClustererBNs sequential = new HierarchicalAgglomerativeClustererBNs(inputDags, 2);
+        int sequentialLevel = sequential.cluster();
+
+        HierarchicalAgglomerativeClustererBNs parallel = new HierarchicalAgglomerativeClustererBNs(inputDags, 2);
+        parallel.setParallelism(4);
+        assertEquals(4, parallel.getParallelism());
+        int parallelLevel = parallel.cluster();
+
+        assertEquals(sequentialLevel, parallelLevel);
+        for (int level = 0; level <= sequentialLevel; level++) {
+            ArrayList<Dag> expected = sequential.getClustersOutput(level);
+            ArrayList<Dag> actual = parallel.getClustersOutput(level);
+            assertEquals(expected.size(), actual.size());
+            for (int c = 0; c < expected.size(); c++) {
+                assertEquals(expected.get(c).getEdges(), actual.get(c).getEdges());
+            }
+            assertEquals(sequential.getInsertedEdges(level), parallel.getInsertedEdges(level));
+        }
+        assertThrows(IllegalArgumentException.class, () -> parallel.setParallelism(0));
+    }
+
+    @Test
+    public void testNearestNeighbourSearchMergesTheSamePairs() {
+        for (long seed = 1; seed <= 5; seed++) {
+            ArrayList<Dag> dags = new ArrayList<>(GraphTestHelper.generateRandomDagList(8, 14, 12, 3, 3, 4, false, seed));
+            HierarchicalAgglomerativeClustererBNs scan = new HierarchicalAgglomerativeClustererBNs(dags, 2);
+            scan.setNearestNeighbourSearch(false);
+            int scanLevel = scan.cluster();
+
+            HierarchicalAgglomerativeClustererBNs nearest = new HierarchicalAgglomerativeClustererBNs(dags, 2);
+            assertTrue(nearest.isNearestNeighbourSearch());
+            int nearestLevel = nearest.cluster();
+
+            assertEquals(scanLevel, nearestLevel);
+            for (int level = 0; level <= scanLevel; level++) {
+                ArrayList<Dag> expected = scan.getClustersOutput(level);
+                ArrayList<Dag> actual = nearest.getClustersOutput(level);
+                assertEquals(expected.size(), actual.size());
+                for (int c = 0; c < expected.size(); c++) {
+                    assertEquals(expected.get(c).getEdges(), actual.get(c).getEdges());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMergeHistoryRebuildsEveryLevel() {
+        HierarchicalAgglomerativeClustererBNs clusterer = new HierarchicalAgglomerativeClustererBNs(inputDags, 2);
+        assertEquals(0, clusterer.getClustersOutput(0).size());
+        int level = clusterer.cluster();
+
+        assertEquals(level, clusterer.getNumberOfMerges());
+        for (int l = 1; l <= level; l++) {
+            int[] merge = clusterer.getMerge(l);
+            assertTrue(merge[0] < merge[1]);
+            // Each merge removes one cluster
+            assertEquals(inputDags.size() - l, clusterer.getClustersOutput(l).size());
+        }
+        if (level + 1 < inputDags.size()) {
+            assertTrue(clusterer.getClustersOutput(level + 1).isEmpty());
+        }
+        assertThrows(IllegalArgumentException.class, () -> clusterer.getMerge(level + 1));
+        assertThrows(IllegalArgumentException.class, () -> clusterer.getClustersOutput(-1));
+        assertEquals(clusterer.getClustersOutput(level).get(0), clusterer.computeConsensusDag(level + 1));
+    }
+
+    @Test
+    public void testMergeHistoryOfTheFixture() {
+        HierarchicalAgglomerativeClustererBNs clusterer = new HierarchicalAgglomerativeClustererBNs(inputDags, 2);
+        assertEquals(5, clusterer.cluster());
+
+        // Merges, inserted edges and number of edges of the merged cluster at each level, which match the per-level tables the clusterer used to keep
+        int[][] merges = {{3, 4}, {6, 7}, {0, 1}, {2, 5}, {8, 9}};
+        int[] insertedEdges = {0, 0, 0, 0, 0};
+        int[] mergedEdges = {2, 4, 5, 5, 6};
+
+        // Every cluster that is not merged at a level keeps the DAG it had at the previous level
+        Dag[] clusters = inputDags.toArray(new Dag[0]);
+        for (int l = 1; l <= merges.length; l++) {
+            int[] merge = clusterer.getMerge(l);
+            assertEquals(merges[l - 1][0], merge[0], "Level " + l);
+            assertEquals(merges[l - 1][1], merge[1], "Level " + l);
+            assertEquals(insertedEdges[l - 1], clusterer.getInsertedEdges(l), "Level " + l);
+
+            ArrayList<Dag> output = clusterer.getClustersOutput(l);
+            clusters[merge[1]] = null;
+            int position = 0;
+            for (int c = 0; c < clusters.length; c++) {
+                if (clusters[c] == null) {
+                    continue;
+                }
+                if (c == merge[0]) {
+                    assertEquals(mergedEdges[l - 1], output.get(position).getNumEdges(), "Level " + l);
+                    clusters[c] = output.get(position);
+                } else {
+                    assertSame(clusters[c], output.get(position), "Level " + l + ", cluster " + c);
+                }
+                position++;
+            }
+            assertEquals(position, output.size());
+        }
+    }
+
+    @Test
+    public void testCandidateNeighboursLimitTheFusedPairs() {
+        ArrayList<Dag> dags = new ArrayList<>(GraphTestHelper.generateRandomDagList(8, 12, 12, 3, 3, 4, false, 4L));
+        HierarchicalAgglomerativeClustererBNs exact = new HierarchicalAgglomerativeClustererBNs(dags, 2);
+        int exactLevel = exact.cluster();
+
+        // With every other network as a candidate, the approximate mode is exact
+        HierarchicalAgglomerativeClustererBNs all = new HierarchicalAgglomerativeClustererBNs(dags, 2);
+        all.setCandidateNeighbours(dags.size() - 1);
+        assertEquals(exactLevel, all.cluster());
+        for (int c = 0; c < exact.getClustersOutput(exactLevel).size(); c++) {
+            assertEquals(exact.getClustersOutput(exactLevel).get(c).getEdges(), all.getClustersOutput(exactLevel).get(c).getEdges());
+        }
+
+        HierarchicalAgglomerativeClustererBNs nearest = new HierarchicalAgglomerativeClustererBNs(dags, 2);
+        nearest.setCandidateNeighbours(2);
+        assertEquals(2, nearest.getCandidateNeighbours());
+        int[] fused = new int[1];
+        nearest.setProgressListener((completed, total) -> fused[0] = total);
+        int level = nearest.cluster();
+        assertTrue(fused[0] <= 2 * dags.size());
+        assertTrue(fused[0] < dags.size() * (dags.size() - 1) / 2);
+        assertTrue(level >= 1);
+        assertNotNull(nearest.computeConsensusDag(level));
+        assertThrows(IllegalArgumentException.class, () -> nearest.setCandidateNeighbours(-1));
+    }
+
+    @Test
+    public void testConsensusDagsAreComputedOncePerLevel() {
+        HierarchicalAgglomerativeClustererBNs clusterer = new HierarchicalAgglomerativeClustererBNs(inputDags, 2);
+        int level = clusterer.cluster();
+
+        Dag[] first = new Dag[level + 1];
+        int[] inserted = new int[level + 1];
+        for (int l = 1; l <= level; l++) {
+            first[l] = clusterer.computeConsensusDag(l);
+            inserted[l] = clusterer.getNumberOfInsertedEdges();
+        }
+        for (int l = level; l >= 1; l--) {
+            assertSame(first[l], clusterer.computeConsensusDag(l));
+            assertEquals(inserted[l], clusterer.getNumberOfInsertedEdges());
+        }
+
+        // Clustering again starts with an empty cache
+        clusterer.cluster();
+        Dag recomputed = clusterer.computeConsensusDag(1);
+        assertNotSame(first[1], recomputed);
+        assertEquals(first[1].getEdges(), recomputed.getEdges());
+    }
+
+    @Test
+    public void testIncrementalMedoidsMatchBruteForce() {
+        int n = inputDags.size();
+        int[][] distances = new int[n][n];
+        for (int a = 0; a < n; a++) {
+            for (int b = 0; b < a; b++) {
+                distances[a][b] = new PairWiseConsensusBES(inputDags.get(a), inputDags.get(b)).calculateHammingDistance();
+                distances[b][a] = distances[a][b];
+            }
+        }
+
+        HierarchicalAgglomerativeClustererBNs clusterer = new HierarchicalAgglomerativeClustererBNs(inputDags, 2);
+        int merges = clusterer.cluster();
+        assertTrue(merges >= 2);
+
+        // Asking for a middle level first, then an earlier one, then every level, so the computation is resumed
+        int[] queries = new int[merges + 2];
+        queries[0] = merges / 2;
+        queries[1] = 1;
+        for (int l = 1; l <= merges; l++) {
+            queries[l + 1] = l;
+        }
+        for (int level : queries) {
+            // Members of each cluster, replaying the merges from the singletons
+            List<List<Integer>> members = new ArrayList<>();
+            for (int c = 0; c < n; c++) {
+                List<Integer> cluster = new ArrayList<>();
+                cluster.add(c);
+                members.add(cluster);
+            }
+            for (int l = 1; l <= level; l++) {
+                int[] merge = clusterer.getMerge(l);
+                members.get(merge[0]).addAll(members.get(merge[1]));
+                members.get(merge[1]).clear();
+            }
+            List<Integer> expected = new ArrayList<>();
+            for (List<Integer> cluster : members) {
+                if (cluster.isEmpty()) {
+                    continue;
+                }
+                int medoid = -1;
+                int best = Integer.MAX_VALUE;
+                for (int a : cluster) {
+                    int sum = 0;
+                    for (int b : cluster) {
+                        sum += distances[a][b];
+                    }
+                    if (sum < best || (sum == best && a < medoid)) {
+                        best = sum;
+                        medoid = a;
+                    }
+                }
+                expected.add(medoid);
+            }
+            int[] medoids = clusterer.getMedoids(level);
+            assertEquals(expected.size(), medoids.length, "Level " + level);
+            for (int c = 0; c < medoids.length; c++) {
+                assertEquals((int) expected.get(c), medoids[c], "Level " + level);
+            }
+        }
+    }
+
+    @Test
+    public void testProgressListenerReportsEveryPair() {
+        HierarchicalAgglomerativeClustererBNs clusterer = new HierarchicalAgglomerativeClustererBNs(inputDags, 2);
+        clusterer.setParallelism(3);
+        int numPairs = inputDags.size() * (inputDags.size() - 1) / 2;
+        List<Integer> reported = new ArrayList<>();
+        clusterer.setProgressListener((completed, total) -> {
+            assertEquals(numPairs, total);
+            reported.add(completed);
+        });
+        clusterer.cluster();
+
+        assertEquals(numPairs, reported.size());
+        for (int i = 0; i < numPairs; i++) {
+            assertEquals(i + 1, (int) reported.get(i));
+        }
+    }
 
     /* 
     @Test
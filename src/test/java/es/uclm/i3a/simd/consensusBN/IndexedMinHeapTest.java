@@ -0,0 +1,75 @@
+package es.uclm.i3a.simd.consensusBN;
+
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+class IndexedMinHeapTest {
+
+    /**
+     * Returns the index with the lowest key among the ones not removed, keeping the first one in case of ties.
+     */
+    private static int linearMinimum(int[] keys, boolean[] removed) {
+        int best = -1;
+        for (int i = 0; i < keys.length; i++) {
+            if (!removed[i] && (best < 0 || keys[i] < keys[best])) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    @Test
+    void testTiesAreBrokenByLowestIndex() {
+        IndexedMinHeap heap = new IndexedMinHeap(new int[] {3, 1, 2, 1, 1});
+        assertEquals(1, heap.poll());
+        assertEquals(3, heap.poll());
+        heap.update(0, 1);
+        assertEquals(0, heap.poll());
+        assertEquals(4, heap.poll());
+        assertEquals(2, heap.poll());
+        assertTrue(heap.isEmpty());
+        assertThrows(NoSuchElementException.class, heap::poll);
+    }
+
+    @Test
+    void testRandomUpdatesMatchLinearScan() {
+        Random random = new Random(11);
+        int n = 200;
+        int[] keys = new int[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = random.nextInt(20) - 5;
+        }
+        boolean[] removed = new boolean[n];
+        IndexedMinHeap heap = new IndexedMinHeap(keys);
+
+        for (int step = 0; step < n; step++) {
+            for (int j = 0; j < 10; j++) {
+                int index = random.nextInt(n);
+                if (!removed[index]) {
+                    keys[index] += random.nextInt(11) - 5;
+                    heap.update(index, keys[index]);
+                    assertEquals(keys[index], heap.getKey(index));
+                }
+            }
+            int expected = linearMinimum(keys, removed);
+            assertEquals(expected, heap.peek());
+            assertEquals(expected, heap.poll());
+            removed[expected] = true;
+            assertFalse(heap.contains(expected));
+            assertEquals(n - step - 1, heap.size());
+        }
+    }
+
+    @Test
+    void testUpdatingRemovedIndexThrowsException() {
+        IndexedMinHeap heap = new IndexedMinHeap(new int[] {0, 1});
+        int index = heap.poll();
+        assertThrows(IllegalStateException.class, () -> heap.update(index, 5));
+    }
+}
@@ -0,0 +1,68 @@
+package es.uclm.i3a.simd.consensusBN;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+
+class IndexedTreapTest {
+
+    @Test
+    void testInsertionsAtArbitraryPositions() {
+        IndexedTreap treap = new IndexedTreap(new int[] {0, 1, 2, 3});
+        treap.insert(0, 2);
+        treap.insert(0, 0);
+        treap.insert(2, 3);
+        treap.insert(1, 1);
+
+        assertArrayEquals(new int[] {0, 1, 2, 3}, treap.toArray());
+        assertEquals(4, treap.size());
+        assertEquals(2, treap.positionOf(2));
+    }
+
+    @Test
+    void testFirstGreaterKey() {
+        IndexedTreap treap = new IndexedTreap(new int[] {5, 1, 7, 3});
+        assertEquals(0, treap.firstGreater(0));
+        for (int i = 0; i < 4; i++) {
+            treap.insert(i, i);
+        }
+        // Sequence of keys: 5, 1, 7, 3
+        assertEquals(0, treap.firstGreater(4));
+        assertEquals(2, treap.firstGreater(5));
+        assertEquals(4, treap.firstGreater(7));
+    }
+
+    @Test
+    void testRandomOperationsMatchList() {
+        Random random = new Random(7);
+        int n = 500;
+        int[] keys = new int[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = random.nextInt(100);
+        }
+        IndexedTreap treap = new IndexedTreap(keys);
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            int position = random.nextInt(expected.size() + 1);
+            treap.insert(position, i);
+            expected.add(position, i);
+
+            int key = random.nextInt(100);
+            int firstGreater = expected.size();
+            for (int p = 0; p < expected.size(); p++) {
+                if (keys[expected.get(p)] > key) {
+                    firstGreater = p;
+                    break;
+                }
+            }
+            assertEquals(firstGreater, treap.firstGreater(key));
+            int other = expected.get(random.nextInt(expected.size()));
+            assertEquals(expected.indexOf(other), treap.positionOf(other));
+        }
+        assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), treap.toArray());
+    }
+}
@@ -4,7 +4,10 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -67,4 +70,53 @@ public class ListFabricTest {
         // All subsets should be included (2^3 = 8)
         assertEquals(8, result.size());
     }
+
+    @Test
+    public void testLongListMatchesIntList() {
+        ListFabric.MAX_SIZE = 3;
+        int[] ints = ListFabric.generateList(6);
+        long[] longs = ListFabric.generateLongList(6, 3);
+        assertEquals(ints.length, longs.length);
+        for (int i = 0; i < ints.length; i++) {
+            assertEquals(ints[i], longs[i]);
+        }
+    }
+
+    @Test
+    public void testLongListOfLargeSet() {
+        long[] result = ListFabric.generateLongList(40, 2);
+        assertEquals(1 + 40 + 40 * 39 / 2, result.length);
+        assertEquals(0L, result[0]);
+        assertEquals(1L << 39, result[40]);
+        assertEquals((1L << 38) | (1L << 39), result[result.length - 1]);
+    }
+
+    @Test
+    public void testCountSubsets() {
+        assertEquals(8, ListFabric.countSubsets(3, 3));
+        assertEquals(7, ListFabric.countSubsets(3, 2));
+        assertEquals(1L << 40, ListFabric.countSubsets(40, 40));
+        assertEquals(1 + 100 + 4950, ListFabric.countSubsets(100, 2));
+        assertEquals(Long.MAX_VALUE, ListFabric.countSubsets(200, 200));
+    }
+
+    @Test
+    public void testNextCombination() {
+        int[] combination = new int[2];
+        ListFabric.firstCombination(combination, 2);
+        assertArrayEquals(new int[] {0, 1}, combination);
+        assertTrue(ListFabric.nextCombination(combination, 2, 3));
+        assertArrayEquals(new int[] {0, 2}, combination);
+        assertTrue(ListFabric.nextCombination(combination, 2, 3));
+        assertArrayEquals(new int[] {1, 2}, combination);
+        assertFalse(ListFabric.nextCombination(combination, 2, 3));
+        assertFalse(ListFabric.nextCombination(new int[0], 0, 3));
+    }
+
+    @Test
+    public void testTooLargeSetsThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> ListFabric.generateList(ListFabric.MAX_INT_SIZE + 1));
+        assertThrows(IllegalArgumentException.class, () -> ListFabric.generateLongList(ListFabric.MAX_LONG_SIZE + 1, 1));
+        assertThrows(IllegalArgumentException.class, () -> ListFabric.generateLongList(60, 60));
+    }
 }
@@ -0,0 +1,103 @@
+package es.uclm.i3a.simd.consensusBN;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import edu.cmu.tetrad.graph.Dag;
+import edu.cmu.tetrad.graph.GraphNode;
+import edu.cmu.tetrad.graph.Node;
+
+class LocalSearchOrderTest {
+
+    /**
+     * Heuristic returning a fixed order, to start the local search from a known order.
+     */
+    private static OrderHeuristic fixedOrder(Node... nodes) {
+        return new OrderHeuristic() {
+            @Override
+            public void computeAlpha() {
+            }
+
+            @Override
+            public ArrayList<Node> getOrder() {
+                return new ArrayList<>(Arrays.asList(nodes));
+            }
+
+            @Override
+            public long getExpectedInsertedEdges() {
+                return 0;
+            }
+        };
+    }
+
+    @Test
+    void refinementRemovesInsertedEdgesOfVStructure() {
+        Node a = new GraphNode("A");
+        Node b = new GraphNode("B");
+        Node c = new GraphNode("C");
+        ArrayList<Dag> dags = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Dag dag = new Dag(Arrays.asList(a, b, c));
+            dag.addDirectedEdge(a, c);
+            dag.addDirectedEdge(b, c);
+            dags.add(dag);
+        }
+        // Placing the collider first forces an edge between A and B in each DAG
+        LocalSearchOrder heuristic = new LocalSearchOrder(dags, fixedOrder(c, a, b));
+        heuristic.computeAlpha();
+
+        assertEquals(2, heuristic.getInitialInsertedEdges());
+        assertEquals(0, heuristic.getExpectedInsertedEdges());
+        assertEquals(c, heuristic.getOrder().get(2));
+        assertTrue(heuristic.getNumberOfMoves() > 0);
+    }
+
+    @Test
+    void refinementNeverIncreasesInsertedEdges() {
+        ArrayList<Dag> dags = new ArrayList<>(GraphTestHelper.generateRandomDagList(30, 4, 60, 4, 4, 6, false, 3));
+        ArrayList<Node> reversed = new ArrayList<>(dags.get(0).getNodes());
+        Collections.reverse(reversed);
+        LocalSearchOrder heuristic = new LocalSearchOrder(dags, fixedOrder(reversed.toArray(new Node[0])));
+        heuristic.setMaxDistance(3);
+        heuristic.computeAlpha();
+
+        assertEquals(30, new HashSet<>(heuristic.getOrder()).size());
+        assertTrue(heuristic.getExpectedInsertedEdges() < heuristic.getInitialInsertedEdges());
+
+        // The minimal I-maps are a lower bound of the transformation
+        TransformDags transform = new TransformDags(dags, heuristic.getOrder());
+        transform.transform();
+        assertTrue(transform.getNumberOfInsertedEdges() >= heuristic.getExpectedInsertedEdges());
+    }
+
+    @Test
+    void zeroPassesKeepInitialOrder() {
+        ArrayList<Dag> dags = new ArrayList<>(GraphTestHelper.generateRandomDagList(20, 3, 40, 3, 3, 5, false, 11));
+        AlphaOrder alphaOrder = new AlphaOrder(dags);
+        alphaOrder.computeAlpha();
+        LocalSearchOrder heuristic = new LocalSearchOrder(dags, alphaOrder);
+        heuristic.setMaxPasses(0);
+        heuristic.computeAlpha();
+
+        assertEquals(alphaOrder.getOrder(), heuristic.getOrder());
+        assertEquals(heuristic.getInitialInsertedEdges(), heuristic.getExpectedInsertedEdges());
+        assertEquals(0, heuristic.getNumberOfMoves());
+    }
+
+    @Test
+    void invalidArgumentsThrowException() {
+        ArrayList<Dag> dags = new ArrayList<>(GraphTestHelper.generateRandomDagList(10, 2, 10, 3, 3, 5, false, 1));
+        LocalSearchOrder heuristic = new LocalSearchOrder(dags);
+        assertThrows(IllegalStateException.class, heuristic::getExpectedInsertedEdges);
+        assertThrows(IllegalArgumentException.class, () -> heuristic.setMaxDistance(0));
+        assertThrows(IllegalArgumentException.class, () -> heuristic.setMaxPasses(-1));
+        assertThrows(IllegalArgumentException.class, () -> new LocalSearchOrder(dags, null));
+    }
+}
@@ -0,0 +1,73 @@
+package es.uclm.i3a.simd.consensusBN;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+class LruDSeparationCacheTest {
+
+    private static final int X = 0, Y = 1, Z = 2;
+
+    private final long[] empty = new long[1];
+
+    @Test
+    void testHitsAndMisses() {
+        LruDSeparationCache cache = new LruDSeparationCache(10);
+
+        assertTrue(Double.isNaN(cache.get(X, Y, empty)));
+        cache.put(X, Y, empty, 0.5);
+        assertEquals(0.5, cache.get(Y, X, empty));
+
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0, cache.getEvictions());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void testLeastRecentlyUsedEntryIsEvicted() {
+        LruDSeparationCache cache = new LruDSeparationCache(2);
+        cache.put(X, Y, empty, 1.0);
+        cache.put(X, Z, empty, 0.0);
+        // Accessing X-Y makes X-Z the least recently used entry
+        cache.get(X, Y, empty);
+        cache.put(Y, Z, empty, 0.5);
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertEquals(1.0, cache.get(X, Y, empty));
+        assertTrue(Double.isNaN(cache.get(X, Z, empty)));
+        assertEquals(0.5, cache.get(Y, Z, empty));
+    }
+
+    @Test
+    void testStoredConditioningSetIsCopied() {
+        LruDSeparationCache cache = new LruDSeparationCache(4);
+        long[] conditioningSet = new long[1];
+        Bitsets.set(conditioningSet, Z);
+        cache.put(X, Y, conditioningSet, 1.0);
+        Bitsets.clear(conditioningSet, Z);
+
+        assertTrue(Double.isNaN(cache.get(X, Y, conditioningSet)));
+        Bitsets.set(conditioningSet, Z);
+        assertEquals(1.0, cache.get(X, Y, conditioningSet));
+    }
+
+    @Test
+    void testClearKeepsCounters() {
+        LruDSeparationCache cache = new LruDSeparationCache(1);
+        cache.put(X, Y, empty, 1.0);
+        cache.get(X, Y, empty);
+        cache.clear();
+
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMaxEntries());
+    }
+
+    @Test
+    void testNonPositiveSizeThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> new LruDSeparationCache(0));
+    }
+}
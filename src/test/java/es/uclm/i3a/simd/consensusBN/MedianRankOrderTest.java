@@ -0,0 +1,60 @@
+package es.uclm.i3a.simd.consensusBN;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import edu.cmu.tetrad.graph.Dag;
+import edu.cmu.tetrad.graph.Edge;
+import edu.cmu.tetrad.graph.GraphNode;
+import edu.cmu.tetrad.graph.Node;
+
+class MedianRankOrderTest {
+
+    @Test
+    void orderRespectsEdgesSharedByEveryDag() {
+        ArrayList<Dag> dags = new ArrayList<>(GraphTestHelper.generateRandomDagList(40, 4, 80, 3, 3, 5, false, 8));
+        MedianRankOrder heuristic = new MedianRankOrder(dags);
+        heuristic.computeAlpha();
+
+        ArrayList<Node> order = heuristic.getOrder();
+        assertEquals(40, new HashSet<>(order).size());
+        for (Edge edge : dags.get(0).getEdges()) {
+            boolean shared = true;
+            for (Dag dag : dags) {
+                shared &= dag.isParentOf(edge.getNode1(), edge.getNode2());
+            }
+            if (shared) {
+                assertTrue(order.indexOf(edge.getNode1()) < order.indexOf(edge.getNode2()), "Edge " + edge + " is not respected");
+            }
+        }
+        assertEquals(AlphaOrder.estimateInsertedEdges(dags, order), heuristic.getExpectedInsertedEdges());
+    }
+
+    @Test
+    void orderSortsByMedianPosition() {
+        Node a = new GraphNode("A");
+        Node b = new GraphNode("B");
+        Node c = new GraphNode("C");
+        ArrayList<Dag> dags = new ArrayList<>();
+        // C -> B -> A in two DAGs, A -> B -> C in the third one
+        Node[][] chains = {{c, b, a}, {c, b, a}, {a, b, c}};
+        for (Node[] chain : chains) {
+            Dag dag = new Dag(Arrays.asList(a, b, c));
+            dag.addDirectedEdge(chain[0], chain[1]);
+            dag.addDirectedEdge(chain[1], chain[2]);
+            dags.add(dag);
+        }
+        MedianRankOrder heuristic = new MedianRankOrder(dags);
+        assertThrows(IllegalStateException.class, heuristic::getExpectedInsertedEdges);
+        heuristic.computeAlpha();
+
+        assertEquals(Arrays.asList(c, b, a), heuristic.getOrder());
+        assertEquals(AlphaOrder.estimateInsertedEdges(dags, heuristic.getOrder()), heuristic.getExpectedInsertedEdges());
+    }
+}
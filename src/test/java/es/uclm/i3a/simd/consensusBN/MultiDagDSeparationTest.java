@@ -0,0 +1,131 @@
+package es.uclm.i3a.simd.consensusBN;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import edu.cmu.tetrad.graph.Dag;
+import edu.cmu.tetrad.graph.GraphNode;
+import edu.cmu.tetrad.graph.Node;
+
+class MultiDagDSeparationTest {
+
+    private static final double EPSILON = 1e-12;
+
+    private static double expectedFraction(List<Dag> dags, Node x, Node y, List<Node> cond) {
+        int separated = 0;
+        for (Dag dag : dags) {
+            if (Utils.dSeparated(dag, x, y, cond)) {
+                separated++;
+            }
+        }
+        return (double) separated / dags.size();
+    }
+
+    @Test
+    void testFractionOnSimpleDags() {
+        Node a = new GraphNode("A");
+        Node b = new GraphNode("B");
+        Node c = new GraphNode("C");
+        List<Node> nodes = Arrays.asList(a, b, c);
+
+        // Chain A -> B -> C
+        Dag chain = new Dag(nodes);
+        chain.addDirectedEdge(a, b);
+        chain.addDirectedEdge(b, c);
+        // Collider A -> B <- C
+        Dag collider = new Dag(nodes);
+        collider.addDirectedEdge(a, b);
+        collider.addDirectedEdge(c, b);
+
+        MultiDagDSeparation dSeparation = new MultiDagDSeparation(Arrays.asList(chain, collider), nodes);
+
+        assertEquals(2, dSeparation.size());
+        assertEquals(0.5, dSeparation.separatedFraction(a, c, Collections.emptyList()), EPSILON);
+        assertEquals(0.5, dSeparation.separatedFraction(a, c, Collections.singletonList(b)), EPSILON);
+        assertEquals(0.0, dSeparation.separatedFraction(a, b, Collections.emptyList()), EPSILON);
+    }
+
+    @Test
+    void testFractionMatchesUtilsOnRandomDags() {
+        List<Dag> dags = GraphTestHelper.generateRandomDagList(70, 12, 100, 4, 4, 6, false, 5);
+        List<Node> nodes = dags.get(0).getNodes();
+        MultiDagDSeparation dSeparation = new MultiDagDSeparation(dags, nodes);
+        Random random = new Random(5);
+
+        for (int query = 0; query < 200; query++) {
+            Node x = nodes.get(random.nextInt(nodes.size()));
+            Node y = nodes.get(random.nextInt(nodes.size()));
+            List<Node> cond = new ArrayList<>();
+            for (int i = random.nextInt(5); i > 0; i--) {
+                Node z = nodes.get(random.nextInt(nodes.size()));
+                if (!cond.contains(z)) {
+                    cond.add(z);
+                }
+            }
+            assertEquals(expectedFraction(dags, x, y, cond), dSeparation.separatedFraction(x, y, cond), EPSILON);
+        }
+    }
+
+    @Test
+    void testThresholdEarlyExitIsConsistent() {
+        List<Dag> dags = GraphTestHelper.generateRandomDagList(30, 10, 40, 3, 3, 5, false, 3);
+        List<Node> nodes = dags.get(0).getNodes();
+        MultiDagDSeparation dSeparation = new MultiDagDSeparation(dags, nodes);
+        long[] cond = new long[Bitsets.words(nodes.size())];
+        double[] thresholds = {0.0, 0.3, 0.5, 0.8, 1.0};
+
+        for (int x = 0; x < nodes.size(); x++) {
+            for (int y = 0; y < nodes.size(); y++) {
+                double exact = dSeparation.separatedFraction(x, y, cond);
+                for (double threshold : thresholds) {
+                    double bounded = dSeparation.separatedFraction(x, y, cond, threshold);
+                    if (exact >= threshold) {
+                        assertEquals(exact, bounded, EPSILON);
+                    } else {
+                        assertTrue(bounded <= exact);
+                    }
+                    assertEquals(exact >= threshold, bounded >= threshold);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testForkAnswersTheSameQueries() {
+        List<Dag> dags = GraphTestHelper.generateRandomDagList(20, 5, 30, 3, 3, 5, false, 9);
+        List<Node> nodes = dags.get(0).getNodes();
+        MultiDagDSeparation dSeparation = new MultiDagDSeparation(dags, nodes);
+        MultiDagDSeparation fork = dSeparation.fork();
+        long[] cond = new long[Bitsets.words(nodes.size())];
+        Bitsets.set(cond, 3);
+
+        assertEquals(dSeparation.size(), fork.size());
+        for (int x = 0; x < nodes.size(); x++) {
+            for (int y = 0; y < nodes.size(); y++) {
+                assertEquals(dSeparation.separatedFraction(x, y, cond), fork.separatedFraction(x, y, cond), EPSILON);
+            }
+        }
+    }
+
+    @Test
+    void testInvalidArgumentsThrowException() {
+        Node a = new GraphNode("A");
+        Node b = new GraphNode("B");
+        Dag dag = new Dag(Arrays.asList(a, b));
+        MultiDagDSeparation dSeparation = new MultiDagDSeparation(Collections.singletonList(dag), dag.getNodes());
+
+        assertThrows(IllegalArgumentException.class, () -> new MultiDagDSeparation(new ArrayList<BitsetDag>()));
+        assertThrows(IllegalArgumentException.class,
+                () -> dSeparation.separatedFraction(a, new GraphNode("C"), Collections.emptyList()));
+        assertFalse(dSeparation.getIndex(new GraphNode("C")) >= 0);
+    }
+}
@@ -1,6 +1,8 @@
 package es.uclm.i3a.simd.consensusBN;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -141,6 +143,26 @@ public class PairWiseConsensusBESTest {
         assertEquals("Input DAGs must contain at least one edge.", ex.getMessage());
     }
 
+    @Test
+    public void testHammingDistanceMatchesProbingTransformedDags() {
+        List<Dag> dags = GraphTestHelper.generateRandomDagList(15, 2, 25, 3, 3, 5, false, 8L);
+        PairWiseConsensusBES pair = new PairWiseConsensusBES(dags.get(0), dags.get(1));
+        int distance = pair.calculateHammingDistance();
+
+        ConsensusBES consensus = new ConsensusBES(new ArrayList<>(dags));
+        consensus.fusion();
+        int expected = consensus.getNumberOfInsertedEdges();
+        for (Edge edge : consensus.getFusionDag().getEdges()) {
+            for (Dag transformed : consensus.getTransformedDags()) {
+                if (!transformed.isAdjacentTo(edge.getNode1(), edge.getNode2())) {
+                    expected++;
+                }
+            }
+        }
+        assertEquals(expected, distance);
+        assertEquals(distance, pair.calculateHammingDistance());
+    }
+
     @Test
     public void testDifferentNodeCounts() {
         Dag dag1 = createValidDag();
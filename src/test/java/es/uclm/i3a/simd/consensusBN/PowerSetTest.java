@@ -3,9 +3,11 @@ package es.uclm.i3a.simd.consensusBN;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
@@ -86,4 +88,65 @@ public class PowerSetTest {
     public void testMaxSizeIsNegativeShouldThrowException() {
         assertThrows(IllegalArgumentException.class, () -> new PowerSet(nodeList, -1));
     }
+
+    @Test
+    public void testOrderMatchesListFabric() {
+        for (int i = 0; i < 3; i++) {
+            nodeList.add(new GraphNode("W" + i));
+        }
+        int[] binaryList = ListFabric.generateList(nodeList.size());
+        PowerSet ps = new PowerSet(nodeList);
+        for (int bits : binaryList) {
+            assertTrue(ps.hasMoreElements());
+            Set<Node> expected = new HashSet<>();
+            for (int j = 0; j < nodeList.size(); j++) {
+                if ((bits & (1 << j)) != 0) {
+                    expected.add(nodeList.get(j));
+                }
+            }
+            assertEquals(expected, ps.nextElement());
+            assertEquals(expected.size(), ps.currentSize());
+        }
+        assertFalse(ps.hasMoreElements());
+        assertThrows(NoSuchElementException.class, ps::nextElement);
+    }
+
+    @Test
+    public void testMasksOfLargeSetAreGeneratedLazily() {
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            nodes.add(new GraphNode("X" + i));
+        }
+        PowerSet ps = new PowerSet(nodes, 2);
+        long[] first = ps.nextMask();
+        assertTrue(Bitsets.isEmpty(first));
+        int count = 1;
+        int previousSize = 0;
+        while (ps.hasMoreElements()) {
+            long[] mask = ps.nextMask();
+            // The same array is reused for every subset
+            assertTrue(mask == first);
+            assertEquals(ps.currentSize(), Bitsets.cardinality(mask));
+            assertTrue(ps.currentSize() >= previousSize);
+            previousSize = ps.currentSize();
+            count++;
+        }
+        assertEquals(1 + 100 + 100 * 99 / 2, count);
+    }
+
+    @Test
+    public void testResetIndexRestartsEnumeration() {
+        PowerSet ps = new PowerSet(nodeList, 1);
+        List<Set<Node>> first = new ArrayList<>();
+        while (ps.hasMoreElements()) {
+            first.add(ps.nextElement());
+        }
+        ps.resetIndex();
+        List<Set<Node>> second = new ArrayList<>();
+        while (ps.hasMoreElements()) {
+            second.add(ps.nextElement());
+        }
+        assertEquals(4, first.size());
+        assertEquals(first, second);
+    }
 }
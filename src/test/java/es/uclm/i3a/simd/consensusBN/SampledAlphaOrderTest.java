@@ -0,0 +1,45 @@
+package es.uclm.i3a.simd.consensusBN;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+import edu.cmu.tetrad.graph.Dag;
+
+class SampledAlphaOrderTest {
+
+    @Test
+    void sampleOfEveryDagMatchesAlphaOrder() {
+        ArrayList<Dag> dags = new ArrayList<>(GraphTestHelper.generateRandomDagList(30, 4, 60, 3, 3, 5, false, 6));
+        SampledAlphaOrder sampled = new SampledAlphaOrder(dags, 10, 1);
+        sampled.computeAlpha();
+        AlphaOrder full = new AlphaOrder(dags);
+        full.computeAlpha();
+
+        assertEquals(4, sampled.getSampleSize());
+        assertEquals(full.getOrder(), sampled.getOrder());
+        assertEquals(full.getExpectedInsertedEdges(), sampled.getExpectedInsertedEdges());
+    }
+
+    @Test
+    void expectedInsertedEdgesAreEstimatedOverEveryDag() {
+        ArrayList<Dag> dags = new ArrayList<>(GraphTestHelper.generateRandomDagList(30, 8, 60, 3, 3, 5, false, 7));
+        SampledAlphaOrder sampled = new SampledAlphaOrder(dags, 3, 42);
+        sampled.setParallelism(2);
+        assertThrows(IllegalStateException.class, sampled::getExpectedInsertedEdges);
+        sampled.computeAlpha();
+
+        assertEquals(3, sampled.getSampleSize());
+        assertEquals(2, sampled.getParallelism());
+        assertEquals(30, sampled.getOrder().size());
+        assertEquals(AlphaOrder.estimateInsertedEdges(dags, sampled.getOrder()), sampled.getExpectedInsertedEdges());
+    }
+
+    @Test
+    void sampleSizeLowerThanTwoThrowsException() {
+        ArrayList<Dag> dags = new ArrayList<>(GraphTestHelper.generateRandomDagList(10, 3, 10, 3, 3, 5, false, 1));
+        assertThrows(IllegalArgumentException.class, () -> new SampledAlphaOrder(dags, 1, 0));
+    }
+}
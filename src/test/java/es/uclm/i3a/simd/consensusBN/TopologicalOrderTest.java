@@ -0,0 +1,87 @@
+package es.uclm.i3a.simd.consensusBN;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import edu.cmu.tetrad.graph.GraphNode;
+import edu.cmu.tetrad.graph.Node;
+
+class TopologicalOrderTest {
+
+    private static BitsetDag emptyDag(int numNodes) {
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < numNodes; i++) {
+            nodes.add(new GraphNode("X" + i));
+        }
+        return new BitsetDag(nodes);
+    }
+
+    private static void assertRespectsEdges(TopologicalOrder order, BitsetDag dag) {
+        for (int child = 0; child < dag.getNumNodes(); child++) {
+            long[] parents = dag.getParents(child);
+            for (int parent = Bitsets.nextSetBit(parents, 0); parent >= 0; parent = Bitsets.nextSetBit(parents, parent + 1)) {
+                assertTrue(order.getPosition(parent) < order.getPosition(child), "Edge " + parent + " -> " + child + " is not respected");
+            }
+        }
+    }
+
+    @Test
+    void testOrderIsKeptWhileAddingEdges() {
+        Random random = new Random(3);
+        BitsetDag dag = emptyDag(60);
+        TopologicalOrder order = new TopologicalOrder(dag);
+
+        for (int step = 0; step < 600; step++) {
+            int parent = random.nextInt(60);
+            int child = random.nextInt(60);
+            if (parent == child || dag.existsDirectedPath(child, parent)) {
+                continue;
+            }
+            order.addEdge(parent, child);
+            if (step % 20 == 0) {
+                dag.removeIncidentEdges(random.nextInt(60));
+            }
+            assertRespectsEdges(order, dag);
+        }
+        for (int from = 0; from < 60; from++) {
+            for (int to = 0; to < 60; to++) {
+                assertEquals(dag.existsDirectedPath(from, to), order.existsDirectedPath(from, to));
+            }
+        }
+    }
+
+    @Test
+    void testInitialOrderOfExistingDag() {
+        BitsetDag dag = emptyDag(4);
+        dag.addEdge(3, 2);
+        dag.addEdge(2, 1);
+        dag.addEdge(1, 0);
+        TopologicalOrder order = new TopologicalOrder(dag);
+
+        assertRespectsEdges(order, dag);
+        assertTrue(order.existsDirectedPath(3, 0));
+        assertFalse(order.existsDirectedPath(0, 3));
+        assertTrue(order.existsDirectedPath(2, 2));
+    }
+
+    @Test
+    void testCyclesAreRejected() {
+        BitsetDag dag = emptyDag(3);
+        dag.addEdge(0, 1);
+        dag.addEdge(1, 2);
+        TopologicalOrder order = new TopologicalOrder(dag);
+        assertThrows(IllegalArgumentException.class, () -> order.addEdge(2, 0));
+
+        BitsetDag cyclic = emptyDag(2);
+        cyclic.addEdge(0, 1);
+        cyclic.addEdge(1, 0);
+        assertThrows(IllegalArgumentException.class, () -> new TopologicalOrder(cyclic));
+    }
+}
@@ -5,6 +5,7 @@ import java.util.ArrayList;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -134,4 +135,31 @@ public class TransformDagsTest {
         assertEquals(0, transformer.getNumberOfInsertedEdges());
     }
 
+    @Test
+    public void testParallelTransformMatchesSequentialTransform() {
+        ArrayList<Dag> dags = new ArrayList<>(GraphTestHelper.generateRandomDagList(20, 30, 40, 3, 3, 5, false, 7));
+        AlphaOrder alphaOrder = new AlphaOrder(dags);
+        alphaOrder.computeAlpha();
+        ArrayList<Node> order = alphaOrder.getOrder();
+
+        TransformDags sequential = new TransformDags(dags, order);
+        ArrayList<Dag> expected = sequential.transform();
+        TransformDags parallel = new TransformDags(dags, order);
+        parallel.setParallelism(4);
+        ArrayList<Dag> result = parallel.transform();
+
+        assertEquals(4, parallel.getParallelism());
+        assertEquals(sequential.getNumberOfInsertedEdges(), parallel.getNumberOfInsertedEdges());
+        assertEquals(expected.size(), result.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getEdges(), result.get(i).getEdges());
+        }
+    }
+
+    @Test
+    public void testInvalidParallelismThrowsException() {
+        TransformDags transformer = new TransformDags(inputDags, alpha);
+        assertThrows(IllegalArgumentException.class, () -> transformer.setParallelism(0));
+    }
+
 }
@@ -0,0 +1,68 @@
+package es.uclm.i3a.simd.consensusBN;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import edu.cmu.tetrad.graph.Dag;
+import edu.cmu.tetrad.graph.Edge;
+import edu.cmu.tetrad.graph.GraphNode;
+import edu.cmu.tetrad.graph.Node;
+
+class WeightedTopologicalOrderTest {
+
+    @Test
+    void orderOfIdenticalDagsIsTopologicalOrder() {
+        Dag dag = GraphTestHelper.generateRandomDagList(50, 1, 100, 4, 4, 6, false, 5).get(0);
+        ArrayList<Dag> dags = new ArrayList<>();
+        dags.add(dag);
+        dags.add(new Dag(dag));
+        WeightedTopologicalOrder heuristic = new WeightedTopologicalOrder(dags);
+        heuristic.computeAlpha();
+
+        ArrayList<Node> order = heuristic.getOrder();
+        assertEquals(dag.getNumNodes(), new HashSet<>(order).size());
+        for (Edge edge : dag.getEdges()) {
+            assertTrue(order.indexOf(edge.getNode1()) < order.indexOf(edge.getNode2()), "Edge " + edge + " is not respected");
+        }
+        assertEquals(0, heuristic.getExpectedInsertedEdges());
+    }
+
+    @Test
+    void orderFollowsTheMajorityOfTheEdges() {
+        Node a = new GraphNode("A");
+        Node b = new GraphNode("B");
+        ArrayList<Dag> dags = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Dag dag = new Dag();
+            dag.addNode(a);
+            dag.addNode(b);
+            if (i < 2) {
+                dag.addDirectedEdge(b, a);
+            } else {
+                dag.addDirectedEdge(a, b);
+            }
+            dags.add(dag);
+        }
+        WeightedTopologicalOrder heuristic = new WeightedTopologicalOrder(dags);
+        heuristic.computeAlpha();
+
+        assertEquals(b, heuristic.getOrder().get(0));
+        assertEquals(a, heuristic.getOrder().get(1));
+    }
+
+    @Test
+    void expectedInsertedEdgesMatchesEstimate() {
+        ArrayList<Dag> dags = new ArrayList<>(GraphTestHelper.generateRandomDagList(30, 5, 60, 3, 3, 5, false, 17));
+        WeightedTopologicalOrder heuristic = new WeightedTopologicalOrder(dags);
+        assertThrows(IllegalStateException.class, heuristic::getExpectedInsertedEdges);
+        heuristic.computeAlpha();
+
+        assertEquals(AlphaOrder.estimateInsertedEdges(dags, heuristic.getOrder()), heuristic.getExpectedInsertedEdges());
+        assertThrows(IllegalArgumentException.class, () -> new WeightedTopologicalOrder(new ArrayList<>()));
+    }
+}